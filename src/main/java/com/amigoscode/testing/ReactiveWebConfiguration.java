@@ -0,0 +1,57 @@
+package com.amigoscode.testing;
+
+import com.amigoscode.testing.customer.ReactiveCustomerRegistrationHandler;
+import com.amigoscode.testing.payment.ReactivePaymentHandler;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.codec.ServerCodecConfigurer;
+import org.springframework.http.codec.json.Jackson2JsonDecoder;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.web.reactive.config.WebFluxConfigurer;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.ServerResponse;
+
+import java.util.List;
+
+import static com.amigoscode.testing.customer.ReactiveCustomerRegistrationHandler.APPLICATION_NDJSON;
+import static org.springframework.web.reactive.function.server.RequestPredicates.contentType;
+import static org.springframework.web.reactive.function.server.RouterFunctions.route;
+
+// Selected with the reactive profile, which also switches the web application type to reactive (Netty)
+@Profile("reactive")
+@Configuration
+public class ReactiveWebConfiguration implements WebFluxConfigurer {
+
+    private final ObjectMapper objectMapper;
+
+    @Autowired
+    public ReactiveWebConfiguration(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    @Bean
+    public RouterFunction<ServerResponse> reactiveRoutes(ReactivePaymentHandler paymentHandler,
+                                                         ReactiveCustomerRegistrationHandler customerRegistrationHandler) {
+        return route()
+                .POST("/api/v1/payment/batch", paymentHandler::makePayments)
+                .POST("/api/v1/payment", paymentHandler::makePayment)
+                .GET("/api/v1/payment/{paymentId}", paymentHandler::getPaymentById)
+                .GET("/api/v1/payment", paymentHandler::getPaymentHistory)
+                .PUT("/api/v1/customer-registration/bulk", contentType(APPLICATION_NDJSON),
+                        customerRegistrationHandler::registerNewCustomers)
+                .PUT("/api/v1/customer-registration", customerRegistrationHandler::registerNewCustomer)
+                .build();
+    }
+
+    @Override
+    public void configureHttpMessageCodecs(ServerCodecConfigurer configurer) {
+        // the default Jackson codecs only stream application/stream+json, the bulk route reads and writes ndjson
+        Jackson2JsonEncoder ndjsonEncoder = new Jackson2JsonEncoder(objectMapper, APPLICATION_NDJSON);
+        ndjsonEncoder.setStreamingMediaTypes(List.of(APPLICATION_NDJSON));
+        configurer.customCodecs().register(new Jackson2JsonDecoder(objectMapper, APPLICATION_NDJSON));
+        configurer.customCodecs().register(ndjsonEncoder);
+    }
+}
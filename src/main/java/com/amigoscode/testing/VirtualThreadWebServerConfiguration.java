@@ -0,0 +1,27 @@
+package com.amigoscode.testing;
+
+import com.amigoscode.testing.utils.VirtualThreads;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@ConditionalOnProperty(
+        value = "provider.execution.mode",
+        havingValue = "isolated"
+)
+@Configuration
+public class VirtualThreadWebServerConfiguration {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(VirtualThreadWebServerConfiguration.class);
+
+    @Bean
+    public WebServerFactoryCustomizer<TomcatServletWebServerFactory> virtualThreadTomcatCustomizer() {
+        return factory -> VirtualThreads.newVirtualThreadPerTaskExecutor().ifPresentOrElse(
+                executor -> factory.addProtocolHandlerCustomizers(handler -> handler.setExecutor(executor)),
+                () -> LOGGER.info("Virtual threads are not available, requests run on the Tomcat worker pool"));
+    }
+}
@@ -0,0 +1,40 @@
+package com.amigoscode.testing.customer;
+
+import com.amigoscode.testing.utils.PhoneNumberCodec;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.stereotype.Component;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+
+// phone_number is a BIGINT made of the E.164 digits, the mapping file puts PhoneNumberConverter on Customer
+@ConditionalOnProperty(
+        value = "customer.phone-number.encoding",
+        havingValue = "bigint"
+)
+@Component
+public class BigintPhoneNumberColumn implements PhoneNumberColumn, HibernatePropertiesCustomizer {
+
+    static final String MAPPING = "META-INF/customer-phone-number-bigint.xml";
+
+    // Hibernate adds the orm.xml files listed here to the persistence unit
+    private static final String XML_FILE_NAMES = "hibernate.ejb.xml_files";
+
+    @Override
+    public Object toColumn(String phoneNumber) {
+        return PhoneNumberCodec.encode(phoneNumber);
+    }
+
+    @Override
+    public String fromColumn(ResultSet rs, int columnIndex) throws SQLException {
+        return PhoneNumberCodec.decode(rs.getLong(columnIndex));
+    }
+
+    @Override
+    public void customize(Map<String, Object> hibernateProperties) {
+        hibernateProperties.put(XML_FILE_NAMES, List.of(MAPPING));
+    }
+}
@@ -0,0 +1,36 @@
+package com.amigoscode.testing.customer;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public class CustomerBatchRepository {
+
+    private static final String INSERT_CUSTOMER =
+            "INSERT INTO customer (id, name, phone_number) VALUES (?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final PhoneNumberColumn phoneNumberColumn;
+
+    @Autowired
+    public CustomerBatchRepository(JdbcTemplate jdbcTemplate, PhoneNumberColumn phoneNumberColumn) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.phoneNumberColumn = phoneNumberColumn;
+    }
+
+    public void insertAll(List<Customer> customers, int batchSize) {
+        if (customers.isEmpty()) {
+            return;
+        }
+
+        jdbcTemplate.batchUpdate(INSERT_CUSTOMER, customers, batchSize, (ps, customer) -> {
+            ps.setObject(1, customer.getId());
+            ps.setString(2, customer.getName());
+            ps.setObject(3, phoneNumberColumn.toColumn(customer.getPhoneNumber()));
+        });
+    }
+}
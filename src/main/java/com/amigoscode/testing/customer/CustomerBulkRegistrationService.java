@@ -0,0 +1,167 @@
+package com.amigoscode.testing.customer;
+
+import com.amigoscode.testing.customer.CustomerRegistrationResult.Status;
+import com.amigoscode.testing.utils.PhoneNumberValidator;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+@Service
+public class CustomerBulkRegistrationService {
+
+    private final CustomerRepository customerRepository;
+
+    private final CustomerBatchRepository customerBatchRepository;
+
+    private final PhoneNumberValidator phoneNumberValidator;
+
+    private final PhoneNumberFilter phoneNumberFilter;
+
+    private final CustomerCache customerCache;
+
+    private final CustomerIdGenerator customerIdGenerator;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final int batchSize;
+
+    @Autowired
+    public CustomerBulkRegistrationService(CustomerRepository customerRepository,
+                                           CustomerBatchRepository customerBatchRepository,
+                                           PhoneNumberValidator phoneNumberValidator,
+                                           PhoneNumberFilter phoneNumberFilter,
+                                           CustomerCache customerCache,
+                                           CustomerIdGenerator customerIdGenerator,
+                                           TransactionTemplate transactionTemplate,
+                                           @Value("${customer.registration.batch-size:500}") int batchSize) {
+        this.customerRepository = customerRepository;
+        this.customerBatchRepository = customerBatchRepository;
+        this.phoneNumberValidator = phoneNumberValidator;
+        this.phoneNumberFilter = phoneNumberFilter;
+        this.customerCache = customerCache;
+        this.customerIdGenerator = customerIdGenerator;
+        this.transactionTemplate = transactionTemplate;
+        this.batchSize = batchSize;
+    }
+
+    public void registerNewCustomers(Iterator<CustomerRegistrationRequest> requests,
+                                     Consumer<CustomerRegistrationResult> results) {
+        List<CustomerRegistrationRequest> chunk = new ArrayList<>(batchSize);
+        long index = 0;
+
+        while (requests.hasNext()) {
+            chunk.add(requests.next());
+
+            if (chunk.size() == batchSize) {
+                registerChunk(index, chunk).forEach(results);
+                index += chunk.size();
+                chunk.clear();
+            }
+        }
+
+        if (!chunk.isEmpty()) {
+            registerChunk(index, chunk).forEach(results);
+        }
+    }
+
+    int getBatchSize() {
+        return batchSize;
+    }
+
+    // also called chunk by chunk by the reactive handler, which cannot hand over a blocking iterator
+    List<CustomerRegistrationResult> registerChunk(long firstIndex, List<CustomerRegistrationRequest> chunk) {
+        try {
+            return transactionTemplate.execute(status -> doRegisterChunk(firstIndex, chunk, true));
+        } catch (DataIntegrityViolationException e) {
+            // the filter missed a phone number inserted elsewhere, look up every row instead
+            return transactionTemplate.execute(status -> doRegisterChunk(firstIndex, chunk, false));
+        }
+    }
+
+    private List<CustomerRegistrationResult> doRegisterChunk(long firstIndex,
+                                                             List<CustomerRegistrationRequest> chunk,
+                                                             boolean usePhoneNumberFilter) {
+        // 1. Validate every row and collect the phone numbers that might be taken
+        Set<String> phoneNumbers = new HashSet<>();
+        for (CustomerRegistrationRequest request : chunk) {
+            Customer customer = request.getCustomer();
+            if (isValid(customer)
+                    && (!usePhoneNumberFilter || phoneNumberFilter.mightContain(customer.getPhoneNumber()))) {
+                phoneNumbers.add(customer.getPhoneNumber());
+            }
+        }
+
+        // 2. Select all taken phone numbers of the chunk in one query
+        Map<String, Customer> customersByPhoneNumber = new HashMap<>();
+        if (!phoneNumbers.isEmpty()) {
+            customerRepository.selectCustomersByPhoneNumbers(phoneNumbers)
+                    .forEach(customer -> customersByPhoneNumber.put(customer.getPhoneNumber(), customer));
+        }
+
+        // 3. Apply the same rules as a single registration, row by row
+        List<CustomerRegistrationResult> results = new ArrayList<>(chunk.size());
+        List<Customer> newCustomers = new ArrayList<>();
+        long index = firstIndex;
+
+        for (CustomerRegistrationRequest request : chunk) {
+            Customer customer = request.getCustomer();
+
+            if (!isValid(customer)) {
+                String phoneNumber = customer == null ? null : customer.getPhoneNumber();
+                results.add(new CustomerRegistrationResult(index++, phoneNumber, Status.INVALID,
+                        "Phone Number " + phoneNumber + " is not valid"));
+                continue;
+            }
+
+            String phoneNumber = customer.getPhoneNumber();
+            Customer existing = customersByPhoneNumber.get(phoneNumber);
+
+            if (existing != null) {
+                if (existing.getName().equals(customer.getName())) {
+                    results.add(new CustomerRegistrationResult(index++, phoneNumber, Status.ALREADY_REGISTERED, null));
+                } else {
+                    results.add(new CustomerRegistrationResult(index++, phoneNumber, Status.PHONE_NUMBER_TAKEN,
+                            String.format("phone number [%s] is taken", phoneNumber)));
+                }
+                continue;
+            }
+
+            if (customer.getId() == null) {
+                customer.setId(customerIdGenerator.generateId());
+            }
+
+            // later rows of the same chunk must see this customer as existing
+            customersByPhoneNumber.put(phoneNumber, customer);
+            newCustomers.add(customer);
+            results.add(new CustomerRegistrationResult(index++, phoneNumber, Status.REGISTERED, null));
+        }
+
+        // 4. Insert new customers in JDBC batches
+        customerBatchRepository.insertAll(newCustomers, batchSize);
+        newCustomers.forEach(customer -> {
+            phoneNumberFilter.put(customer.getPhoneNumber());
+            customerCache.invalidate(customer.getId());
+        });
+
+        return results;
+    }
+
+    private boolean isValid(Customer customer) {
+        return customer != null
+                && customer.getName() != null
+                && !customer.getName().isBlank()
+                && customer.getPhoneNumber() != null
+                && phoneNumberValidator.test(customer.getPhoneNumber());
+    }
+}
@@ -0,0 +1,61 @@
+package com.amigoscode.testing.customer;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Optional;
+import java.util.UUID;
+
+@Component
+public class CustomerCache {
+
+    private final CustomerRepository customerRepository;
+
+    private final Cache<UUID, CustomerContact> cache;
+
+    @Autowired
+    public CustomerCache(CustomerRepository customerRepository,
+                         MeterRegistry meterRegistry,
+                         @Value("${customer.cache.enable:true}") boolean enabled,
+                         @Value("${customer.cache.maximum-size:10000}") long maximumSize) {
+        this.customerRepository = customerRepository;
+
+        if (enabled) {
+            this.cache = Caffeine.newBuilder()
+                    .maximumSize(maximumSize)
+                    .recordStats()
+                    .build();
+            CaffeineCacheMetrics.monitor(meterRegistry, cache, "customer");
+        } else {
+            this.cache = null;
+        }
+    }
+
+    public Optional<CustomerContact> getCustomer(UUID customerId) {
+        if (customerId == null) {
+            return Optional.empty();
+        }
+
+        if (cache == null) {
+            return loadCustomer(customerId);
+        }
+
+        // unknown customers are not cached, they may register at any time
+        return Optional.ofNullable(cache.get(customerId, id -> loadCustomer(id).orElse(null)));
+    }
+
+    public void invalidate(UUID customerId) {
+        if (cache != null && customerId != null) {
+            cache.invalidate(customerId);
+        }
+    }
+
+    private Optional<CustomerContact> loadCustomer(UUID customerId) {
+        return customerRepository.selectContactById(customerId);
+    }
+}
@@ -0,0 +1,8 @@
+package com.amigoscode.testing.customer;
+
+import java.util.UUID;
+
+public interface CustomerIdGenerator {
+
+    UUID generateId();
+}
@@ -1,26 +1,70 @@
 package com.amigoscode.testing.customer;
 
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 
+// served by the router functions under the reactive profile
+@Profile("!reactive")
 @RestController
 @RequestMapping("api/v1/customer-registration")
 public class CustomerRegistrationController {
 
+    public static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+
     private final CustomerRegistrationService customerRegistrationService;
 
+    private final CustomerBulkRegistrationService customerBulkRegistrationService;
+
+    private final ObjectMapper objectMapper;
+
     @Autowired
-    public CustomerRegistrationController(CustomerRegistrationService customerRegistrationService) {
+    public CustomerRegistrationController(CustomerRegistrationService customerRegistrationService,
+                                          CustomerBulkRegistrationService customerBulkRegistrationService,
+                                          ObjectMapper objectMapper) {
         this.customerRegistrationService = customerRegistrationService;
+        this.customerBulkRegistrationService = customerBulkRegistrationService;
+        this.objectMapper = objectMapper;
     }
 
     @PutMapping
     public void registerNewCustomer(@Valid @RequestBody CustomerRegistrationRequest request) {
         customerRegistrationService.registerNewCustomer(request);
     }
+
+    @PutMapping(path = "bulk", consumes = APPLICATION_NDJSON_VALUE, produces = APPLICATION_NDJSON_VALUE)
+    public void registerNewCustomers(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        response.setContentType(APPLICATION_NDJSON_VALUE);
+
+        ObjectWriter writer = objectMapper.writerFor(CustomerRegistrationResult.class);
+        ServletOutputStream out = response.getOutputStream();
+
+        try (MappingIterator<CustomerRegistrationRequest> requests = objectMapper
+                .readerFor(CustomerRegistrationRequest.class)
+                .readValues(request.getInputStream())) {
+            customerBulkRegistrationService.registerNewCustomers(requests, result -> {
+                try {
+                    out.write(writer.writeValueAsBytes(result));
+                    out.write('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+
+        out.flush();
+    }
 }
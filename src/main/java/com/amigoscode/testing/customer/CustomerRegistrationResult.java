@@ -0,0 +1,57 @@
+package com.amigoscode.testing.customer;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+public class CustomerRegistrationResult {
+
+    public enum Status {
+        REGISTERED,
+        ALREADY_REGISTERED,
+        INVALID,
+        PHONE_NUMBER_TAKEN
+    }
+
+    private final long index;
+
+    private final String phoneNumber;
+
+    private final Status status;
+
+    private final String message;
+
+    public CustomerRegistrationResult(@JsonProperty("index") long index,
+                                      @JsonProperty("phoneNumber") String phoneNumber,
+                                      @JsonProperty("status") Status status,
+                                      @JsonProperty("message") String message) {
+        this.index = index;
+        this.phoneNumber = phoneNumber;
+        this.status = status;
+        this.message = message;
+    }
+
+    public long getIndex() {
+        return index;
+    }
+
+    public String getPhoneNumber() {
+        return phoneNumber;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    @Override
+    public String toString() {
+        return "CustomerRegistrationResult{" +
+                "index=" + index +
+                ", phoneNumber='" + phoneNumber + '\'' +
+                ", status=" + status +
+                ", message='" + message + '\'' +
+                '}';
+    }
+}
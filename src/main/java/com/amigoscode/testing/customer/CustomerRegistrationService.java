@@ -2,10 +2,10 @@ package com.amigoscode.testing.customer;
 
 import com.amigoscode.testing.utils.PhoneNumberValidator;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 
 import java.util.Optional;
-import java.util.UUID;
 
 @Service
 public class CustomerRegistrationService {
@@ -14,11 +14,27 @@ public class CustomerRegistrationService {
 
     private final PhoneNumberValidator phoneNumberValidator;
 
+    private final PhoneNumberFilter phoneNumberFilter;
+
+    private final CustomerCache customerCache;
+
+    private final CustomerIdGenerator customerIdGenerator;
+
+    private final PhoneNumberColumn phoneNumberColumn;
+
     @Autowired
     public CustomerRegistrationService(CustomerRepository customerRepository,
-                                       PhoneNumberValidator phoneNumberValidator) {
+                                       PhoneNumberValidator phoneNumberValidator,
+                                       PhoneNumberFilter phoneNumberFilter,
+                                       CustomerCache customerCache,
+                                       CustomerIdGenerator customerIdGenerator,
+                                       PhoneNumberColumn phoneNumberColumn) {
         this.customerRepository = customerRepository;
         this.phoneNumberValidator = phoneNumberValidator;
+        this.phoneNumberFilter = phoneNumberFilter;
+        this.customerCache = customerCache;
+        this.customerIdGenerator = customerIdGenerator;
+        this.phoneNumberColumn = phoneNumberColumn;
     }
 
     public void registerNewCustomer(CustomerRegistrationRequest request) {
@@ -28,25 +44,58 @@ public class CustomerRegistrationService {
             throw new IllegalStateException("Phone Number " + phoneNumber + " is not valid");
         }
 
-        // 1. PhoneNumber is taken
-        Optional<Customer> customerOptional = customerRepository.selectCustomerByPhoneNumber(phoneNumber);
+        Customer customer = request.getCustomer();
+
+        if (customer.getId() == null) {
+            customer.setId(customerIdGenerator.generateId());
+        }
+
+        // 1. PhoneNumber might be taken, let check if belongs to same customer
+        // the filter only saves the lookup, the insert below stays guarded by the database
+        if (phoneNumberFilter.mightContain(phoneNumber)) {
+            Optional<Customer> customerOptional = customerRepository.selectCustomerByPhoneNumber(phoneNumber);
 
-        // 2. If taken let check if belongs to same customer
-        if (customerOptional.isPresent()) {
-            // 2.1. if yes return
-            if (customerOptional.get().getName().equals(request.getCustomer().getName())) {
+            if (customerOptional.isPresent()) {
+                checkSameCustomer(customerOptional.get(), customer);
                 return;
             }
+        }
 
-            // 2.2. thrown an exception
-            throw new IllegalStateException(String.format("phone number [%s] is taken", request.getCustomer().getPhoneNumber()));
+        // 2. Insert customer unless phone number is taken, in a single statement
+        if (insertIfPhoneNumberAbsent(customer)) {
+            phoneNumberFilter.put(phoneNumber);
+            customerCache.invalidate(customer.getId());
+            return;
         }
 
-        if (request.getCustomer().getId() == null) {
-            request.getCustomer().setId(UUID.randomUUID());
+        // 3. PhoneNumber was taken concurrently, let check if belongs to same customer
+        Customer existingCustomer = customerRepository.selectCustomerByPhoneNumber(phoneNumber)
+                .orElseThrow(() -> new IllegalStateException(
+                        String.format("customer [%s] cannot be registered", customer.getId())));
+
+        checkSameCustomer(existingCustomer, customer);
+    }
+
+    private void checkSameCustomer(Customer existingCustomer, Customer customer) {
+        // if yes return
+        if (existingCustomer.getName().equals(customer.getName())) {
+            return;
         }
 
-        // 3. Save customer
-        customerRepository.save(request.getCustomer());
+        // else thrown an exception
+        throw new IllegalStateException(String.format("phone number [%s] is taken", customer.getPhoneNumber()));
+    }
+
+    private boolean insertIfPhoneNumberAbsent(Customer customer) {
+        try {
+            return customerRepository.insertCustomerIfPhoneNumberAbsent(
+                    customer.getId(),
+                    customer.getName(),
+                    phoneNumberColumn.toColumn(customer.getPhoneNumber())
+            ) == 1;
+        } catch (DataIntegrityViolationException e) {
+            // a concurrent registration inserted the same phone number first
+            return false;
+        }
     }
 }
@@ -1,25 +1,50 @@
 package com.amigoscode.testing.customer;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
 @Repository
 public interface CustomerRepository extends JpaRepository<Customer, UUID> {
 
-    @Query(
-            value = "SELECT id, name, phone_number FROM customer WHERE phone_number = :phone_number",
-            nativeQuery = true
-    )
+    @Query("SELECT c FROM customer c WHERE c.phoneNumber = :phone_number")
     Optional<Customer> selectCustomerByPhoneNumber(@Param("phone_number") String phoneNumber);
 
+    @Query("SELECT c FROM customer c WHERE c.phoneNumber IN (:phone_numbers)")
+    List<Customer> selectCustomersByPhoneNumbers(@Param("phone_numbers") Collection<String> phoneNumbers);
+
+    @Query("SELECT c.phoneNumber FROM customer c WHERE c.id = :id")
+    String selectPhoneNumberById(@Param("id") UUID id);
+
+    // contact lookups may be served by a replica, the phone number checks guarding inserts never are
+    @Transactional(readOnly = true)
+    @Query("SELECT new com.amigoscode.testing.customer.CustomerContact(c.id, c.name, c.phoneNumber) " +
+            "FROM customer c WHERE c.id = :id")
+    Optional<CustomerContact> selectContactById(@Param("id") UUID id);
+
+    @Transactional(readOnly = true)
+    @Query("SELECT new com.amigoscode.testing.customer.CustomerContact(c.id, c.name, c.phoneNumber) " +
+            "FROM customer c WHERE c.id IN (:ids)")
+    List<CustomerContact> selectContactsByIds(@Param("ids") Collection<UUID> ids);
+
+    // phone_number is bound the way PhoneNumberColumn stores it
+    @Transactional
+    @Modifying
     @Query(
-            value = "SELECT phone_number FROM customer WHERE id = :id",
+            value = "INSERT INTO customer (id, name, phone_number) " +
+                    "SELECT :id, :name, :phone_number " +
+                    "WHERE NOT EXISTS (SELECT 1 FROM customer WHERE phone_number = :phone_number)",
             nativeQuery = true
     )
-    String selectPhoneNumberById(UUID id);
+    int insertCustomerIfPhoneNumberAbsent(@Param("id") UUID id,
+                                          @Param("name") String name,
+                                          @Param("phone_number") Object phoneNumber);
 }
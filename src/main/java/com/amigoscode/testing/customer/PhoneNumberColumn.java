@@ -0,0 +1,13 @@
+package com.amigoscode.testing.customer;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+// How the native and JDBC statements bind and read customer.phone_number,
+// JPA follows the same choice through the mapping customer.phone-number.encoding selects
+public interface PhoneNumberColumn {
+
+    Object toColumn(String phoneNumber);
+
+    String fromColumn(ResultSet rs, int columnIndex) throws SQLException;
+}
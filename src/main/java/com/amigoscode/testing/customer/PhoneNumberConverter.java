@@ -0,0 +1,20 @@
+package com.amigoscode.testing.customer;
+
+import com.amigoscode.testing.utils.PhoneNumberCodec;
+
+import javax.persistence.AttributeConverter;
+import javax.persistence.Converter;
+
+@Converter
+public class PhoneNumberConverter implements AttributeConverter<String, Long> {
+
+    @Override
+    public Long convertToDatabaseColumn(String phoneNumber) {
+        return phoneNumber == null ? null : PhoneNumberCodec.encode(phoneNumber);
+    }
+
+    @Override
+    public String convertToEntityAttribute(Long phoneNumber) {
+        return phoneNumber == null ? null : PhoneNumberCodec.decode(phoneNumber);
+    }
+}
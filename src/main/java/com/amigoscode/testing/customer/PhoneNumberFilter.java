@@ -0,0 +1,85 @@
+package com.amigoscode.testing.customer;
+
+import com.amigoscode.testing.utils.BloomFilter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+@Component
+public class PhoneNumberFilter {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final PhoneNumberColumn phoneNumberColumn;
+
+    private final long expectedInsertions;
+
+    private final double falsePositiveRate;
+
+    private final Timer rebuildTimer;
+
+    private volatile BloomFilter filter;
+
+    private volatile BloomFilter rebuilding;
+
+    @Autowired
+    public PhoneNumberFilter(JdbcTemplate jdbcTemplate,
+                             PhoneNumberColumn phoneNumberColumn,
+                             MeterRegistry meterRegistry,
+                             @Value("${customer.phone-number-filter.expected-insertions:1000000}") long expectedInsertions,
+                             @Value("${customer.phone-number-filter.false-positive-rate:0.01}") double falsePositiveRate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.phoneNumberColumn = phoneNumberColumn;
+        this.expectedInsertions = expectedInsertions;
+        this.falsePositiveRate = falsePositiveRate;
+        this.filter = BloomFilter.create(expectedInsertions, falsePositiveRate);
+
+        Gauge.builder("customer.phone.number.filter.size", this, f -> f.filter.insertions())
+                .description("Phone numbers added to the filter")
+                .register(meterRegistry);
+        Gauge.builder("customer.phone.number.filter.false.positive.rate", this, f -> f.filter.expectedFalsePositiveRate())
+                .description("Expected false positive rate for the current fill ratio")
+                .register(meterRegistry);
+        this.rebuildTimer = Timer.builder("customer.phone.number.filter.rebuild")
+                .description("Time taken to rebuild the filter from the customer table")
+                .register(meterRegistry);
+    }
+
+    public boolean mightContain(String phoneNumber) {
+        return filter.mightContain(phoneNumber);
+    }
+
+    public void put(String phoneNumber) {
+        filter.put(phoneNumber);
+
+        BloomFilter next = rebuilding;
+        if (next != null) {
+            next.put(phoneNumber);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void rebuild() {
+        long start = System.nanoTime();
+
+        BloomFilter next = BloomFilter.create(expectedInsertions, falsePositiveRate);
+        rebuilding = next;
+        try {
+            jdbcTemplate.query("SELECT phone_number FROM customer", rs -> {
+                next.put(phoneNumberColumn.fromColumn(rs, 1));
+            });
+            filter = next;
+        } finally {
+            rebuilding = null;
+            rebuildTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+}
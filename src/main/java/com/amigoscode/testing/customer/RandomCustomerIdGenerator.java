@@ -0,0 +1,19 @@
+package com.amigoscode.testing.customer;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.UUID;
+
+@ConditionalOnProperty(
+        value = "customer.id-generator",
+        havingValue = "random"
+)
+@Component
+public class RandomCustomerIdGenerator implements CustomerIdGenerator {
+
+    @Override
+    public UUID generateId() {
+        return UUID.randomUUID();
+    }
+}
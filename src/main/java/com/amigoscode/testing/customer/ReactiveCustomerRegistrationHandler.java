@@ -0,0 +1,83 @@
+package com.amigoscode.testing.customer;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import org.springframework.web.server.ServerWebInputException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static com.amigoscode.testing.customer.CustomerRegistrationController.APPLICATION_NDJSON_VALUE;
+
+// Same routes as CustomerRegistrationController on the non-blocking stack, the inserts run on the bounded elastic pool
+@Profile("reactive")
+@Component
+public class ReactiveCustomerRegistrationHandler {
+
+    public static final MediaType APPLICATION_NDJSON = MediaType.parseMediaType(APPLICATION_NDJSON_VALUE);
+
+    private final CustomerRegistrationService customerRegistrationService;
+
+    private final CustomerBulkRegistrationService customerBulkRegistrationService;
+
+    private final Validator validator;
+
+    @Autowired
+    public ReactiveCustomerRegistrationHandler(CustomerRegistrationService customerRegistrationService,
+                                               CustomerBulkRegistrationService customerBulkRegistrationService,
+                                               Validator validator) {
+        this.customerRegistrationService = customerRegistrationService;
+        this.customerBulkRegistrationService = customerBulkRegistrationService;
+        this.validator = validator;
+    }
+
+    public Mono<ServerResponse> registerNewCustomer(ServerRequest request) {
+        return request.bodyToMono(CustomerRegistrationRequest.class)
+                .switchIfEmpty(Mono.error(() -> new ServerWebInputException("Request body is missing")))
+                .map(this::validate)
+                .flatMap(registrationRequest -> Mono
+                        .fromRunnable(() -> customerRegistrationService.registerNewCustomer(registrationRequest))
+                        .subscribeOn(Schedulers.boundedElastic()))
+                .then(ServerResponse.ok().build());
+    }
+
+    public Mono<ServerResponse> registerNewCustomers(ServerRequest request) {
+        int batchSize = customerBulkRegistrationService.getBatchSize();
+
+        // one chunk in flight at a time, so the request body is only read as fast as rows are inserted
+        Flux<CustomerRegistrationResult> results = request.bodyToFlux(CustomerRegistrationRequest.class)
+                .buffer(batchSize)
+                .index()
+                .concatMap(chunk -> Mono
+                        .fromCallable(() -> customerBulkRegistrationService.registerChunk(
+                                chunk.getT1() * batchSize, chunk.getT2()))
+                        .subscribeOn(Schedulers.boundedElastic()), 1)
+                .flatMapIterable(Function.identity());
+
+        return ServerResponse.ok()
+                .contentType(APPLICATION_NDJSON)
+                .body(results, CustomerRegistrationResult.class);
+    }
+
+    // functional routes have no @Valid, so the body is checked here like the controller would
+    private CustomerRegistrationRequest validate(CustomerRegistrationRequest registrationRequest) {
+        Set<ConstraintViolation<CustomerRegistrationRequest>> violations = validator.validate(registrationRequest);
+        if (!violations.isEmpty()) {
+            throw new ServerWebInputException(violations.stream()
+                    .map(violation -> violation.getPropertyPath() + " " + violation.getMessage())
+                    .sorted()
+                    .collect(Collectors.joining(", ")));
+        }
+        return registrationRequest;
+    }
+}
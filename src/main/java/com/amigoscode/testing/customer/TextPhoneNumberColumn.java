@@ -0,0 +1,27 @@
+package com.amigoscode.testing.customer;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+// phone_number is a VARCHAR holding the number as registered, the default entity mapping
+@ConditionalOnProperty(
+        value = "customer.phone-number.encoding",
+        havingValue = "text",
+        matchIfMissing = true
+)
+@Component
+public class TextPhoneNumberColumn implements PhoneNumberColumn {
+
+    @Override
+    public Object toColumn(String phoneNumber) {
+        return phoneNumber;
+    }
+
+    @Override
+    public String fromColumn(ResultSet rs, int columnIndex) throws SQLException {
+        return rs.getString(columnIndex);
+    }
+}
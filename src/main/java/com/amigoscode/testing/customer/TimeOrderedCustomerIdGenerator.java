@@ -0,0 +1,43 @@
+package com.amigoscode.testing.customer;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+// UUID version 7: 48 bits of unix epoch millis, then random bits
+@ConditionalOnProperty(
+        value = "customer.id-generator",
+        havingValue = "time-ordered",
+        matchIfMissing = true
+)
+@Component
+public class TimeOrderedCustomerIdGenerator implements CustomerIdGenerator {
+
+    private static final long VERSION_7 = 0x7000L;
+
+    private static final long VARIANT_IETF = 0x8000000000000000L;
+
+    private final Clock clock;
+
+    public TimeOrderedCustomerIdGenerator() {
+        this(Clock.systemUTC());
+    }
+
+    TimeOrderedCustomerIdGenerator(Clock clock) {
+        this.clock = clock;
+    }
+
+    @Override
+    public UUID generateId() {
+        // ThreadLocalRandom needs no synchronization, unlike the SecureRandom behind UUID.randomUUID
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+
+        long mostSigBits = (clock.millis() << 16) | VERSION_7 | (random.nextInt() & 0x0FFFL);
+        long leastSigBits = (random.nextLong() & 0x3FFFFFFFFFFFFFFFL) | VARIANT_IETF;
+
+        return new UUID(mostSigBits, leastSigBits);
+    }
+}
@@ -0,0 +1,85 @@
+package com.amigoscode.testing.datasource;
+
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Set;
+
+// Writing requests hand the client a cookie, its requests read from the primary until the cookie expires.
+// This hides replication lag from the client that wrote, other clients may still read slightly stale rows.
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+
+    static final String COOKIE_NAME = "primary-until";
+
+    private static final Set<String> SAFE_METHODS = Set.of("GET", "HEAD", "OPTIONS", "TRACE");
+
+    private final Clock clock;
+
+    private final Duration window;
+
+    public ReadYourWritesFilter(Duration window) {
+        this(Clock.systemUTC(), window);
+    }
+
+    ReadYourWritesFilter(Clock clock, Duration window) {
+        this.clock = clock;
+        this.window = window;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        long now = clock.millis();
+        // a cookie further out than one window did not come from here and is ignored
+        long primaryUntil = primaryUntil(request);
+        boolean pinned = primaryUntil > now && primaryUntil <= now + window.toMillis();
+
+        // set before the chain runs, the response may be committed by the time the write is done
+        if (!window.isZero() && !SAFE_METHODS.contains(request.getMethod())) {
+            Cookie cookie = new Cookie(COOKIE_NAME, Long.toString(now + window.toMillis()));
+            cookie.setPath("/");
+            cookie.setHttpOnly(true);
+            cookie.setMaxAge((int) Math.max(1, window.toSeconds()));
+            response.addCookie(cookie);
+            pinned = true;
+        }
+
+        if (!pinned) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        ReplicaRoutingDataSource.pinToPrimary();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            ReplicaRoutingDataSource.unpin();
+        }
+    }
+
+    private static long primaryUntil(HttpServletRequest request) {
+        Cookie[] cookies = request.getCookies();
+        if (cookies == null) {
+            return 0;
+        }
+
+        for (Cookie cookie : cookies) {
+            if (COOKIE_NAME.equals(cookie.getName())) {
+                try {
+                    return Long.parseLong(cookie.getValue());
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,142 @@
+package com.amigoscode.testing.datasource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Sends read-only transactions to the healthy replicas in turn, everything else to the primary.
+// The routing key is only known once the transaction is set up, so this must sit behind a LazyConnectionDataSourceProxy.
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReplicaRoutingDataSource.class);
+
+    static final String PRIMARY = "primary";
+
+    private static final ThreadLocal<Boolean> PINNED_TO_PRIMARY = new ThreadLocal<>();
+
+    private final DataSource primary;
+
+    private final Map<String, DataSource> replicas;
+
+    private final int healthCheckTimeoutSeconds;
+
+    private final Set<String> unhealthyReplicas = new HashSet<>();
+
+    private final AtomicInteger nextReplica = new AtomicInteger();
+
+    private volatile List<String> healthyReplicas;
+
+    public ReplicaRoutingDataSource(DataSource primary, Map<String, DataSource> replicas, int healthCheckTimeoutSeconds) {
+        this.primary = primary;
+        this.replicas = new LinkedHashMap<>(replicas);
+        this.healthCheckTimeoutSeconds = healthCheckTimeoutSeconds;
+        this.healthyReplicas = List.copyOf(this.replicas.keySet());
+
+        Map<Object, Object> targetDataSources = new HashMap<>(replicas);
+        targetDataSources.put(PRIMARY, primary);
+        setTargetDataSources(targetDataSources);
+        setDefaultTargetDataSource(primary);
+        setLenientFallback(false);
+    }
+
+    // reads of the current thread go to the primary until unpinned, used right after a write
+    static void pinToPrimary() {
+        PINNED_TO_PRIMARY.set(Boolean.TRUE);
+    }
+
+    static void unpin() {
+        PINNED_TO_PRIMARY.remove();
+    }
+
+    static boolean isPinnedToPrimary() {
+        return PINNED_TO_PRIMARY.get() != null;
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly() || isPinnedToPrimary()) {
+            return PRIMARY;
+        }
+
+        List<String> candidates = healthyReplicas;
+        if (candidates.isEmpty()) {
+            return PRIMARY;
+        }
+        return candidates.get(Math.floorMod(nextReplica.getAndIncrement(), candidates.size()));
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        Object key = determineCurrentLookupKey();
+        if (PRIMARY.equals(key)) {
+            return primary.getConnection();
+        }
+
+        try {
+            return replicas.get(key).getConnection();
+        } catch (SQLException e) {
+            // failed between two health checks, skip it from now on and read from the primary instead
+            markReplica((String) key, false, e);
+            return primary.getConnection();
+        }
+    }
+
+    public void checkReplicas() {
+        replicas.forEach((key, replica) -> {
+            try (Connection connection = replica.getConnection()) {
+                if (connection.isValid(healthCheckTimeoutSeconds)) {
+                    markReplica(key, true, null);
+                } else {
+                    markReplica(key, false, null);
+                }
+            } catch (SQLException e) {
+                markReplica(key, false, e);
+            }
+        });
+    }
+
+    public void close() throws Exception {
+        for (DataSource replica : replicas.values()) {
+            if (replica instanceof AutoCloseable) {
+                ((AutoCloseable) replica).close();
+            }
+        }
+        if (primary instanceof AutoCloseable) {
+            ((AutoCloseable) primary).close();
+        }
+    }
+
+    List<String> getHealthyReplicas() {
+        return healthyReplicas;
+    }
+
+    private synchronized void markReplica(String key, boolean healthy, SQLException cause) {
+        boolean changed = healthy ? unhealthyReplicas.remove(key) : unhealthyReplicas.add(key);
+        if (!changed) {
+            return;
+        }
+
+        if (healthy) {
+            LOGGER.info("Replica {} is healthy again, routing reads to it", key);
+        } else {
+            LOGGER.warn("Replica {} is unhealthy, routing its reads elsewhere", key, cause);
+        }
+
+        List<String> healthyKeys = new ArrayList<>(replicas.keySet());
+        healthyKeys.removeAll(unhealthyReplicas);
+        healthyReplicas = List.copyOf(healthyKeys);
+    }
+}
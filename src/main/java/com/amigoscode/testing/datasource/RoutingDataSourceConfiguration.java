@@ -0,0 +1,86 @@
+package com.amigoscode.testing.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.annotation.PreDestroy;
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@ConditionalOnProperty(
+        value = "datasource.routing.enable",
+        havingValue = "true"
+)
+@Configuration
+public class RoutingDataSourceConfiguration {
+
+    // not a bean of its own, the data source initializer would pick it up while the proxy is still being created
+    private final ReplicaRoutingDataSource replicaRoutingDataSource;
+
+    @Autowired
+    public RoutingDataSourceConfiguration(DataSourceProperties primaryProperties,
+                                          @Value("${datasource.replica.urls}") List<String> replicaUrls,
+                                          @Value("${datasource.replica.username:sa}") String username,
+                                          @Value("${datasource.replica.password:}") String password,
+                                          @Value("${datasource.replica.maximum-pool-size:10}") int maximumPoolSize,
+                                          @Value("${datasource.replica.health-check-timeout-seconds:1}") int healthCheckTimeoutSeconds) {
+        HikariDataSource primary = primaryProperties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .build();
+        primary.setPoolName("primary");
+
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        for (int i = 0; i < replicaUrls.size(); i++) {
+            HikariDataSource replica = DataSourceBuilder.create()
+                    .type(HikariDataSource.class)
+                    .url(replicaUrls.get(i))
+                    .username(username)
+                    .password(password)
+                    .build();
+            replica.setPoolName("replica-" + i);
+            replica.setMaximumPoolSize(maximumPoolSize);
+            replica.setReadOnly(true);
+            replicas.put(replica.getPoolName(), replica);
+        }
+
+        this.replicaRoutingDataSource = new ReplicaRoutingDataSource(primary, replicas, healthCheckTimeoutSeconds);
+        this.replicaRoutingDataSource.afterPropertiesSet();
+    }
+
+    // JPA and the JDBC templates see this one, it fetches the routed connection on the first statement
+    @Primary
+    @Bean
+    public DataSource dataSource() {
+        return new LazyConnectionDataSourceProxy(replicaRoutingDataSource);
+    }
+
+    @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+    @Bean
+    public ReadYourWritesFilter readYourWritesFilter(
+            @Value("${datasource.routing.read-your-writes-window:PT5S}") Duration window) {
+        return new ReadYourWritesFilter(window);
+    }
+
+    @Scheduled(fixedDelayString = "${datasource.replica.health-check-interval-millis:5000}")
+    public void checkReplicas() {
+        replicaRoutingDataSource.checkReplicas();
+    }
+
+    @PreDestroy
+    public void shutdown() throws Exception {
+        replicaRoutingDataSource.close();
+    }
+}
@@ -1,13 +1,36 @@
 package com.amigoscode.testing.payment;
 
-import java.math.BigDecimal;
+import java.util.concurrent.CompletableFuture;
 
 public interface CardPaymentCharger {
 
     CardPaymentCharge chargeCard(
             String cardSource,
-            BigDecimal amount,
-            Currency currency,
+            Money amount,
             String description
     );
+
+    CompletableFuture<CardPaymentCharge> chargeCardAsync(
+            String cardSource,
+            Money amount,
+            String description
+    );
+
+    default CardPaymentCharge chargeCard(
+            String cardSource,
+            Money amount,
+            String description,
+            String idempotencyKey
+    ) {
+        return chargeCard(cardSource, amount, description);
+    }
+
+    default CompletableFuture<CardPaymentCharge> chargeCardAsync(
+            String cardSource,
+            Money amount,
+            String description,
+            String idempotencyKey
+    ) {
+        return chargeCardAsync(cardSource, amount, description);
+    }
 }
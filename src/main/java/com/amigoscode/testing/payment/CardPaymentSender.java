@@ -2,7 +2,11 @@ package com.amigoscode.testing.payment;
 
 import com.twilio.rest.api.v2010.account.Message;
 
+import java.util.concurrent.CompletableFuture;
+
 public interface CardPaymentSender {
 
     Message.Status sendSms(String phoneNumber, String textMessage);
+
+    CompletableFuture<Message.Status> sendSmsAsync(String phoneNumber, String textMessage);
 }
@@ -3,5 +3,12 @@ package com.amigoscode.testing.payment;
 public enum Currency {
     USD,
     GBP,
-    EUR
+    EUR;
+
+    // digits after the decimal point, 2 for cents and pence
+    private final int fractionDigits = java.util.Currency.getInstance(name()).getDefaultFractionDigits();
+
+    public int getFractionDigits() {
+        return fractionDigits;
+    }
 }
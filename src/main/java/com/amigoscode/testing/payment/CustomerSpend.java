@@ -0,0 +1,82 @@
+package com.amigoscode.testing.payment;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.IdClass;
+import java.util.Objects;
+import java.util.UUID;
+
+// Running count and total of payments per customer and currency, kept up to date with every payment insert
+@Entity
+@IdClass(CustomerSpendId.class)
+public class CustomerSpend {
+
+    @Id
+    private UUID customerId;
+
+    @Id
+    private Currency currency;
+
+    private long paymentCount;
+
+    // minor units of currency, like payment.amount
+    private long totalAmount;
+
+    public CustomerSpend() {
+    }
+
+    public CustomerSpend(UUID customerId, long paymentCount, Money totalAmount) {
+        this.customerId = customerId;
+        this.currency = totalAmount.getCurrency();
+        this.paymentCount = paymentCount;
+        this.totalAmount = totalAmount.getMinorUnits();
+    }
+
+    // JPQL constructor expression over payment rows
+    public CustomerSpend(UUID customerId, Currency currency, Long paymentCount, Long totalAmount) {
+        this(customerId, paymentCount, Money.ofMinor(totalAmount, currency));
+    }
+
+    public UUID getCustomerId() {
+        return customerId;
+    }
+
+    public Currency getCurrency() {
+        return currency;
+    }
+
+    public long getPaymentCount() {
+        return paymentCount;
+    }
+
+    public Money getTotalAmount() {
+        return Money.ofMinor(totalAmount, currency);
+    }
+
+    public CustomerSpendId getId() {
+        return new CustomerSpendId(customerId, currency);
+    }
+
+    @Override
+    public String toString() {
+        return "CustomerSpend{" +
+                "customerId=" + customerId +
+                ", currency=" + currency +
+                ", paymentCount=" + paymentCount +
+                ", totalAmount=" + totalAmount +
+                '}';
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        CustomerSpend that = (CustomerSpend) o;
+        return paymentCount == that.paymentCount && totalAmount == that.totalAmount && Objects.equals(customerId, that.customerId) && currency == that.currency;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(customerId, currency, paymentCount, totalAmount);
+    }
+}
@@ -0,0 +1,38 @@
+package com.amigoscode.testing.payment;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+import java.util.UUID;
+
+@RestController
+@RequestMapping("api/v1/customer-spend")
+public class CustomerSpendController {
+
+    private final CustomerSpendService customerSpendService;
+
+    @Autowired
+    public CustomerSpendController(CustomerSpendService customerSpendService) {
+        this.customerSpendService = customerSpendService;
+    }
+
+    @GetMapping("/{customerId}")
+    public List<CustomerSpend> getCustomerSpend(@PathVariable("customerId") UUID customerId) {
+        return customerSpendService.getCustomerSpend(customerId);
+    }
+
+    @GetMapping("verify")
+    public List<CustomerSpendMismatch> verify() {
+        return customerSpendService.verify();
+    }
+
+    @PostMapping("rebuild")
+    public int rebuild() {
+        return customerSpendService.rebuild();
+    }
+}
@@ -0,0 +1,41 @@
+package com.amigoscode.testing.payment;
+
+import java.io.Serializable;
+import java.util.Objects;
+import java.util.UUID;
+
+public class CustomerSpendId implements Serializable {
+
+    private UUID customerId;
+
+    private Currency currency;
+
+    public CustomerSpendId() {
+    }
+
+    public CustomerSpendId(UUID customerId, Currency currency) {
+        this.customerId = customerId;
+        this.currency = currency;
+    }
+
+    public UUID getCustomerId() {
+        return customerId;
+    }
+
+    public Currency getCurrency() {
+        return currency;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        CustomerSpendId that = (CustomerSpendId) o;
+        return Objects.equals(customerId, that.customerId) && currency == that.currency;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(customerId, currency);
+    }
+}
@@ -0,0 +1,46 @@
+package com.amigoscode.testing.payment;
+
+import java.util.Objects;
+
+public class CustomerSpendMismatch {
+
+    // computed from the payment rows, null when the customer has no payments in that currency
+    private final CustomerSpend expected;
+
+    // stored aggregate, null when it is missing
+    private final CustomerSpend actual;
+
+    public CustomerSpendMismatch(CustomerSpend expected, CustomerSpend actual) {
+        this.expected = expected;
+        this.actual = actual;
+    }
+
+    public CustomerSpend getExpected() {
+        return expected;
+    }
+
+    public CustomerSpend getActual() {
+        return actual;
+    }
+
+    @Override
+    public String toString() {
+        return "CustomerSpendMismatch{" +
+                "expected=" + expected +
+                ", actual=" + actual +
+                '}';
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        CustomerSpendMismatch that = (CustomerSpendMismatch) o;
+        return Objects.equals(expected, that.expected) && Objects.equals(actual, that.actual);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(expected, actual);
+    }
+}
@@ -0,0 +1,48 @@
+package com.amigoscode.testing.payment;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+public interface CustomerSpendRepository extends JpaRepository<CustomerSpend, CustomerSpendId> {
+
+    @Query("SELECT s FROM CustomerSpend s WHERE s.customerId = :customer_id ORDER BY s.currency")
+    List<CustomerSpend> selectCustomerSpend(@Param("customer_id") UUID customerId);
+
+    @Query("SELECT s FROM CustomerSpend s WHERE s.customerId IN (:customer_ids)")
+    List<CustomerSpend> selectCustomerSpends(@Param("customer_ids") Collection<UUID> customerIds);
+
+    @Query("SELECT DISTINCT s.customerId FROM CustomerSpend s")
+    List<UUID> selectCustomerIds();
+
+    // one statement whether or not the row exists, it joins the caller's transaction
+    @Modifying
+    @Query(
+            value = "MERGE INTO customer_spend s " +
+                    "USING DUAL ON (s.customer_id = :customer_id AND s.currency = :currency) " +
+                    "WHEN MATCHED THEN UPDATE SET " +
+                    "s.payment_count = s.payment_count + :payment_count, " +
+                    "s.total_amount = s.total_amount + :amount " +
+                    "WHEN NOT MATCHED THEN INSERT (customer_id, currency, payment_count, total_amount) " +
+                    "VALUES (:customer_id, :currency, :payment_count, :amount)",
+            nativeQuery = true
+    )
+    int addPayments(@Param("customer_id") UUID customerId,
+                    @Param("currency") int currency,
+                    @Param("payment_count") long paymentCount,
+                    @Param("amount") long amount);
+
+    default int addPayments(UUID customerId, long paymentCount, Money amount) {
+        // currency is stored by ordinal and amount in minor units like on payment
+        return addPayments(customerId, amount.getCurrency().ordinal(), paymentCount, amount.getMinorUnits());
+    }
+
+    @Modifying
+    @Query("DELETE FROM CustomerSpend s WHERE s.customerId IN (:customer_ids)")
+    int deleteCustomerSpends(@Param("customer_ids") Collection<UUID> customerIds);
+}
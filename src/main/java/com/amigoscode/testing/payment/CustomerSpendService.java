@@ -0,0 +1,129 @@
+package com.amigoscode.testing.payment;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+@Service
+public class CustomerSpendService {
+
+    private final CustomerSpendRepository customerSpendRepository;
+
+    private final PaymentRepository paymentRepository;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final ExecutorService workers;
+
+    private final int chunkSize;
+
+    @Autowired
+    public CustomerSpendService(CustomerSpendRepository customerSpendRepository,
+                                PaymentRepository paymentRepository,
+                                TransactionTemplate transactionTemplate,
+                                @Value("${payment.spend.rebuild.concurrency:4}") int concurrency,
+                                @Value("${payment.spend.rebuild.chunk-size:500}") int chunkSize) {
+        this.customerSpendRepository = customerSpendRepository;
+        this.paymentRepository = paymentRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.workers = new ThreadPoolExecutor(
+                concurrency, concurrency,
+                0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(),
+                new CustomizableThreadFactory("customer-spend-"));
+        this.chunkSize = chunkSize;
+    }
+
+    public List<CustomerSpend> getCustomerSpend(UUID customerId) {
+        return customerSpendRepository.selectCustomerSpend(customerId);
+    }
+
+    // Compares stored aggregates with the payment rows, customers are checked in parallel chunks
+    public List<CustomerSpendMismatch> verify() {
+        return forEachChunk(this::verifyChunk).stream()
+                .flatMap(List::stream)
+                .collect(Collectors.toList());
+    }
+
+    // Recomputes the aggregates from the payment rows, one transaction per chunk of customers.
+    // Payments inserted while a chunk is rebuilt can be counted twice or not at all, run verify afterwards.
+    public int rebuild() {
+        return forEachChunk(this::rebuildChunk).stream()
+                .mapToInt(Integer::intValue)
+                .sum();
+    }
+
+    private <T> List<T> forEachChunk(Function<List<UUID>, T> task) {
+        // customers with payments and customers with aggregates, to catch aggregates without payments too
+        Set<UUID> customerIds = new LinkedHashSet<>(paymentRepository.selectCustomerIds());
+        customerIds.addAll(customerSpendRepository.selectCustomerIds());
+        List<UUID> ids = new ArrayList<>(customerIds);
+
+        List<CompletableFuture<T>> chunks = new ArrayList<>();
+        for (int from = 0; from < ids.size(); from += chunkSize) {
+            List<UUID> chunk = ids.subList(from, Math.min(from + chunkSize, ids.size()));
+            chunks.add(CompletableFuture.supplyAsync(() -> task.apply(chunk), workers));
+        }
+        return chunks.stream()
+                .map(CompletableFuture::join)
+                .collect(Collectors.toList());
+    }
+
+    private List<CustomerSpendMismatch> verifyChunk(List<UUID> customerIds) {
+        Map<CustomerSpendId, CustomerSpend> expected = paymentRepository.selectCustomerSpends(customerIds).stream()
+                .collect(Collectors.toMap(CustomerSpend::getId, Function.identity()));
+        Map<CustomerSpendId, CustomerSpend> actual = customerSpendRepository.selectCustomerSpends(customerIds).stream()
+                .collect(Collectors.toMap(CustomerSpend::getId, Function.identity()));
+
+        List<CustomerSpendMismatch> mismatches = new ArrayList<>();
+        expected.forEach((id, spend) -> {
+            CustomerSpend stored = actual.get(id);
+            if (stored == null
+                    || stored.getPaymentCount() != spend.getPaymentCount()
+                    || !stored.getTotalAmount().equals(spend.getTotalAmount())) {
+                mismatches.add(new CustomerSpendMismatch(spend, stored));
+            }
+        });
+        actual.forEach((id, stored) -> {
+            if (!expected.containsKey(id)) {
+                mismatches.add(new CustomerSpendMismatch(null, stored));
+            }
+        });
+        return mismatches;
+    }
+
+    private int rebuildChunk(List<UUID> customerIds) {
+        return transactionTemplate.execute(status -> {
+            List<CustomerSpend> expected = paymentRepository.selectCustomerSpends(customerIds);
+            customerSpendRepository.deleteCustomerSpends(customerIds);
+            expected.forEach(spend -> customerSpendRepository.addPayments(
+                    spend.getCustomerId(),
+                    spend.getPaymentCount(),
+                    spend.getTotalAmount()));
+            return customerIds.size();
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        workers.shutdown();
+        workers.awaitTermination(5, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,71 @@
+package com.amigoscode.testing.payment;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+@ConditionalOnProperty(
+        value = "provider.execution.mode",
+        havingValue = "direct",
+        matchIfMissing = true
+)
+@Component
+public class DirectProviderCallExecutor implements ProviderCallExecutor {
+
+    // provider clients block, so async calls get their own threads instead of the common pool.
+    // Both the threads and the waiting calls are bounded, a call beyond them fails instead of piling up.
+    private final ThreadPoolExecutor asyncExecutor;
+
+    @Autowired
+    public DirectProviderCallExecutor(@Value("${provider.direct.max-threads:200}") int maxThreads,
+                                      @Value("${provider.direct.queue-capacity:100}") int queueCapacity) {
+        this.asyncExecutor = new ThreadPoolExecutor(
+                maxThreads, maxThreads,
+                60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                new CustomizableThreadFactory("provider-"),
+                new ThreadPoolExecutor.AbortPolicy());
+        this.asyncExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    @Override
+    public <T> T call(String provider, Supplier<T> call) {
+        return call.get();
+    }
+
+    @Override
+    public <T> CompletableFuture<T> callAsync(String provider, Supplier<T> call) {
+        try {
+            return CompletableFuture.supplyAsync(call, asyncExecutor);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(
+                    new IllegalStateException(String.format("Too many concurrent %s calls", provider), e));
+        }
+    }
+
+    @Override
+    public <T> T callWithoutTimeout(String provider, Supplier<T> call) {
+        return call(provider, call);
+    }
+
+    @Override
+    public <T> CompletableFuture<T> callAsyncWithoutTimeout(String provider, Supplier<T> call) {
+        return callAsync(provider, call);
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        asyncExecutor.shutdown();
+        asyncExecutor.awaitTermination(5, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,250 @@
+package com.amigoscode.testing.payment;
+
+import com.amigoscode.testing.payment.PaymentIdempotencyKey.Status;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.util.DigestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+@Service
+public class IdempotentPaymentService {
+
+    private final PaymentService paymentService;
+
+    private final PaymentIdempotencyKeyRepository paymentIdempotencyKeyRepository;
+
+    // in flight and recently completed payments by idempotency key, saves the database round trips on this instance
+    private final Cache<String, IdempotentPayment> payments;
+
+    private final long waitTimeoutMillis;
+
+    private final Duration pendingTimeout;
+
+    private final Clock clock;
+
+    @Autowired
+    public IdempotentPaymentService(PaymentService paymentService,
+                                    PaymentIdempotencyKeyRepository paymentIdempotencyKeyRepository,
+                                    @Value("${payment.idempotency.ttl:PT24H}") Duration ttl,
+                                    @Value("${payment.idempotency.maximum-size:100000}") long maximumSize,
+                                    @Value("${payment.idempotency.wait-timeout-millis:30000}") long waitTimeoutMillis,
+                                    @Value("${payment.idempotency.pending-timeout:PT5M}") Duration pendingTimeout) {
+        this(paymentService, paymentIdempotencyKeyRepository, ttl, maximumSize, waitTimeoutMillis, pendingTimeout,
+                Clock.systemUTC());
+    }
+
+    IdempotentPaymentService(PaymentService paymentService,
+                             PaymentIdempotencyKeyRepository paymentIdempotencyKeyRepository,
+                             Duration ttl,
+                             long maximumSize,
+                             long waitTimeoutMillis,
+                             Duration pendingTimeout,
+                             Clock clock) {
+        this.paymentService = paymentService;
+        this.paymentIdempotencyKeyRepository = paymentIdempotencyKeyRepository;
+        this.payments = Caffeine.newBuilder()
+                .expireAfterWrite(ttl)
+                .maximumSize(maximumSize)
+                .build();
+        this.waitTimeoutMillis = waitTimeoutMillis;
+        this.pendingTimeout = pendingTimeout;
+        this.clock = clock;
+    }
+
+    public Long chargeCard(String idempotencyKey, UUID customerId, PaymentRequest request) {
+        if (idempotencyKey == null) {
+            return paymentService.chargeCard(customerId, request);
+        }
+
+        // 1. Same key in flight or recently completed on this instance, wait for its outcome
+        String requestHash = requestHash(customerId, request);
+        IdempotentPayment payment = new IdempotentPayment(requestHash);
+        IdempotentPayment previousPayment = payments.asMap().putIfAbsent(idempotencyKey, payment);
+
+        if (previousPayment != null) {
+            checkSameRequest(idempotencyKey, previousPayment.requestHash, requestHash);
+            return awaitPayment(idempotencyKey, previousPayment.paymentId);
+        }
+
+        try {
+            // 2. Reserve the key, or replay the payment another instance or an earlier request stored with it
+            // 3. Charge card only while holding the reservation, the payment completes the key
+            Long paymentId = reserve(idempotencyKey, requestHash)
+                    .orElseGet(() -> chargeReserved(idempotencyKey, customerId, request));
+
+            payment.paymentId.complete(paymentId);
+            return paymentId;
+        } catch (RuntimeException e) {
+            // failed payments are not replayed, the client may retry them
+            payments.asMap().remove(idempotencyKey, payment);
+            payment.paymentId.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    public CompletableFuture<Long> chargeCardAsync(String idempotencyKey, UUID customerId, PaymentRequest request) {
+        if (idempotencyKey == null) {
+            return paymentService.chargeCardAsync(customerId, request, null);
+        }
+
+        // 1. Same key in flight or recently completed on this instance, complete with its outcome
+        String requestHash = requestHash(customerId, request);
+        IdempotentPayment payment = new IdempotentPayment(requestHash);
+        IdempotentPayment previousPayment = payments.asMap().putIfAbsent(idempotencyKey, payment);
+
+        if (previousPayment != null) {
+            try {
+                checkSameRequest(idempotencyKey, previousPayment.requestHash, requestHash);
+            } catch (IllegalStateException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+            return previousPayment.paymentId.copy();
+        }
+
+        // 2. Reserve the key, or replay the payment another instance or an earlier request stored with it
+        // 3. Charge card only while holding the reservation, the payment completes the key
+        CompletableFuture<Long> attempt;
+        try {
+            attempt = reserve(idempotencyKey, requestHash)
+                    .map(CompletableFuture::completedFuture)
+                    .orElseGet(() -> chargeReservedAsync(idempotencyKey, customerId, request));
+        } catch (RuntimeException e) {
+            attempt = CompletableFuture.failedFuture(e);
+        }
+
+        attempt.whenComplete((paymentId, e) -> {
+            if (e == null) {
+                payment.paymentId.complete(paymentId);
+            } else {
+                // failed payments are not replayed, the client may retry them
+                payments.asMap().remove(idempotencyKey, payment);
+                payment.paymentId.completeExceptionally(e instanceof CompletionException ? e.getCause() : e);
+            }
+        });
+        return payment.paymentId.copy();
+    }
+
+    // empty when this request holds the key and must charge, else the payment id to replay
+    private Optional<Long> reserve(String idempotencyKey, String requestHash) {
+        Instant now = clock.instant();
+        try {
+            paymentIdempotencyKeyRepository.reserve(idempotencyKey, requestHash, now);
+            return Optional.empty();
+        } catch (DataIntegrityViolationException e) {
+            // the key exists, it is either completed or still being charged
+        }
+
+        PaymentIdempotencyKey key = paymentIdempotencyKeyRepository.findById(idempotencyKey)
+                .orElseThrow(() -> new IllegalStateException(
+                        String.format("Payment with idempotency key [%s] is still in progress", idempotencyKey)));
+
+        checkSameRequest(idempotencyKey, key.getRequestHash(), requestHash);
+
+        if (key.getStatus() == Status.COMPLETED) {
+            return Optional.of(key.getPaymentId());
+        }
+
+        // the provider answers the same idempotency key with the same charge, so an abandoned key is charged again
+        if (paymentIdempotencyKeyRepository.takeOver(idempotencyKey, now.minus(pendingTimeout), now) == 1) {
+            return Optional.empty();
+        }
+
+        throw new IllegalStateException(
+                String.format("Payment with idempotency key [%s] is still in progress", idempotencyKey));
+    }
+
+    private Long chargeReserved(String idempotencyKey, UUID customerId, PaymentRequest request) {
+        try {
+            return paymentService.chargeCard(customerId, request, idempotencyKey);
+        } catch (RuntimeException e) {
+            release(idempotencyKey, e);
+            throw e;
+        }
+    }
+
+    private CompletableFuture<Long> chargeReservedAsync(String idempotencyKey, UUID customerId, PaymentRequest request) {
+        CompletableFuture<Long> charge;
+        try {
+            charge = paymentService.chargeCardAsync(customerId, request, idempotencyKey);
+        } catch (RuntimeException e) {
+            charge = CompletableFuture.failedFuture(e);
+        }
+        return charge
+                .whenComplete((paymentId, e) -> {
+                    if (e != null) {
+                        release(idempotencyKey, e);
+                    }
+                });
+    }
+
+    // a retry with the same key reaches the provider with the same key again, which answers it with the same outcome
+    private void release(String idempotencyKey, Throwable failure) {
+        try {
+            paymentIdempotencyKeyRepository.release(idempotencyKey);
+        } catch (RuntimeException e) {
+            // the key is taken over once it is reserved for longer than the pending timeout
+            failure.addSuppressed(e);
+        }
+    }
+
+    private static void checkSameRequest(String idempotencyKey, String expectedRequestHash, String requestHash) {
+        if (!expectedRequestHash.equals(requestHash)) {
+            throw new IllegalStateException(
+                    String.format("Idempotency key [%s] was already used with a different request", idempotencyKey));
+        }
+    }
+
+    // null safe, a request missing fields is rejected by the payment service like one without a key
+    static String requestHash(UUID customerId, PaymentRequest request) {
+        Payment payment = request.getPayment() != null ? request.getPayment() : new Payment();
+        Money amount = payment.getAmount();
+        String fields = customerId
+                + "|" + (amount != null ? amount.getMinorUnits() : null)
+                + "|" + payment.getCurrency()
+                + "|" + payment.getSource()
+                + "|" + payment.getDescription();
+        return DigestUtils.md5DigestAsHex(fields.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private Long awaitPayment(String idempotencyKey, CompletableFuture<Long> payment) {
+        try {
+            return payment.get(waitTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(String.format("Payment with idempotency key [%s] failed", idempotencyKey), e);
+        } catch (TimeoutException e) {
+            throw new IllegalStateException(String.format("Payment with idempotency key [%s] is still in progress", idempotencyKey), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(String.format("Payment with idempotency key [%s] is still in progress", idempotencyKey), e);
+        }
+    }
+
+    private static final class IdempotentPayment {
+
+        private final String requestHash;
+
+        private final CompletableFuture<Long> paymentId = new CompletableFuture<>();
+
+        private IdempotentPayment(String requestHash) {
+            this.requestHash = requestHash;
+        }
+    }
+}
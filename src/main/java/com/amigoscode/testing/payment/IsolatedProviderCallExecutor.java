@@ -0,0 +1,205 @@
+package com.amigoscode.testing.payment;
+
+import com.amigoscode.testing.utils.VirtualThreads;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+@ConditionalOnProperty(
+        value = "provider.execution.mode",
+        havingValue = "isolated"
+)
+@Component
+public class IsolatedProviderCallExecutor implements ProviderCallExecutor {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(IsolatedProviderCallExecutor.class);
+
+    // one bulkhead per provider, a slow provider holds its own permits and threads and never the other's
+    private final Map<String, Bulkhead> bulkheads = new ConcurrentHashMap<>();
+
+    private final MeterRegistry meterRegistry;
+
+    private final long timeoutMillis;
+
+    private final int maxConcurrentCalls;
+
+    @Autowired
+    public IsolatedProviderCallExecutor(MeterRegistry meterRegistry,
+                                        @Value("${provider.execution.timeout-millis:5000}") long timeoutMillis,
+                                        @Value("${provider.execution.max-concurrent-calls:50}") int maxConcurrentCalls) {
+        this.meterRegistry = meterRegistry;
+        this.timeoutMillis = timeoutMillis;
+        this.maxConcurrentCalls = maxConcurrentCalls;
+    }
+
+    @Override
+    public <T> T call(String provider, Supplier<T> call) {
+        return join(provider, callAsync(provider, call));
+    }
+
+    @Override
+    public <T> CompletableFuture<T> callAsync(String provider, Supplier<T> call) {
+        return bulkhead(provider).submit(call, true);
+    }
+
+    @Override
+    public <T> T callWithoutTimeout(String provider, Supplier<T> call) {
+        return join(provider, callAsyncWithoutTimeout(provider, call));
+    }
+
+    @Override
+    public <T> CompletableFuture<T> callAsyncWithoutTimeout(String provider, Supplier<T> call) {
+        return bulkhead(provider).submit(call, false);
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        for (Bulkhead bulkhead : bulkheads.values()) {
+            bulkhead.executor.shutdown();
+        }
+        for (Bulkhead bulkhead : bulkheads.values()) {
+            bulkhead.executor.awaitTermination(5, TimeUnit.SECONDS);
+        }
+    }
+
+    private Bulkhead bulkhead(String provider) {
+        return bulkheads.computeIfAbsent(provider, Bulkhead::new);
+    }
+
+    private static <T> T join(String provider, CompletableFuture<T> result) {
+        try {
+            return result.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw new IllegalStateException(String.format("%s call failed", provider), e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(String.format("%s call interrupted", provider), e);
+        }
+    }
+
+    private final class Bulkhead {
+
+        private final String provider;
+
+        private final ExecutorService executor;
+
+        // a slow provider can hold at most this many calls and the rest fail fast
+        private final Semaphore permits;
+
+        private final Counter timeoutCounter;
+
+        private final Counter rejectedCounter;
+
+        private Bulkhead(String provider) {
+            this.provider = provider;
+            this.executor = VirtualThreads.newVirtualThreadPerTaskExecutor()
+                    .orElseGet(() -> {
+                        LOGGER.info("Virtual threads are not available, {} calls run on a bulkhead pool of {} threads",
+                                provider, maxConcurrentCalls);
+                        // the permits bound the work, the queue only absorbs a thread that is about to become idle
+                        ThreadPoolExecutor pool = new ThreadPoolExecutor(
+                                maxConcurrentCalls, maxConcurrentCalls,
+                                60L, TimeUnit.SECONDS,
+                                new LinkedBlockingQueue<>(),
+                                new CustomizableThreadFactory(provider + "-"));
+                        pool.allowCoreThreadTimeOut(true);
+                        return pool;
+                    });
+            this.permits = new Semaphore(maxConcurrentCalls);
+
+            Gauge.builder("payment.provider.calls.active", permits, p -> maxConcurrentCalls - p.availablePermits())
+                    .description("Provider calls holding a bulkhead permit")
+                    .tag("provider", provider)
+                    .register(meterRegistry);
+            this.timeoutCounter = Counter.builder("payment.provider.calls.failed")
+                    .description("Provider calls that did not complete")
+                    .tag("provider", provider)
+                    .tag("reason", "timeout")
+                    .register(meterRegistry);
+            this.rejectedCounter = Counter.builder("payment.provider.calls.failed")
+                    .description("Provider calls that did not complete")
+                    .tag("provider", provider)
+                    .tag("reason", "rejected")
+                    .register(meterRegistry);
+        }
+
+        private <T> CompletableFuture<T> submit(Supplier<T> call, boolean timeout) {
+            if (!permits.tryAcquire()) {
+                rejectedCounter.increment();
+                return CompletableFuture.failedFuture(
+                        new IllegalStateException(String.format("Too many concurrent %s calls", provider)));
+            }
+
+            CompletableFuture<T> result = new CompletableFuture<>();
+            Future<?> task;
+            try {
+                // the permit is released when the call ends, not when the caller gives up on it
+                task = executor.submit(() -> {
+                    try {
+                        result.complete(call.get());
+                    } catch (Throwable e) {
+                        result.completeExceptionally(e);
+                    } finally {
+                        permits.release();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                permits.release();
+                rejectedCounter.increment();
+                return CompletableFuture.failedFuture(
+                        new IllegalStateException(String.format("Too many concurrent %s calls", provider), e));
+            }
+
+            if (!timeout) {
+                return result;
+            }
+
+            return result.orTimeout(timeoutMillis, TimeUnit.MILLISECONDS).handle((value, e) -> {
+                if (e == null) {
+                    return value;
+                }
+                if (e instanceof TimeoutException) {
+                    // only calls that can be repeated get here, a retry with the same idempotency key
+                    // gets the outcome of this one if the provider completes it after all
+                    task.cancel(true);
+                    timeoutCounter.increment();
+                    throw new IllegalStateException(
+                            String.format("%s call timed out after %d ms", provider, timeoutMillis), e);
+                }
+                if (e instanceof RuntimeException) {
+                    throw (RuntimeException) e;
+                }
+                throw new CompletionException(e);
+            });
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.amigoscode.testing.payment;
+
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+import java.util.Objects;
+
+// Amount as a count of the currency's minor units, 10.50 USD is 1050 cents.
+// Parsed and printed digit by digit, so no BigDecimal is allocated on the payment path.
+@JsonSerialize(using = MoneySerializer.class)
+public final class Money {
+
+    private static final long[] POWERS_OF_TEN = {1L, 10L, 100L, 1_000L, 10_000L};
+
+    private final long minorUnits;
+
+    private final Currency currency;
+
+    private Money(long minorUnits, Currency currency) {
+        this.minorUnits = minorUnits;
+        this.currency = Objects.requireNonNull(currency, "currency");
+    }
+
+    public static Money ofMinor(long minorUnits, Currency currency) {
+        return new Money(minorUnits, currency);
+    }
+
+    // "10", "10.5" and "10.50" are all 1050 cents, more fraction digits than the currency has are rejected
+    public static Money parse(String amount, Currency currency) {
+        int fractionDigits = currency.getFractionDigits();
+        int length = amount.length();
+        int i = 0;
+        boolean negative = false;
+        if (length > 0 && (amount.charAt(0) == '-' || amount.charAt(0) == '+')) {
+            negative = amount.charAt(0) == '-';
+            i++;
+        }
+
+        long units = 0;
+        int digits = 0;
+        int scale = -1;
+        for (; i < length; i++) {
+            char c = amount.charAt(i);
+            if (c == '.' && scale < 0) {
+                scale = 0;
+                continue;
+            }
+            if (c < '0' || c > '9') {
+                throw new IllegalArgumentException(String.format("amount [%s] is not a decimal number", amount));
+            }
+            if (scale >= 0 && ++scale > fractionDigits) {
+                throw new IllegalArgumentException(String.format(
+                        "amount [%s] has more than %d fraction digits for %s", amount, fractionDigits, currency));
+            }
+            units = Math.addExact(Math.multiplyExact(units, 10), c - '0');
+            digits++;
+        }
+        if (digits == 0) {
+            throw new IllegalArgumentException(String.format("amount [%s] is not a decimal number", amount));
+        }
+
+        long minorUnits = Math.multiplyExact(units, POWERS_OF_TEN[fractionDigits - Math.max(scale, 0)]);
+        return new Money(negative ? -minorUnits : minorUnits, currency);
+    }
+
+    public long getMinorUnits() {
+        return minorUnits;
+    }
+
+    public Currency getCurrency() {
+        return currency;
+    }
+
+    public Money plus(Money other) {
+        if (currency != other.currency) {
+            throw new IllegalStateException(String.format("cannot add %s to %s", other.currency, currency));
+        }
+        return new Money(Math.addExact(minorUnits, other.minorUnits), currency);
+    }
+
+    // 1050 cents is "10.50"
+    public String toDecimalString() {
+        int fractionDigits = currency.getFractionDigits();
+        if (fractionDigits == 0) {
+            return Long.toString(minorUnits);
+        }
+
+        long divisor = POWERS_OF_TEN[fractionDigits];
+        long major = Math.abs(minorUnits / divisor);
+        long minor = Math.abs(minorUnits % divisor);
+
+        StringBuilder decimal = new StringBuilder(20);
+        if (minorUnits < 0) {
+            decimal.append('-');
+        }
+        decimal.append(major).append('.');
+        for (long power = divisor / 10; power > minor && power > 1; power /= 10) {
+            decimal.append('0');
+        }
+        return decimal.append(minor).toString();
+    }
+
+    @Override
+    public String toString() {
+        return toDecimalString() + " " + currency;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        Money money = (Money) o;
+        return minorUnits == money.minorUnits && currency == money.currency;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(minorUnits, currency);
+    }
+}
@@ -0,0 +1,20 @@
+package com.amigoscode.testing.payment;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+
+// Writes the amount as a plain JSON number, 10.50, the currency is a sibling field of the owner
+public class MoneySerializer extends StdSerializer<Money> {
+
+    public MoneySerializer() {
+        super(Money.class);
+    }
+
+    @Override
+    public void serialize(Money money, JsonGenerator generator, SerializerProvider provider) throws IOException {
+        generator.writeNumber(money.toDecimalString());
+    }
+}
@@ -1,22 +1,40 @@
 package com.amigoscode.testing.payment;
 
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.Id;
-import java.math.BigDecimal;
+import javax.persistence.Index;
+import javax.persistence.Table;
 import java.util.Objects;
 import java.util.UUID;
 
 @Entity
+@Table(indexes = @Index(name = "payment_customer_idx", columnList = "customerId, paymentId"))
 public class Payment {
 
+    // one sequence call per 50 payments, so inserts can be batched, or snowflake ids with payment.id-generator
     @Id
-    @GeneratedValue
+    @GeneratedValue(generator = "payment_sequence")
+    @GenericGenerator(
+            name = "payment_sequence",
+            strategy = "com.amigoscode.testing.payment.PaymentIdGenerator",
+            parameters = {
+                    @Parameter(name = SequenceStyleGenerator.SEQUENCE_PARAM, value = "payment_sequence"),
+                    @Parameter(name = SequenceStyleGenerator.INCREMENT_PARAM, value = "50")
+            }
+    )
     private Long paymentId;
 
     private UUID customerId;
 
-    private BigDecimal amount;
+    // minor units of currency, a converter cannot map Money because its scale lives in the currency column
+    private Long amount;
 
     private Currency currency;
 
@@ -27,10 +45,26 @@ public class Payment {
     public Payment() {
     }
 
-    public Payment(Long paymentId, UUID customerId, BigDecimal amount, Currency currency, String source, String description) {
+    public Payment(Long paymentId, UUID customerId, Money amount, String source, String description) {
+        this.paymentId = paymentId;
+        this.customerId = customerId;
+        this.amount = amount.getMinorUnits();
+        this.currency = amount.getCurrency();
+        this.source = source;
+        this.description = description;
+    }
+
+    // the JSON amount is a decimal number next to its currency, 10.50 and "USD", read as text to skip BigDecimal
+    @JsonCreator
+    public Payment(@JsonProperty("paymentId") Long paymentId,
+                   @JsonProperty("customerId") UUID customerId,
+                   @JsonProperty("amount") String amount,
+                   @JsonProperty("currency") Currency currency,
+                   @JsonProperty("source") String source,
+                   @JsonProperty("description") String description) {
         this.paymentId = paymentId;
         this.customerId = customerId;
-        this.amount = amount;
+        this.amount = amount == null || currency == null ? null : Money.parse(amount, currency).getMinorUnits();
         this.currency = currency;
         this.source = source;
         this.description = description;
@@ -52,22 +86,19 @@ public class Payment {
         this.customerId = customerId;
     }
 
-    public BigDecimal getAmount() {
-        return amount;
+    public Money getAmount() {
+        return amount == null || currency == null ? null : Money.ofMinor(amount, currency);
     }
 
-    public void setAmount(BigDecimal amount) {
-        this.amount = amount;
+    public void setAmount(Money amount) {
+        this.amount = amount.getMinorUnits();
+        this.currency = amount.getCurrency();
     }
 
     public Currency getCurrency() {
         return currency;
     }
 
-    public void setCurrency(Currency currency) {
-        this.currency = currency;
-    }
-
     public String getSource() {
         return source;
     }
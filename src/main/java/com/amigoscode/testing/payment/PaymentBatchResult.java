@@ -0,0 +1,68 @@
+package com.amigoscode.testing.payment;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.UUID;
+
+public class PaymentBatchResult {
+
+    public enum Status {
+        CHARGED,
+        INVALID,
+        NOT_DEBITED,
+        FAILED
+    }
+
+    private final int index;
+
+    private final UUID customerId;
+
+    private final Long paymentId;
+
+    private final Status status;
+
+    private final String message;
+
+    public PaymentBatchResult(@JsonProperty("index") int index,
+                              @JsonProperty("customerId") UUID customerId,
+                              @JsonProperty("paymentId") Long paymentId,
+                              @JsonProperty("status") Status status,
+                              @JsonProperty("message") String message) {
+        this.index = index;
+        this.customerId = customerId;
+        this.paymentId = paymentId;
+        this.status = status;
+        this.message = message;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public UUID getCustomerId() {
+        return customerId;
+    }
+
+    public Long getPaymentId() {
+        return paymentId;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    @Override
+    public String toString() {
+        return "PaymentBatchResult{" +
+                "index=" + index +
+                ", customerId=" + customerId +
+                ", paymentId=" + paymentId +
+                ", status=" + status +
+                ", message='" + message + '\'' +
+                '}';
+    }
+}
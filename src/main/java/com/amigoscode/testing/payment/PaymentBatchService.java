@@ -0,0 +1,219 @@
+package com.amigoscode.testing.payment;
+
+import com.amigoscode.testing.customer.CustomerContact;
+import com.amigoscode.testing.customer.CustomerRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static com.amigoscode.testing.payment.PaymentService.ACCEPTED_CURRENCIES;
+import static com.amigoscode.testing.payment.PaymentService.PAYMENT_NOTIFICATION;
+
+@Service
+public class PaymentBatchService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PaymentBatchService.class);
+
+    private final CardPaymentCharger cardPaymentCharger;
+
+    private final CustomerRepository customerRepository;
+
+    private final PaymentRepository paymentRepository;
+
+    private final PaymentNotificationRepository paymentNotificationRepository;
+
+    private final CustomerSpendRepository customerSpendRepository;
+
+    private final TransactionTemplate transactionTemplate;
+
+    // shared by all batches, so the provider never sees more than this many charges at once
+    private final ExecutorService chargers;
+
+    private final int chunkSize;
+
+    @Autowired
+    public PaymentBatchService(CardPaymentCharger cardPaymentCharger,
+                               CustomerRepository customerRepository,
+                               PaymentRepository paymentRepository,
+                               PaymentNotificationRepository paymentNotificationRepository,
+                               CustomerSpendRepository customerSpendRepository,
+                               TransactionTemplate transactionTemplate,
+                               @Value("${payment.batch.concurrency:8}") int concurrency,
+                               @Value("${payment.batch.chunk-size:100}") int chunkSize) {
+        this.cardPaymentCharger = cardPaymentCharger;
+        this.customerRepository = customerRepository;
+        this.paymentRepository = paymentRepository;
+        this.paymentNotificationRepository = paymentNotificationRepository;
+        this.customerSpendRepository = customerSpendRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.chargers = new ThreadPoolExecutor(
+                concurrency, concurrency,
+                0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(),
+                new CustomizableThreadFactory("payment-charge-"));
+        this.chunkSize = chunkSize;
+    }
+
+    public List<PaymentBatchResult> chargeCards(List<PaymentRequest> requests) {
+        return chargeCards(null, requests);
+    }
+
+    // With a batch idempotency key every item is charged with that key and its index, so the provider answers a
+    // retried batch with the charges it already made. Without one each item still gets its own key for the retries
+    // of a single charge, a retried batch is then charged again.
+    public List<PaymentBatchResult> chargeCards(String idempotencyKey, List<PaymentRequest> requests) {
+        PaymentBatchResult[] results = new PaymentBatchResult[requests.size()];
+
+        // 1. Look up every customer of the batch at once
+        Set<UUID> customerIds = requests.stream()
+                .map(request -> request.getPayment().getCustomerId())
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        Map<UUID, CustomerContact> customers = customerIds.isEmpty()
+                ? Map.of()
+                : customerRepository.selectContactsByIds(customerIds).stream()
+                .collect(Collectors.toMap(CustomerContact::getId, Function.identity()));
+
+        // 2. Reject unknown customers and unsupported currencies without charging
+        List<Integer> valid = new ArrayList<>(requests.size());
+        Set<Currency> acceptedCurrencies = new HashSet<>(ACCEPTED_CURRENCIES);
+        for (int i = 0; i < requests.size(); i++) {
+            Payment payment = requests.get(i).getPayment();
+            if (!customers.containsKey(payment.getCustomerId())) {
+                results[i] = new PaymentBatchResult(i, payment.getCustomerId(), null, PaymentBatchResult.Status.INVALID,
+                        String.format("Customer with id [%s] not found", payment.getCustomerId()));
+            } else if (!acceptedCurrencies.contains(payment.getCurrency())) {
+                results[i] = new PaymentBatchResult(i, payment.getCustomerId(), null, PaymentBatchResult.Status.INVALID,
+                        String.format("currency [%s] not support", payment.getCurrency()));
+            } else {
+                valid.add(i);
+            }
+        }
+
+        // 3. Charge and persist chunk by chunk, so a failure never loses more than one chunk of charges
+        for (int from = 0; from < valid.size(); from += chunkSize) {
+            List<Integer> chunk = valid.subList(from, Math.min(from + chunkSize, valid.size()));
+            chargeChunk(idempotencyKey, requests, customers, chunk, results);
+        }
+
+        return Arrays.asList(results);
+    }
+
+    private void chargeChunk(String idempotencyKey,
+                             List<PaymentRequest> requests,
+                             Map<UUID, CustomerContact> customers,
+                             List<Integer> chunk,
+                             PaymentBatchResult[] results) {
+        List<CompletableFuture<CardPaymentCharge>> charges = new ArrayList<>(chunk.size());
+        for (int i : chunk) {
+            Payment payment = requests.get(i).getPayment();
+            String itemIdempotencyKey = idempotencyKey == null
+                    ? UUID.randomUUID().toString()
+                    : idempotencyKey + "-" + i;
+            charges.add(CompletableFuture.supplyAsync(() -> cardPaymentCharger.chargeCard(
+                    payment.getSource(),
+                    payment.getAmount(),
+                    payment.getDescription(),
+                    itemIdempotencyKey
+            ), chargers));
+        }
+
+        List<Integer> debited = new ArrayList<>(chunk.size());
+        for (int c = 0; c < chunk.size(); c++) {
+            int i = chunk.get(c);
+            Payment payment = requests.get(i).getPayment();
+            try {
+                if (charges.get(c).join().isCardDebited()) {
+                    debited.add(i);
+                } else {
+                    results[i] = new PaymentBatchResult(i, payment.getCustomerId(), null, PaymentBatchResult.Status.NOT_DEBITED,
+                            String.format("Card not debited for customer %s", payment.getCustomerId()));
+                }
+            } catch (RuntimeException e) {
+                LOGGER.warn("Charge for customer {} failed", payment.getCustomerId(), e);
+                Throwable cause = e.getCause() != null ? e.getCause() : e;
+                results[i] = new PaymentBatchResult(i, payment.getCustomerId(), null, PaymentBatchResult.Status.FAILED,
+                        cause.getMessage());
+            }
+        }
+
+        if (debited.isEmpty()) {
+            return;
+        }
+
+        // 4. Insert the debited payments, their sms notifications and spend aggregates in one transaction
+        List<Payment> payments = debited.stream()
+                .map(i -> requests.get(i).getPayment())
+                .collect(Collectors.toList());
+        List<Payment> saved;
+        try {
+            saved = transactionTemplate.execute(status -> {
+                List<Payment> savedPayments = paymentRepository.saveAll(payments);
+                Instant now = Instant.now();
+                paymentNotificationRepository.saveAll(savedPayments.stream()
+                        .map(payment -> new PaymentNotification(
+                                payment.getPaymentId(),
+                                customers.get(payment.getCustomerId()).getPhoneNumber(),
+                                PAYMENT_NOTIFICATION,
+                                now))
+                        .collect(Collectors.toList()));
+                // one aggregate update per customer and currency of the chunk
+                savedPayments.stream()
+                        .collect(Collectors.groupingBy(
+                                payment -> new CustomerSpendId(payment.getCustomerId(), payment.getCurrency()),
+                                Collectors.toList()))
+                        .forEach((id, customerPayments) -> customerSpendRepository.addPayments(
+                                id.getCustomerId(),
+                                customerPayments.size(),
+                                customerPayments.stream().map(Payment::getAmount).reduce(Money::plus).orElseThrow()));
+                return savedPayments;
+            });
+        } catch (RuntimeException e) {
+            // the cards are debited already, report them instead of losing the results of the earlier chunks
+            LOGGER.error("Charged payments of customers {} could not be recorded", debited.stream()
+                    .map(i -> requests.get(i).getPayment().getCustomerId())
+                    .collect(Collectors.toList()), e);
+            for (int i : debited) {
+                results[i] = new PaymentBatchResult(i, requests.get(i).getPayment().getCustomerId(), null,
+                        PaymentBatchResult.Status.FAILED,
+                        String.format("Card charged but payment not recorded: %s", e.getMessage()));
+            }
+            return;
+        }
+
+        for (int d = 0; d < debited.size(); d++) {
+            int i = debited.get(d);
+            Payment payment = saved.get(d);
+            results[i] = new PaymentBatchResult(i, payment.getCustomerId(), payment.getPaymentId(),
+                    PaymentBatchResult.Status.CHARGED, null);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        chargers.shutdown();
+        chargers.awaitTermination(5, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,51 @@
+package com.amigoscode.testing.payment;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Optional;
+
+@Component
+public class PaymentCache {
+
+    private final PaymentRepository paymentRepository;
+
+    // payments are never updated once written, so entries only leave by size
+    private final Cache<Long, Payment> cache;
+
+    @Autowired
+    public PaymentCache(PaymentRepository paymentRepository,
+                        MeterRegistry meterRegistry,
+                        @Value("${payment.cache.enable:true}") boolean enabled,
+                        @Value("${payment.cache.maximum-size:10000}") long maximumSize) {
+        this.paymentRepository = paymentRepository;
+
+        if (enabled) {
+            this.cache = Caffeine.newBuilder()
+                    .maximumSize(maximumSize)
+                    .recordStats()
+                    .build();
+            CaffeineCacheMetrics.monitor(meterRegistry, cache, "payment");
+        } else {
+            this.cache = null;
+        }
+    }
+
+    public Optional<Payment> getPayment(Long paymentId) {
+        if (paymentId == null) {
+            return Optional.empty();
+        }
+
+        if (cache == null) {
+            return paymentRepository.findById(paymentId);
+        }
+
+        // unknown ids are not cached, a pooled sequence may hand them out later
+        return Optional.ofNullable(cache.get(paymentId, id -> paymentRepository.findById(id).orElse(null)));
+    }
+}
@@ -0,0 +1,39 @@
+package com.amigoscode.testing.payment;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+@Component
+public class PaymentCacheControl {
+
+    private final CacheControl cacheControl;
+
+    @Autowired
+    public PaymentCacheControl(@Value("${payment.http.cache.max-age:PT60S}") Duration maxAge,
+                               @Value("${payment.http.cache.shared:false}") boolean shared) {
+        // payments carry the card source, shared caches only store them when explicitly allowed
+        CacheControl cacheControl = CacheControl.maxAge(maxAge).mustRevalidate();
+        this.cacheControl = shared ? cacheControl.cachePublic() : cacheControl.cachePrivate();
+    }
+
+    public CacheControl getCacheControl() {
+        return cacheControl;
+    }
+
+    // strong validator over every serialized field, a payment never changes once written
+    public String eTag(Payment payment) {
+        String fields = payment.getPaymentId()
+                + "|" + payment.getCustomerId()
+                + "|" + payment.getAmount().getMinorUnits()
+                + "|" + payment.getCurrency()
+                + "|" + payment.getSource()
+                + "|" + payment.getDescription();
+        return "\"" + DigestUtils.md5DigestAsHex(fields.getBytes(StandardCharsets.UTF_8)) + "\"";
+    }
+}
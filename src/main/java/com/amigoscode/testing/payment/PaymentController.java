@@ -1,29 +1,92 @@
 package com.amigoscode.testing.payment;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
+// served by the router functions under the reactive profile
+@Profile("!reactive")
 @RestController
 @RequestMapping("api/v1/payment")
 public class PaymentController {
 
     private final PaymentService paymentService;
 
+    private final IdempotentPaymentService idempotentPaymentService;
+
+    private final PaymentBatchService paymentBatchService;
+
+    private final PaymentHistoryService paymentHistoryService;
+
+    private final PaymentCacheControl paymentCacheControl;
+
+    private final boolean async;
+
     @Autowired
-    public PaymentController(PaymentService paymentService) {
+    public PaymentController(PaymentService paymentService,
+                             IdempotentPaymentService idempotentPaymentService,
+                             PaymentBatchService paymentBatchService,
+                             PaymentHistoryService paymentHistoryService,
+                             PaymentCacheControl paymentCacheControl,
+                             @Value("${payment.async.enable:false}") boolean async) {
         this.paymentService = paymentService;
+        this.idempotentPaymentService = idempotentPaymentService;
+        this.paymentBatchService = paymentBatchService;
+        this.paymentHistoryService = paymentHistoryService;
+        this.paymentCacheControl = paymentCacheControl;
+        this.async = async;
     }
 
     @PostMapping
-    public void makePayment(@RequestBody PaymentRequest paymentRequest) {
-        paymentService.chargeCard(paymentRequest.getPayment().getCustomerId(), paymentRequest);
+    public CompletableFuture<ResponseEntity<PaymentResponse>> makePayment(@RequestHeader(name = "Idempotency-Key", required = false) String idempotencyKey,
+                                                                          @RequestBody PaymentRequest paymentRequest) {
+        UUID customerId = paymentRequest.getPayment().getCustomerId();
+
+        // the servlet thread is released while the charge is in flight
+        if (async) {
+            return idempotentPaymentService.chargeCardAsync(idempotencyKey, customerId, paymentRequest)
+                    .thenApply(paymentId -> paymentResponse(idempotencyKey, paymentId));
+        }
+
+        Long paymentId = idempotentPaymentService.chargeCard(idempotencyKey, customerId, paymentRequest);
+        return CompletableFuture.completedFuture(paymentResponse(idempotencyKey, paymentId));
+    }
+
+    // without an idempotency key the body stays empty as before, with one the client can read its payment back
+    private static ResponseEntity<PaymentResponse> paymentResponse(String idempotencyKey, Long paymentId) {
+        if (idempotencyKey == null) {
+            return ResponseEntity.ok().build();
+        }
+        return ResponseEntity.ok(new PaymentResponse(paymentId));
+    }
+
+    @PostMapping("batch")
+    public List<PaymentBatchResult> makePayments(@RequestHeader(name = "Idempotency-Key", required = false) String idempotencyKey,
+                                                 @RequestBody List<PaymentRequest> paymentRequests) {
+        return paymentBatchService.chargeCards(idempotencyKey, paymentRequests);
+    }
+
+    @GetMapping
+    public PaymentHistoryPage getPaymentHistory(@RequestParam("customerId") UUID customerId,
+                                                @RequestParam(name = "after", required = false) Long afterPaymentId,
+                                                @RequestParam(name = "limit", defaultValue = "50") int limit) {
+        return paymentHistoryService.getPaymentHistory(customerId, afterPaymentId, limit);
     }
 
     @GetMapping("/{paymentId}")
-    public Payment getPaymentById(@PathVariable("paymentId") Long paymentId) {
-        return paymentService.getPaymentById(paymentId);
+    public ResponseEntity<Payment> getPaymentById(@PathVariable("paymentId") Long paymentId) {
+        Payment payment = paymentService.getPaymentById(paymentId);
+
+        // a matching If-None-Match is answered with 304 and no body
+        return ResponseEntity.ok()
+                .eTag(paymentCacheControl.eTag(payment))
+                .cacheControl(paymentCacheControl.getCacheControl())
+                .body(payment);
     }
 }
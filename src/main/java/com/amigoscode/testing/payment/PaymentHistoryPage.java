@@ -0,0 +1,46 @@
+package com.amigoscode.testing.payment;
+
+import java.util.List;
+import java.util.Objects;
+
+public class PaymentHistoryPage {
+
+    private final List<PaymentSummary> payments;
+
+    // pass as "after" to get the next page, null on the last page
+    private final Long nextPaymentId;
+
+    public PaymentHistoryPage(List<PaymentSummary> payments, Long nextPaymentId) {
+        this.payments = payments;
+        this.nextPaymentId = nextPaymentId;
+    }
+
+    public List<PaymentSummary> getPayments() {
+        return payments;
+    }
+
+    public Long getNextPaymentId() {
+        return nextPaymentId;
+    }
+
+    @Override
+    public String toString() {
+        return "PaymentHistoryPage{" +
+                "payments=" + payments +
+                ", nextPaymentId=" + nextPaymentId +
+                '}';
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        PaymentHistoryPage that = (PaymentHistoryPage) o;
+        return Objects.equals(payments, that.payments) && Objects.equals(nextPaymentId, that.nextPaymentId);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(payments, nextPaymentId);
+    }
+}
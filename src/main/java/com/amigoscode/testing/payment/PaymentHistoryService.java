@@ -0,0 +1,43 @@
+package com.amigoscode.testing.payment;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.UUID;
+
+@Service
+public class PaymentHistoryService {
+
+    private final PaymentRepository paymentRepository;
+
+    private final int maxPageSize;
+
+    @Autowired
+    public PaymentHistoryService(PaymentRepository paymentRepository,
+                                 @Value("${payment.history.max-page-size:500}") int maxPageSize) {
+        this.paymentRepository = paymentRepository;
+        this.maxPageSize = maxPageSize;
+    }
+
+    public PaymentHistoryPage getPaymentHistory(UUID customerId, Long afterPaymentId, int pageSize) {
+        if (pageSize < 1) {
+            throw new IllegalStateException(String.format("page size [%d] must be positive", pageSize));
+        }
+        int size = Math.min(pageSize, maxPageSize);
+
+        // one extra row tells whether there is a next page without a count query
+        List<PaymentSummary> payments = paymentRepository.selectPaymentSummaries(
+                customerId,
+                afterPaymentId == null ? Long.MIN_VALUE : afterPaymentId,
+                PageRequest.of(0, size + 1));
+
+        if (payments.size() <= size) {
+            return new PaymentHistoryPage(payments, null);
+        }
+        List<PaymentSummary> page = payments.subList(0, size);
+        return new PaymentHistoryPage(List.copyOf(page), page.get(size - 1).getPaymentId());
+    }
+}
@@ -0,0 +1,46 @@
+package com.amigoscode.testing.payment;
+
+import com.amigoscode.testing.utils.SnowflakeIdGenerator;
+import org.hibernate.MappingException;
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.internal.util.config.ConfigurationHelper;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+
+import java.io.Serializable;
+import java.util.Map;
+import java.util.Properties;
+
+// Pooled sequence by default, "snowflake" assigns ids in process without touching the database.
+// The sequence is still created so instances can switch strategy on the same schema.
+public class PaymentIdGenerator extends SequenceStyleGenerator {
+
+    static final String STRATEGY = "payment.id-generator";
+
+    static final String NODE_ID = "payment.id-generator.node-id";
+
+    static final String MAX_DRIFT_MILLIS = "payment.id-generator.max-drift-millis";
+
+    private SnowflakeIdGenerator snowflakeIdGenerator;
+
+    @Override
+    public void configure(Type type, Properties params, ServiceRegistry serviceRegistry) throws MappingException {
+        super.configure(type, params, serviceRegistry);
+
+        Map<?, ?> settings = serviceRegistry.getService(ConfigurationService.class).getSettings();
+        if ("snowflake".equals(ConfigurationHelper.getString(STRATEGY, settings, "sequence"))) {
+            snowflakeIdGenerator = new SnowflakeIdGenerator(
+                    ConfigurationHelper.getLong(NODE_ID, settings, 0),
+                    ConfigurationHelper.getLong(MAX_DRIFT_MILLIS, settings, 10_000));
+        }
+    }
+
+    @Override
+    public Serializable generate(SharedSessionContractImplementor session, Object object) {
+        return snowflakeIdGenerator != null
+                ? snowflakeIdGenerator.nextId()
+                : super.generate(session, object);
+    }
+}
@@ -0,0 +1,23 @@
+package com.amigoscode.testing.payment;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+// Hibernate builds PaymentIdGenerator itself, so its settings travel through the Hibernate properties
+@Configuration
+public class PaymentIdGeneratorConfiguration {
+
+    @Bean
+    public HibernatePropertiesCustomizer paymentIdGeneratorProperties(
+            @Value("${payment.id-generator:sequence}") String strategy,
+            @Value("${payment.id-generator.node-id:0}") long nodeId,
+            @Value("${payment.id-generator.max-drift-millis:10000}") long maxDriftMillis) {
+        return properties -> {
+            properties.put(PaymentIdGenerator.STRATEGY, strategy);
+            properties.put(PaymentIdGenerator.NODE_ID, nodeId);
+            properties.put(PaymentIdGenerator.MAX_DRIFT_MILLIS, maxDriftMillis);
+        };
+    }
+}
@@ -0,0 +1,90 @@
+package com.amigoscode.testing.payment;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.Id;
+import java.time.Instant;
+
+// Reserved as PENDING before the card is charged and COMPLETED with the payment it produced
+@Entity
+public class PaymentIdempotencyKey {
+
+    public enum Status {
+        PENDING,
+        COMPLETED
+    }
+
+    @Id
+    private String idempotencyKey;
+
+    // the same key with another request body is rejected instead of replayed
+    @Column(nullable = false)
+    private String requestHash;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private Status status;
+
+    private Long paymentId;
+
+    @Column(nullable = false)
+    private Instant createdAt;
+
+    // a PENDING key reserved before this long ago is taken over, its owner is assumed gone
+    @Column(nullable = false)
+    private Instant reservedAt;
+
+    public PaymentIdempotencyKey() {
+    }
+
+    public PaymentIdempotencyKey(String idempotencyKey,
+                                 String requestHash,
+                                 Status status,
+                                 Long paymentId,
+                                 Instant createdAt) {
+        this.idempotencyKey = idempotencyKey;
+        this.requestHash = requestHash;
+        this.status = status;
+        this.paymentId = paymentId;
+        this.createdAt = createdAt;
+        this.reservedAt = createdAt;
+    }
+
+    public String getIdempotencyKey() {
+        return idempotencyKey;
+    }
+
+    public String getRequestHash() {
+        return requestHash;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public Long getPaymentId() {
+        return paymentId;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public Instant getReservedAt() {
+        return reservedAt;
+    }
+
+    @Override
+    public String toString() {
+        return "PaymentIdempotencyKey{" +
+                "idempotencyKey='" + idempotencyKey + '\'' +
+                ", requestHash='" + requestHash + '\'' +
+                ", status=" + status +
+                ", paymentId=" + paymentId +
+                ", createdAt=" + createdAt +
+                ", reservedAt=" + reservedAt +
+                '}';
+    }
+}
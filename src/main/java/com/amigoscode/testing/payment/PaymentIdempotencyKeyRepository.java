@@ -0,0 +1,69 @@
+package com.amigoscode.testing.payment;
+
+import com.amigoscode.testing.payment.PaymentIdempotencyKey.Status;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.Optional;
+
+public interface PaymentIdempotencyKeyRepository extends JpaRepository<PaymentIdempotencyKey, String> {
+
+    // not read-only, unlike the inherited one, so it reads the primary: a replica may not have the key the
+    // duplicate INSERT just ran into yet, and a missing key must not be taken as a payment in progress
+    @Override
+    @Transactional
+    Optional<PaymentIdempotencyKey> findById(String idempotencyKey);
+
+    // a plain INSERT, unlike save() on an assigned id it never merges into a row another request reserved.
+    // A duplicate key fails with DataIntegrityViolationException
+    @Transactional
+    @Modifying
+    @Query(
+            value = "INSERT INTO payment_idempotency_key (idempotency_key, request_hash, status, created_at, reserved_at) " +
+                    "VALUES (:idempotency_key, :request_hash, 'PENDING', :now, :now)",
+            nativeQuery = true
+    )
+    int reserve(@Param("idempotency_key") String idempotencyKey,
+                @Param("request_hash") String requestHash,
+                @Param("now") Instant now);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE PaymentIdempotencyKey k SET k.reservedAt = :now " +
+            "WHERE k.idempotencyKey = :idempotency_key AND k.status = :pending AND k.reservedAt < :reserved_before")
+    int takeOver(@Param("idempotency_key") String idempotencyKey,
+                 @Param("reserved_before") Instant reservedBefore,
+                 @Param("now") Instant now,
+                 @Param("pending") Status pending);
+
+    default int takeOver(String idempotencyKey, Instant reservedBefore, Instant now) {
+        return takeOver(idempotencyKey, reservedBefore, now, Status.PENDING);
+    }
+
+    // joins the transaction inserting the payment
+    @Transactional
+    @Modifying
+    @Query("UPDATE PaymentIdempotencyKey k SET k.status = :completed, k.paymentId = :payment_id " +
+            "WHERE k.idempotencyKey = :idempotency_key AND k.status = :pending")
+    int complete(@Param("idempotency_key") String idempotencyKey,
+                 @Param("payment_id") Long paymentId,
+                 @Param("pending") Status pending,
+                 @Param("completed") Status completed);
+
+    default int complete(String idempotencyKey, Long paymentId) {
+        return complete(idempotencyKey, paymentId, Status.PENDING, Status.COMPLETED);
+    }
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM PaymentIdempotencyKey k WHERE k.idempotencyKey = :idempotency_key AND k.status = :pending")
+    int release(@Param("idempotency_key") String idempotencyKey, @Param("pending") Status pending);
+
+    default int release(String idempotencyKey) {
+        return release(idempotencyKey, Status.PENDING);
+    }
+}
@@ -0,0 +1,112 @@
+package com.amigoscode.testing.payment;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.SequenceGenerator;
+import javax.persistence.Table;
+import java.time.Instant;
+
+@Entity
+@Table(indexes = @Index(name = "payment_notification_pending_idx", columnList = "deliveredAt, nextAttemptAt"))
+public class PaymentNotification {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "payment_notification_sequence")
+    @SequenceGenerator(name = "payment_notification_sequence", allocationSize = 50)
+    private Long id;
+
+    private Long paymentId;
+
+    @Column(nullable = false)
+    private String phoneNumber;
+
+    @Column(nullable = false)
+    private String message;
+
+    @Column(nullable = false)
+    private Instant createdAt;
+
+    private Instant deliveredAt;
+
+    private int dispatches;
+
+    // failed notifications wait for their backoff before the next dispatch
+    @Column(nullable = false)
+    private Instant nextAttemptAt;
+
+    // set by the dispatcher that is sending the notification, another one only takes it over once the lease expires
+    private String claimToken;
+
+    private Instant claimedUntil;
+
+    public PaymentNotification() {
+    }
+
+    public PaymentNotification(Long paymentId, String phoneNumber, String message, Instant createdAt) {
+        this.paymentId = paymentId;
+        this.phoneNumber = phoneNumber;
+        this.message = message;
+        this.createdAt = createdAt;
+        this.nextAttemptAt = createdAt;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public Long getPaymentId() {
+        return paymentId;
+    }
+
+    public String getPhoneNumber() {
+        return phoneNumber;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public Instant getDeliveredAt() {
+        return deliveredAt;
+    }
+
+    public int getDispatches() {
+        return dispatches;
+    }
+
+    public Instant getNextAttemptAt() {
+        return nextAttemptAt;
+    }
+
+    public String getClaimToken() {
+        return claimToken;
+    }
+
+    public Instant getClaimedUntil() {
+        return claimedUntil;
+    }
+
+    @Override
+    public String toString() {
+        return "PaymentNotification{" +
+                "id=" + id +
+                ", paymentId=" + paymentId +
+                ", phoneNumber='" + phoneNumber + '\'' +
+                ", message='" + message + '\'' +
+                ", createdAt=" + createdAt +
+                ", deliveredAt=" + deliveredAt +
+                ", dispatches=" + dispatches +
+                ", nextAttemptAt=" + nextAttemptAt +
+                ", claimToken='" + claimToken + '\'' +
+                ", claimedUntil=" + claimedUntil +
+                '}';
+    }
+}
@@ -0,0 +1,141 @@
+package com.amigoscode.testing.payment;
+
+import com.twilio.rest.api.v2010.account.Message;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+@Component
+public class PaymentNotificationDispatcher {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PaymentNotificationDispatcher.class);
+
+    private final PaymentNotificationRepository paymentNotificationRepository;
+
+    private final SmsNotificationQueue smsNotificationQueue;
+
+    private final Clock clock;
+
+    private final int batchSize;
+
+    private final int maxDispatches;
+
+    private final long leaseMillis;
+
+    private final long initialBackoffMillis;
+
+    @Autowired
+    public PaymentNotificationDispatcher(PaymentNotificationRepository paymentNotificationRepository,
+                                         SmsNotificationQueue smsNotificationQueue,
+                                         @Value("${payment.notification.outbox.batch-size:100}") int batchSize,
+                                         @Value("${payment.notification.outbox.max-dispatches:5}") int maxDispatches,
+                                         @Value("${payment.notification.outbox.lease-millis:60000}") long leaseMillis,
+                                         @Value("${payment.notification.outbox.initial-backoff-millis:5000}") long initialBackoffMillis) {
+        this(paymentNotificationRepository, smsNotificationQueue, Clock.systemUTC(),
+                batchSize, maxDispatches, leaseMillis, initialBackoffMillis);
+    }
+
+    PaymentNotificationDispatcher(PaymentNotificationRepository paymentNotificationRepository,
+                                  SmsNotificationQueue smsNotificationQueue,
+                                  Clock clock,
+                                  int batchSize,
+                                  int maxDispatches,
+                                  long leaseMillis,
+                                  long initialBackoffMillis) {
+        this.paymentNotificationRepository = paymentNotificationRepository;
+        this.smsNotificationQueue = smsNotificationQueue;
+        this.clock = clock;
+        this.batchSize = batchSize;
+        this.maxDispatches = maxDispatches;
+        this.leaseMillis = leaseMillis;
+        this.initialBackoffMillis = initialBackoffMillis;
+    }
+
+    @Scheduled(fixedDelayString = "${payment.notification.outbox.poll-interval-millis:1000}")
+    public void dispatchPendingNotifications() {
+        // keep going while messages get through, failed ones wait for their next attempt anyway
+        int delivered;
+        do {
+            delivered = dispatchBatch();
+        } while (delivered > 0);
+    }
+
+    int dispatchBatch() {
+        Instant now = clock.instant();
+
+        // 1. Select the notifications due for an attempt that no other dispatcher holds
+        List<Long> ids = paymentNotificationRepository
+                .selectPendingNotificationIds(maxDispatches, now, PageRequest.of(0, batchSize));
+
+        if (ids.isEmpty()) {
+            return 0;
+        }
+
+        // 2. Claim them, rows another instance claimed first are left out.
+        // The lease must outlast the sms queue retries, after that the rows are up for grabs again
+        String claimToken = UUID.randomUUID().toString();
+        paymentNotificationRepository.claim(ids, claimToken, now.plusMillis(leaseMillis), now);
+        List<PaymentNotification> notifications = paymentNotificationRepository.selectClaimedNotifications(claimToken);
+
+        if (notifications.isEmpty()) {
+            return 0;
+        }
+
+        // 3. Send them all through the sms queue and wait for the outcomes, at most half the lease so the
+        // scheduler thread is never held for long and the results are written while the rows are still ours
+        List<CompletableFuture<Message.Status>> deliveries = new ArrayList<>(notifications.size());
+        for (PaymentNotification notification : notifications) {
+            deliveries.add(smsNotificationQueue.enqueue(notification.getPhoneNumber(), notification.getMessage()));
+        }
+        CompletableFuture.allOf(deliveries.toArray(new CompletableFuture[0]))
+                .completeOnTimeout(null, leaseMillis / 2, TimeUnit.MILLISECONDS)
+                .exceptionally(e -> null)
+                .join();
+
+        // 4. Mark delivered ones, count a dispatch for the others and back them off by how often they failed.
+        // Unfinished ones stay claimed and are sent again once the lease expires
+        List<Long> delivered = new ArrayList<>();
+        Map<Integer, List<Long>> failedByDispatches = new TreeMap<>();
+        for (int i = 0; i < notifications.size(); i++) {
+            PaymentNotification notification = notifications.get(i);
+            if (!deliveries.get(i).isDone()) {
+                LOGGER.warn("Notification {} not sent within {} ms, leaving it to the next dispatcher",
+                        notification.getId(), leaseMillis / 2);
+            } else if (deliveries.get(i).isCompletedExceptionally()
+                    || Message.Status.FAILED.equals(deliveries.get(i).join())) {
+                failedByDispatches.computeIfAbsent(notification.getDispatches(), d -> new ArrayList<>())
+                        .add(notification.getId());
+            } else {
+                delivered.add(notification.getId());
+            }
+        }
+
+        Instant completedAt = clock.instant();
+        if (!delivered.isEmpty()) {
+            paymentNotificationRepository.markDelivered(delivered, claimToken, completedAt);
+        }
+        failedByDispatches.forEach((dispatches, failed) -> paymentNotificationRepository.incrementDispatches(
+                failed, claimToken, completedAt.plusMillis(backoffMillis(dispatches))));
+
+        return delivered.size();
+    }
+
+    // exponential backoff: initial, 2 * initial, 4 * initial...
+    private long backoffMillis(int dispatches) {
+        return initialBackoffMillis << Math.min(dispatches, 20);
+    }
+}
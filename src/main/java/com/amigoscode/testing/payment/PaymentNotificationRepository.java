@@ -0,0 +1,54 @@
+package com.amigoscode.testing.payment;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+public interface PaymentNotificationRepository extends JpaRepository<PaymentNotification, Long> {
+
+    @Query("SELECT n.id FROM PaymentNotification n " +
+            "WHERE n.deliveredAt IS NULL AND n.dispatches < :max_dispatches AND n.nextAttemptAt <= :now " +
+            "AND (n.claimedUntil IS NULL OR n.claimedUntil <= :now) " +
+            "ORDER BY n.nextAttemptAt, n.id")
+    List<Long> selectPendingNotificationIds(@Param("max_dispatches") int maxDispatches,
+                                            @Param("now") Instant now,
+                                            Pageable pageable);
+
+    // only rows nobody else claimed in the meantime are updated, so each dispatcher sends its own rows
+    @Transactional
+    @Modifying
+    @Query("UPDATE PaymentNotification n SET n.claimToken = :claim_token, n.claimedUntil = :claimed_until " +
+            "WHERE n.id IN (:ids) AND n.deliveredAt IS NULL AND (n.claimedUntil IS NULL OR n.claimedUntil <= :now)")
+    int claim(@Param("ids") Collection<Long> ids,
+              @Param("claim_token") String claimToken,
+              @Param("claimed_until") Instant claimedUntil,
+              @Param("now") Instant now);
+
+    @Query("SELECT n FROM PaymentNotification n WHERE n.claimToken = :claim_token ORDER BY n.nextAttemptAt, n.id")
+    List<PaymentNotification> selectClaimedNotifications(@Param("claim_token") String claimToken);
+
+    // the claim token guards against a dispatcher whose lease ran out and whose rows were claimed again since,
+    // its late results are dropped and the new holder decides
+    @Transactional
+    @Modifying
+    @Query("UPDATE PaymentNotification n SET n.deliveredAt = :delivered_at " +
+            "WHERE n.id IN (:ids) AND n.claimToken = :claim_token")
+    int markDelivered(@Param("ids") Collection<Long> ids,
+                      @Param("claim_token") String claimToken,
+                      @Param("delivered_at") Instant deliveredAt);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE PaymentNotification n SET n.dispatches = n.dispatches + 1, n.nextAttemptAt = :next_attempt_at, " +
+            "n.claimToken = NULL, n.claimedUntil = NULL WHERE n.id IN (:ids) AND n.claimToken = :claim_token")
+    int incrementDispatches(@Param("ids") Collection<Long> ids,
+                            @Param("claim_token") String claimToken,
+                            @Param("next_attempt_at") Instant nextAttemptAt);
+}
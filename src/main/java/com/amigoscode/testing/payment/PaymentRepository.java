@@ -1,6 +1,30 @@
 package com.amigoscode.testing.payment;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
 
 public interface PaymentRepository extends JpaRepository<Payment, Long> {
+
+    // seeks through payment_customer_idx from the last payment id seen, so deep pages cost the same as the first
+    @Transactional(readOnly = true)
+    @Query("SELECT new com.amigoscode.testing.payment.PaymentSummary(p.paymentId, p.amount, p.currency, p.description) " +
+            "FROM Payment p WHERE p.customerId = :customer_id AND p.paymentId > :after_payment_id " +
+            "ORDER BY p.paymentId")
+    List<PaymentSummary> selectPaymentSummaries(@Param("customer_id") UUID customerId,
+                                                @Param("after_payment_id") long afterPaymentId,
+                                                Pageable pageable);
+
+    @Query("SELECT DISTINCT p.customerId FROM Payment p")
+    List<UUID> selectCustomerIds();
+
+    @Query("SELECT new com.amigoscode.testing.payment.CustomerSpend(p.customerId, p.currency, COUNT(p), SUM(p.amount)) " +
+            "FROM Payment p WHERE p.customerId IN (:customer_ids) GROUP BY p.customerId, p.currency")
+    List<CustomerSpend> selectCustomerSpends(@Param("customer_ids") Collection<UUID> customerIds);
 }
@@ -0,0 +1,24 @@
+package com.amigoscode.testing.payment;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+// answered to the first request and to every replay with the same idempotency key
+public class PaymentResponse {
+
+    private final Long paymentId;
+
+    public PaymentResponse(@JsonProperty("paymentId") Long paymentId) {
+        this.paymentId = paymentId;
+    }
+
+    public Long getPaymentId() {
+        return paymentId;
+    }
+
+    @Override
+    public String toString() {
+        return "PaymentResponse{" +
+                "paymentId=" + paymentId +
+                '}';
+    }
+}
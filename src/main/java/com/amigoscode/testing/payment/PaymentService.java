@@ -1,82 +1,152 @@
 package com.amigoscode.testing.payment;
 
-import com.amigoscode.testing.customer.CustomerRepository;
-import com.amigoscode.testing.payment.twilio.TwilioService;
-import com.twilio.rest.api.v2010.account.Message;
+import com.amigoscode.testing.customer.CustomerCache;
+import com.amigoscode.testing.customer.CustomerContact;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import javax.persistence.EntityNotFoundException;
+import java.time.Instant;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 @Service
 public class PaymentService {
 
     private final CardPaymentCharger cardPaymentCharger;
 
-    private final CardPaymentSender cardPaymentSender;
+    private final PaymentNotificationRepository paymentNotificationRepository;
 
-    private final CustomerRepository customerRepository;
+    private final PaymentIdempotencyKeyRepository paymentIdempotencyKeyRepository;
+
+    private final CustomerSpendRepository customerSpendRepository;
+
+    private final CustomerCache customerCache;
 
     private final PaymentRepository paymentRepository;
 
-    private static final List<Currency> ACCEPTED_CURRENCIES = List.of(Currency.USD, Currency.GBP);
+    private final PaymentCache paymentCache;
+
+    private final TransactionTemplate transactionTemplate;
+
+    static final List<Currency> ACCEPTED_CURRENCIES = List.of(Currency.USD, Currency.GBP);
+
+    static final String PAYMENT_NOTIFICATION = "Card change was successfully completed!";
 
     @Autowired
     public PaymentService(CardPaymentCharger cardPaymentCharger,
-                          CardPaymentSender cardPaymentSender,
-                          CustomerRepository customerRepository,
-                          PaymentRepository paymentRepository) {
-        this.cardPaymentSender = cardPaymentSender;
-        this.customerRepository = customerRepository;
+                          PaymentNotificationRepository paymentNotificationRepository,
+                          PaymentIdempotencyKeyRepository paymentIdempotencyKeyRepository,
+                          CustomerSpendRepository customerSpendRepository,
+                          CustomerCache customerCache,
+                          PaymentRepository paymentRepository,
+                          PaymentCache paymentCache,
+                          TransactionTemplate transactionTemplate) {
+        this.paymentNotificationRepository = paymentNotificationRepository;
+        this.paymentIdempotencyKeyRepository = paymentIdempotencyKeyRepository;
+        this.customerSpendRepository = customerSpendRepository;
+        this.customerCache = customerCache;
         this.paymentRepository = paymentRepository;
+        this.paymentCache = paymentCache;
+        this.transactionTemplate = transactionTemplate;
         this.cardPaymentCharger = cardPaymentCharger;
     }
 
-    public void chargeCard(UUID customerId, PaymentRequest request) {
-        // 1. Does customer exist if not throw
-        boolean isCustomerFound = customerRepository.findById(customerId).isPresent();
+    public Long chargeCard(UUID customerId, PaymentRequest request) {
+        return chargeCard(customerId, request, null);
+    }
+
+    public Long chargeCard(UUID customerId, PaymentRequest request, String idempotencyKey) {
+        // 1. Does customer exist and do we support the currency if not throw
+        CustomerContact customer = validate(customerId, request);
+
+        // 2. Charge card, with the idempotency key the provider charges a retry at most once
+        CardPaymentCharge charge = idempotencyKey == null
+                ? cardPaymentCharger.chargeCard(
+                        request.getPayment().getSource(),
+                        request.getPayment().getAmount(),
+                        request.getPayment().getDescription())
+                : cardPaymentCharger.chargeCard(
+                        request.getPayment().getSource(),
+                        request.getPayment().getAmount(),
+                        request.getPayment().getDescription(),
+                        idempotencyKey);
+
+        // 3. If not debited throw, else insert payment
+        return savePayment(customerId, customer, request, idempotencyKey, charge);
+    }
 
-        if (!isCustomerFound) {
-            throw new IllegalStateException(String.format("Customer with id [%s] not found", customerId));
+    public CompletableFuture<Long> chargeCardAsync(UUID customerId, PaymentRequest request, String idempotencyKey) {
+        // 1. Does customer exist and do we support the currency if not fail
+        CustomerContact customer;
+        try {
+            customer = validate(customerId, request);
+        } catch (IllegalStateException e) {
+            return CompletableFuture.failedFuture(e);
         }
 
-        // 2. Do we support the currency if not throw
+        // 2. Charge card without holding the calling thread
+        // 3. If not debited fail, else insert payment on the thread that completed the charge
+        CompletableFuture<CardPaymentCharge> charge = idempotencyKey == null
+                ? cardPaymentCharger.chargeCardAsync(
+                        request.getPayment().getSource(),
+                        request.getPayment().getAmount(),
+                        request.getPayment().getDescription())
+                : cardPaymentCharger.chargeCardAsync(
+                        request.getPayment().getSource(),
+                        request.getPayment().getAmount(),
+                        request.getPayment().getDescription(),
+                        idempotencyKey);
+        return charge.thenApply(cardPaymentCharge -> savePayment(customerId, customer, request, idempotencyKey, cardPaymentCharge));
+    }
+
+    private CustomerContact validate(UUID customerId, PaymentRequest request) {
+        CustomerContact customer = customerCache.getCustomer(customerId)
+                .orElseThrow(() -> new IllegalStateException(String.format("Customer with id [%s] not found", customerId)));
+
         boolean isCurrencySupported = ACCEPTED_CURRENCIES.contains(request.getPayment().getCurrency());
 
         if (!isCurrencySupported) {
             throw new IllegalStateException(String.format("currency [%s] not support", request.getPayment().getCurrency()));
         }
 
-        // 3. Charge card
-        CardPaymentCharge charge = cardPaymentCharger.chargeCard(
-                request.getPayment().getSource(),
-                request.getPayment().getAmount(),
-                request.getPayment().getCurrency(),
-                request.getPayment().getDescription()
-        );
+        return customer;
+    }
 
-        // 4. If not debited throw
+    private Long savePayment(UUID customerId,
+                             CustomerContact customer,
+                             PaymentRequest request,
+                             String idempotencyKey,
+                             CardPaymentCharge charge) {
         if (!charge.isCardDebited()) {
             throw new IllegalStateException(String.format("Card not debited for customer %s", customerId));
         }
 
-        // 5. Insert payment
+        // Insert payment, its sms notification and spend aggregate, and complete the idempotency key, in the same transaction,
+        // PaymentNotificationDispatcher sends the sms later
         request.getPayment().setCustomerId(customerId);
-        paymentRepository.save(request.getPayment());
-
-        // 6. Send sms
-        String paymentNotification = "Card change was successfully completed!";
-        Message.Status status = cardPaymentSender.sendSms(customerRepository.selectPhoneNumberById(customerId), paymentNotification);
-
-        // If failed throw
-        if (Message.Status.FAILED.equals(status)) {
-            throw new IllegalStateException(String.format("SMS not delivered for customer %s", customerId));
-        }
+        return transactionTemplate.execute(status -> {
+            Instant now = Instant.now();
+            Payment payment = paymentRepository.save(request.getPayment());
+            customerSpendRepository.addPayments(customerId, 1, payment.getAmount());
+            paymentNotificationRepository.save(new PaymentNotification(
+                    payment.getPaymentId(),
+                    customer.getPhoneNumber(),
+                    PAYMENT_NOTIFICATION,
+                    now
+            ));
+            // the key was reserved before charging, a key completed elsewhere rolls this payment back
+            if (idempotencyKey != null && paymentIdempotencyKeyRepository.complete(idempotencyKey, payment.getPaymentId()) != 1) {
+                throw new IllegalStateException(
+                        String.format("Payment with idempotency key [%s] was completed elsewhere", idempotencyKey));
+            }
+            return payment.getPaymentId();
+        });
     }
 
     public Payment getPaymentById(Long id) {
-        return paymentRepository.findById(id).orElseThrow(EntityNotFoundException::new);
+        return paymentCache.getPayment(id).orElseThrow(EntityNotFoundException::new);
     }
 }
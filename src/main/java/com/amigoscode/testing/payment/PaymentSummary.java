@@ -0,0 +1,61 @@
+package com.amigoscode.testing.payment;
+
+import java.util.Objects;
+
+public class PaymentSummary {
+
+    private final Long paymentId;
+
+    private final Money amount;
+
+    private final String description;
+
+    public PaymentSummary(Long paymentId, Money amount, String description) {
+        this.paymentId = paymentId;
+        this.amount = amount;
+        this.description = description;
+    }
+
+    // JPQL constructor expression, the amount column holds minor units
+    public PaymentSummary(Long paymentId, Long amount, Currency currency, String description) {
+        this(paymentId, Money.ofMinor(amount, currency), description);
+    }
+
+    public Long getPaymentId() {
+        return paymentId;
+    }
+
+    public Money getAmount() {
+        return amount;
+    }
+
+    public Currency getCurrency() {
+        return amount.getCurrency();
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    @Override
+    public String toString() {
+        return "PaymentSummary{" +
+                "paymentId=" + paymentId +
+                ", amount=" + amount +
+                ", description='" + description + '\'' +
+                '}';
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        PaymentSummary that = (PaymentSummary) o;
+        return Objects.equals(paymentId, that.paymentId) && Objects.equals(amount, that.amount) && Objects.equals(description, that.description);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(paymentId, amount, description);
+    }
+}
@@ -0,0 +1,17 @@
+package com.amigoscode.testing.payment;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+public interface ProviderCallExecutor {
+
+    <T> T call(String provider, Supplier<T> call);
+
+    <T> CompletableFuture<T> callAsync(String provider, Supplier<T> call);
+
+    // for calls that cannot be repeated safely, such as a charge without an idempotency key:
+    // the provider may still complete them after a timeout and nothing could reconcile the outcome
+    <T> T callWithoutTimeout(String provider, Supplier<T> call);
+
+    <T> CompletableFuture<T> callAsyncWithoutTimeout(String provider, Supplier<T> call);
+}
@@ -0,0 +1,114 @@
+package com.amigoscode.testing.payment;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import org.springframework.web.server.ServerWebInputException;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.List;
+import java.util.UUID;
+
+// Same routes as PaymentController on the non-blocking stack.
+// JPA and the idempotency key lookup still block, so they run on the bounded elastic pool and never on the event loop.
+@Profile("reactive")
+@Component
+public class ReactivePaymentHandler {
+
+    private static final ParameterizedTypeReference<List<PaymentRequest>> PAYMENT_REQUESTS =
+            new ParameterizedTypeReference<>() {
+            };
+
+    private final PaymentService paymentService;
+
+    private final IdempotentPaymentService idempotentPaymentService;
+
+    private final PaymentBatchService paymentBatchService;
+
+    private final PaymentHistoryService paymentHistoryService;
+
+    private final PaymentCacheControl paymentCacheControl;
+
+    @Autowired
+    public ReactivePaymentHandler(PaymentService paymentService,
+                                  IdempotentPaymentService idempotentPaymentService,
+                                  PaymentBatchService paymentBatchService,
+                                  PaymentHistoryService paymentHistoryService,
+                                  PaymentCacheControl paymentCacheControl) {
+        this.paymentService = paymentService;
+        this.idempotentPaymentService = idempotentPaymentService;
+        this.paymentBatchService = paymentBatchService;
+        this.paymentHistoryService = paymentHistoryService;
+        this.paymentCacheControl = paymentCacheControl;
+    }
+
+    public Mono<ServerResponse> makePayment(ServerRequest request) {
+        String idempotencyKey = request.headers().firstHeader("Idempotency-Key");
+
+        // the charge itself completes on the provider threads, only its lookups run on the elastic pool.
+        // The provider clients block, so every charge in flight still holds one provider thread: at most
+        // provider.direct.max-threads charge at once, provider.direct.queue-capacity wait and the rest fail fast.
+        return request.bodyToMono(PaymentRequest.class)
+                .switchIfEmpty(Mono.error(() -> new ServerWebInputException("Request body is missing")))
+                .flatMap(paymentRequest -> Mono
+                        .defer(() -> Mono.fromFuture(idempotentPaymentService.chargeCardAsync(
+                                idempotencyKey,
+                                paymentRequest.getPayment().getCustomerId(),
+                                paymentRequest)))
+                        .subscribeOn(Schedulers.boundedElastic()))
+                // like PaymentController, only a request with an idempotency key gets its payment back
+                .flatMap(paymentId -> idempotencyKey == null
+                        ? ServerResponse.ok().build()
+                        : ServerResponse.ok().bodyValue(new PaymentResponse(paymentId)));
+    }
+
+    public Mono<ServerResponse> makePayments(ServerRequest request) {
+        String idempotencyKey = request.headers().firstHeader("Idempotency-Key");
+
+        return request.bodyToMono(PAYMENT_REQUESTS)
+                .switchIfEmpty(Mono.error(() -> new ServerWebInputException("Request body is missing")))
+                .flatMap(paymentRequests -> Mono
+                        .fromCallable(() -> paymentBatchService.chargeCards(idempotencyKey, paymentRequests))
+                        .subscribeOn(Schedulers.boundedElastic()))
+                .flatMap(results -> ServerResponse.ok().bodyValue(results));
+    }
+
+    public Mono<ServerResponse> getPaymentHistory(ServerRequest request) {
+        return Mono
+                .fromCallable(() -> paymentHistoryService.getPaymentHistory(
+                        UUID.fromString(requiredQueryParam(request, "customerId")),
+                        request.queryParam("after").map(Long::valueOf).orElse(null),
+                        request.queryParam("limit").map(Integer::valueOf).orElse(50)))
+                .onErrorMap(IllegalArgumentException.class, e -> new ServerWebInputException(e.getMessage()))
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMap(page -> ServerResponse.ok().bodyValue(page));
+    }
+
+    public Mono<ServerResponse> getPaymentById(ServerRequest request) {
+        return Mono
+                .fromCallable(() -> Long.valueOf(request.pathVariable("paymentId")))
+                .onErrorMap(NumberFormatException.class, e -> new ServerWebInputException(e.getMessage()))
+                .publishOn(Schedulers.boundedElastic())
+                .map(paymentService::getPaymentById)
+                .flatMap(payment -> {
+                    String eTag = paymentCacheControl.eTag(payment);
+                    return request.checkNotModified(eTag)
+                            .flatMap(notModified -> ServerResponse.from(notModified)
+                                    .cacheControl(paymentCacheControl.getCacheControl())
+                                    .build())
+                            .switchIfEmpty(Mono.defer(() -> ServerResponse.ok()
+                                    .eTag(eTag)
+                                    .cacheControl(paymentCacheControl.getCacheControl())
+                                    .bodyValue(payment)));
+                });
+    }
+
+    private static String requiredQueryParam(ServerRequest request, String name) {
+        return request.queryParam(name).orElseThrow(() -> new ServerWebInputException(
+                String.format("Required query parameter [%s] is not present", name)));
+    }
+}
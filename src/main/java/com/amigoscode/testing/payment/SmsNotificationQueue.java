@@ -0,0 +1,179 @@
+package com.amigoscode.testing.payment;
+
+import com.twilio.rest.api.v2010.account.Message;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+@Component
+public class SmsNotificationQueue {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SmsNotificationQueue.class);
+
+    private final CardPaymentSender cardPaymentSender;
+
+    private final ThreadPoolExecutor workers;
+
+    private final ScheduledExecutorService retries;
+
+    private final int maxAttempts;
+
+    private final long initialBackoffMillis;
+
+    private final Timer deliveredTimer;
+
+    private final Timer failedTimer;
+
+    private final Counter retryCounter;
+
+    private final Counter rejectedCounter;
+
+    @Autowired
+    public SmsNotificationQueue(CardPaymentSender cardPaymentSender,
+                                MeterRegistry meterRegistry,
+                                @Value("${payment.sms.workers:4}") int workers,
+                                @Value("${payment.sms.queue-capacity:1000}") int queueCapacity,
+                                @Value("${payment.sms.max-attempts:3}") int maxAttempts,
+                                @Value("${payment.sms.initial-backoff-millis:200}") long initialBackoffMillis) {
+        this.cardPaymentSender = cardPaymentSender;
+        this.maxAttempts = maxAttempts;
+        this.initialBackoffMillis = initialBackoffMillis;
+
+        // when the queue is full, or after shutdown, the delivery completes as FAILED instead of
+        // sending on the caller's thread, callers such as the outbox dispatcher try again later
+        this.workers = new ThreadPoolExecutor(
+                workers, workers,
+                0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                new CustomizableThreadFactory("sms-"),
+                (task, executor) -> ((SendTask) task).reject());
+        this.retries = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("sms-retry-"));
+
+        Gauge.builder("payment.sms.queue.depth", this.workers, executor -> executor.getQueue().size())
+                .description("SMS notifications waiting for a worker")
+                .register(meterRegistry);
+        this.deliveredTimer = Timer.builder("payment.sms.delivery")
+                .description("Time from enqueue to the last send attempt")
+                .tag("outcome", "delivered")
+                .register(meterRegistry);
+        this.failedTimer = Timer.builder("payment.sms.delivery")
+                .description("Time from enqueue to the last send attempt")
+                .tag("outcome", "failed")
+                .register(meterRegistry);
+        this.retryCounter = Counter.builder("payment.sms.retries")
+                .description("SMS send attempts that were retried")
+                .register(meterRegistry);
+        this.rejectedCounter = Counter.builder("payment.sms.rejected")
+                .description("SMS notifications failed because the queue was full or shut down")
+                .register(meterRegistry);
+    }
+
+    public CompletableFuture<Message.Status> enqueue(String phoneNumber, String textMessage) {
+        CompletableFuture<Message.Status> delivery = new CompletableFuture<>();
+        long enqueuedAt = System.nanoTime();
+
+        workers.execute(new SendTask(phoneNumber, textMessage, 1, enqueuedAt, delivery));
+
+        return delivery;
+    }
+
+    private void send(String phoneNumber,
+                      String textMessage,
+                      int attempt,
+                      long enqueuedAt,
+                      CompletableFuture<Message.Status> delivery) {
+        Message.Status status;
+        try {
+            status = cardPaymentSender.sendSms(phoneNumber, textMessage);
+        } catch (RuntimeException e) {
+            LOGGER.warn("SMS attempt {} to {} failed", attempt, phoneNumber, e);
+            status = Message.Status.FAILED;
+        }
+
+        if (!Message.Status.FAILED.equals(status)) {
+            deliveredTimer.record(System.nanoTime() - enqueuedAt, TimeUnit.NANOSECONDS);
+            delivery.complete(status);
+            return;
+        }
+
+        if (attempt >= maxAttempts) {
+            LOGGER.error("SMS not delivered to {} after {} attempts", phoneNumber, attempt);
+            failedTimer.record(System.nanoTime() - enqueuedAt, TimeUnit.NANOSECONDS);
+            delivery.complete(status);
+            return;
+        }
+
+        // exponential backoff: initial, 2 * initial, 4 * initial...
+        // the retry thread only hands the attempt back to the workers, it never sends itself
+        long backoffMillis = initialBackoffMillis << (attempt - 1);
+        SendTask retry = new SendTask(phoneNumber, textMessage, attempt + 1, enqueuedAt, delivery);
+        retryCounter.increment();
+        try {
+            retries.schedule(() -> workers.execute(retry), backoffMillis, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            retry.reject();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        // pending retries still reach the workers, anything arriving after that completes as FAILED
+        retries.shutdown();
+        retries.awaitTermination(5, TimeUnit.SECONDS);
+        workers.shutdown();
+        workers.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    private final class SendTask implements Runnable {
+
+        private final String phoneNumber;
+
+        private final String textMessage;
+
+        private final int attempt;
+
+        private final long enqueuedAt;
+
+        private final CompletableFuture<Message.Status> delivery;
+
+        private SendTask(String phoneNumber,
+                         String textMessage,
+                         int attempt,
+                         long enqueuedAt,
+                         CompletableFuture<Message.Status> delivery) {
+            this.phoneNumber = phoneNumber;
+            this.textMessage = textMessage;
+            this.attempt = attempt;
+            this.enqueuedAt = enqueuedAt;
+            this.delivery = delivery;
+        }
+
+        @Override
+        public void run() {
+            send(phoneNumber, textMessage, attempt, enqueuedAt, delivery);
+        }
+
+        private void reject() {
+            LOGGER.warn("SMS attempt {} to {} rejected, the queue is full or shut down", attempt, phoneNumber);
+            rejectedCounter.increment();
+            failedTimer.record(System.nanoTime() - enqueuedAt, TimeUnit.NANOSECONDS);
+            delivery.complete(Message.Status.FAILED);
+        }
+    }
+}
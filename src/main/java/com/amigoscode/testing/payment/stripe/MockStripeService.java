@@ -2,11 +2,11 @@ package com.amigoscode.testing.payment.stripe;
 
 import com.amigoscode.testing.payment.CardPaymentCharge;
 import com.amigoscode.testing.payment.CardPaymentCharger;
-import com.amigoscode.testing.payment.Currency;
+import com.amigoscode.testing.payment.Money;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
 
-import java.math.BigDecimal;
+import java.util.concurrent.CompletableFuture;
 
 @ConditionalOnProperty(
         value = "stripe.enable",
@@ -16,7 +16,14 @@ import java.math.BigDecimal;
 public class MockStripeService implements CardPaymentCharger {
 
     @Override
-    public CardPaymentCharge chargeCard(String cardSource, BigDecimal amount, Currency currency, String description) {
+    public CardPaymentCharge chargeCard(String cardSource, Money amount, String description) {
         return new CardPaymentCharge(true);
     }
+
+    @Override
+    public CompletableFuture<CardPaymentCharge> chargeCardAsync(String cardSource,
+                                                                Money amount,
+                                                                String description) {
+        return CompletableFuture.completedFuture(chargeCard(cardSource, amount, description));
+    }
 }
@@ -1,15 +1,77 @@
 package com.amigoscode.testing.payment.stripe;
 
+import com.stripe.Stripe;
 import com.stripe.exception.StripeException;
 import com.stripe.model.Charge;
+import com.stripe.net.ApiResource;
+import com.stripe.net.HttpClient;
+import com.stripe.net.HttpURLConnectionClient;
+import com.stripe.net.LiveStripeResponseGetter;
 import com.stripe.net.RequestOptions;
+import com.stripe.net.StripeResponseGetter;
 import com.stripe.param.ChargeCreateParams;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.PreDestroy;
+import java.util.concurrent.TimeUnit;
+
+@ConditionalOnProperty(
+        value = "stripe.enable",
+        havingValue = "true"
+)
 @Service
 public class StripeApi {
 
+    private final HttpClient httpClient;
+
+    // own response getter instead of the SDK global one, so the chosen client only serves this api
+    private final StripeResponseGetter responseGetter;
+
+    private final String chargesUrl;
+
+    @Autowired
+    public StripeApi(@Value("${stripe.http.client:url-connection}") String client,
+                     @Value("${stripe.http.max-connections:50}") int maxConnections) {
+        this(httpClient(client, maxConnections), Stripe.getApiBase());
+    }
+
+    StripeApi(HttpClient httpClient, String apiBase) {
+        this.httpClient = httpClient;
+        this.responseGetter = new LiveStripeResponseGetter(httpClient);
+        this.chargesUrl = apiBase + "/v1/charges";
+    }
+
     public Charge create(ChargeCreateParams params, RequestOptions options) throws StripeException {
-        return Charge.create(params, options);
+        return responseGetter.request(ApiResource.RequestMethod.POST, chargesUrl, params.toMap(), Charge.class, options);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (httpClient instanceof PooledStripeHttpClient) {
+            ((PooledStripeHttpClient) httpClient).shutdown();
+        }
+    }
+
+    private static HttpClient httpClient(String client, int maxConnections) {
+        switch (client) {
+            case "url-connection":
+                return new HttpURLConnectionClient();
+            case "pooled":
+                return new PooledStripeHttpClient(pooledConnectionManager(maxConnections));
+            default:
+                throw new IllegalStateException(String.format("Unknown Stripe http client [%s]", client));
+        }
+    }
+
+    private static PoolingHttpClientConnectionManager pooledConnectionManager(int maxConnections) {
+        // every charge goes to the same host, so the route gets the whole pool
+        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager(60, TimeUnit.SECONDS);
+        connectionManager.setMaxTotal(maxConnections);
+        connectionManager.setDefaultMaxPerRoute(maxConnections);
+        return connectionManager;
     }
 }
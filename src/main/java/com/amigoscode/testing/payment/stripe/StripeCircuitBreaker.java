@@ -0,0 +1,212 @@
+package com.amigoscode.testing.payment.stripe;
+
+import com.stripe.exception.CardException;
+import com.stripe.exception.IdempotencyException;
+import com.stripe.exception.InvalidRequestException;
+import com.stripe.exception.StripeException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+@ConditionalOnProperty(
+        value = "stripe.enable",
+        havingValue = "true"
+)
+@Component
+public class StripeCircuitBreaker {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(StripeCircuitBreaker.class);
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    public interface StripeCall<T> {
+
+        T call() throws StripeException;
+    }
+
+    private final MeterRegistry meterRegistry;
+
+    private final int minimumCalls;
+
+    private final double failureRateThreshold;
+
+    private final long slowCallNanos;
+
+    private final long openNanos;
+
+    private final int halfOpenCalls;
+
+    private final LongSupplier nanoTime;
+
+    private final Counter rejectedCounter;
+
+    // last calls while closed, true when the call failed or was slow
+    private final boolean[] window;
+
+    private int windowIndex;
+
+    private int windowCount;
+
+    private int badCount;
+
+    private State state = State.CLOSED;
+
+    // bumped on every transition, results of calls admitted in an earlier state are ignored
+    private long generation;
+
+    private long openedAt;
+
+    private int halfOpenAdmitted;
+
+    private int halfOpenSucceeded;
+
+    @Autowired
+    public StripeCircuitBreaker(MeterRegistry meterRegistry,
+                                @Value("${stripe.circuit-breaker.window-size:50}") int windowSize,
+                                @Value("${stripe.circuit-breaker.minimum-calls:20}") int minimumCalls,
+                                @Value("${stripe.circuit-breaker.failure-rate-threshold:0.5}") double failureRateThreshold,
+                                @Value("${stripe.circuit-breaker.slow-call-millis:2000}") long slowCallMillis,
+                                @Value("${stripe.circuit-breaker.open-millis:10000}") long openMillis,
+                                @Value("${stripe.circuit-breaker.half-open-calls:3}") int halfOpenCalls) {
+        this(meterRegistry, windowSize, minimumCalls, failureRateThreshold, slowCallMillis, openMillis, halfOpenCalls,
+                System::nanoTime);
+    }
+
+    StripeCircuitBreaker(MeterRegistry meterRegistry,
+                         int windowSize,
+                         int minimumCalls,
+                         double failureRateThreshold,
+                         long slowCallMillis,
+                         long openMillis,
+                         int halfOpenCalls,
+                         LongSupplier nanoTime) {
+        this.meterRegistry = meterRegistry;
+        this.window = new boolean[windowSize];
+        this.minimumCalls = Math.min(minimumCalls, windowSize);
+        this.failureRateThreshold = failureRateThreshold;
+        this.slowCallNanos = TimeUnit.MILLISECONDS.toNanos(slowCallMillis);
+        this.openNanos = TimeUnit.MILLISECONDS.toNanos(openMillis);
+        this.halfOpenCalls = halfOpenCalls;
+        this.nanoTime = nanoTime;
+
+        Gauge.builder("payment.provider.circuit.state", this, breaker -> breaker.getState().ordinal())
+                .description("Circuit breaker state, 0 closed, 1 open, 2 half open")
+                .tag("provider", "stripe")
+                .register(meterRegistry);
+        this.rejectedCounter = Counter.builder("payment.provider.circuit.rejected")
+                .description("Calls failed fast by an open circuit breaker")
+                .tag("provider", "stripe")
+                .register(meterRegistry);
+    }
+
+    public <T> T execute(StripeCall<T> call) throws StripeException {
+        long permit = tryAcquire();
+        if (permit < 0) {
+            rejectedCounter.increment();
+            throw new IllegalStateException("Stripe circuit breaker is open");
+        }
+
+        long startedAt = nanoTime.getAsLong();
+        try {
+            T result = call.call();
+            onResult(permit, startedAt, false);
+            return result;
+        } catch (CardException | InvalidRequestException | IdempotencyException e) {
+            // Stripe answered, the request itself was rejected
+            onResult(permit, startedAt, false);
+            throw e;
+        } catch (StripeException | RuntimeException e) {
+            onResult(permit, startedAt, true);
+            throw e;
+        }
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    private synchronized long tryAcquire() {
+        if (state == State.OPEN) {
+            if (nanoTime.getAsLong() - openedAt < openNanos) {
+                return -1;
+            }
+            transitionTo(State.HALF_OPEN);
+        }
+
+        if (state == State.HALF_OPEN) {
+            if (halfOpenAdmitted >= halfOpenCalls) {
+                return -1;
+            }
+            halfOpenAdmitted++;
+        }
+
+        return generation;
+    }
+
+    private synchronized void onResult(long permit, long startedAt, boolean failed) {
+        if (permit != generation) {
+            return;
+        }
+
+        boolean bad = failed || nanoTime.getAsLong() - startedAt >= slowCallNanos;
+
+        if (state == State.HALF_OPEN) {
+            if (bad) {
+                transitionTo(State.OPEN);
+            } else if (++halfOpenSucceeded >= halfOpenCalls) {
+                transitionTo(State.CLOSED);
+            }
+            return;
+        }
+
+        if (windowCount == window.length) {
+            badCount -= window[windowIndex] ? 1 : 0;
+        } else {
+            windowCount++;
+        }
+        window[windowIndex] = bad;
+        badCount += bad ? 1 : 0;
+        windowIndex = (windowIndex + 1) % window.length;
+
+        if (windowCount >= minimumCalls && (double) badCount / windowCount >= failureRateThreshold) {
+            transitionTo(State.OPEN);
+        }
+    }
+
+    private void transitionTo(State next) {
+        LOGGER.warn("Stripe circuit breaker {} -> {}", state, next);
+        Counter.builder("payment.provider.circuit.transitions")
+                .description("Circuit breaker state transitions")
+                .tag("provider", "stripe")
+                .tag("from", state.name())
+                .tag("to", next.name())
+                .register(meterRegistry)
+                .increment();
+
+        state = next;
+        generation++;
+        halfOpenAdmitted = 0;
+        halfOpenSucceeded = 0;
+        if (next == State.OPEN) {
+            openedAt = nanoTime.getAsLong();
+        }
+        if (next == State.CLOSED) {
+            windowIndex = 0;
+            windowCount = 0;
+            badCount = 0;
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.amigoscode.testing.payment.stripe;
+
+import com.stripe.net.RequestOptions;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+@ConditionalOnProperty(
+        value = "stripe.enable",
+        havingValue = "true"
+)
+@Component
+public class StripeRequestOptions {
+
+    // built once, the api key and timeouts never change between charges
+    private final RequestOptions requestOptions;
+
+    @Autowired
+    public StripeRequestOptions(@Value("${stripe.api-key:sk_test_IKYCHOAmUhC7IPTdaoVtO58D}") String apiKey,
+                                @Value("${stripe.http.connect-timeout-millis:5000}") int connectTimeoutMillis,
+                                @Value("${stripe.http.read-timeout-millis:30000}") int readTimeoutMillis) {
+        this.requestOptions = RequestOptions.builder()
+                .setApiKey(apiKey)
+                .setConnectTimeout(connectTimeoutMillis)
+                .setReadTimeout(readTimeoutMillis)
+                .build();
+    }
+
+    public RequestOptions get() {
+        return requestOptions;
+    }
+
+    public RequestOptions withIdempotencyKey(String idempotencyKey) {
+        if (idempotencyKey == null) {
+            return requestOptions;
+        }
+        return requestOptions.toBuilder()
+                .setIdempotencyKey(idempotencyKey)
+                .build();
+    }
+}
@@ -2,7 +2,8 @@ package com.amigoscode.testing.payment.stripe;
 
 import com.amigoscode.testing.payment.CardPaymentCharge;
 import com.amigoscode.testing.payment.CardPaymentCharger;
-import com.amigoscode.testing.payment.Currency;
+import com.amigoscode.testing.payment.Money;
+import com.amigoscode.testing.payment.ProviderCallExecutor;
 import com.stripe.exception.StripeException;
 import com.stripe.model.Charge;
 import com.stripe.net.RequestOptions;
@@ -11,7 +12,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
 
-import java.math.BigDecimal;
+import java.util.concurrent.CompletableFuture;
 
 @ConditionalOnProperty(
         value = "stripe.enable",
@@ -20,31 +21,76 @@ import java.math.BigDecimal;
 @Service
 public class StripeService implements CardPaymentCharger {
 
-    private static final RequestOptions requestOptions = RequestOptions.builder()
-            .setApiKey("sk_test_IKYCHOAmUhC7IPTdaoVtO58D")
-            .build();
-
     private final StripeApi stripeApi;
 
+    private final ProviderCallExecutor providerCallExecutor;
+
+    private final StripeCircuitBreaker circuitBreaker;
+
+    private final StripeRequestOptions stripeRequestOptions;
+
     @Autowired
-    public StripeService(StripeApi stripeApi) {
+    public StripeService(StripeApi stripeApi,
+                         ProviderCallExecutor providerCallExecutor,
+                         StripeCircuitBreaker circuitBreaker,
+                         StripeRequestOptions stripeRequestOptions) {
         this.stripeApi = stripeApi;
+        this.providerCallExecutor = providerCallExecutor;
+        this.circuitBreaker = circuitBreaker;
+        this.stripeRequestOptions = stripeRequestOptions;
     }
 
     @Override
-    public CardPaymentCharge chargeCard(String cardSource, BigDecimal amount, Currency currency, String description) {
-        ChargeCreateParams params = ChargeCreateParams.builder()
-                .setAmount(amount.longValue())
-                .setCurrency(currency.name())
-                .setSource(cardSource)
-                .setDescription(description)
-                .build();
+    public CardPaymentCharge chargeCard(String cardSource, Money amount, String description) {
+        // without an idempotency key a charge that outlives a timeout could not be reconciled, so it is waited for
+        ChargeCreateParams params = params(cardSource, amount, description);
+        return providerCallExecutor.callWithoutTimeout("stripe", () -> charge(params, stripeRequestOptions.get()));
+    }
+
+    @Override
+    public CompletableFuture<CardPaymentCharge> chargeCardAsync(String cardSource,
+                                                                Money amount,
+                                                                String description) {
+        ChargeCreateParams params = params(cardSource, amount, description);
+        return providerCallExecutor.callAsyncWithoutTimeout("stripe", () -> charge(params, stripeRequestOptions.get()));
+    }
 
+    @Override
+    public CardPaymentCharge chargeCard(String cardSource,
+                                        Money amount,
+                                        String description,
+                                        String idempotencyKey) {
+        ChargeCreateParams params = params(cardSource, amount, description);
+        return providerCallExecutor.call("stripe", () -> charge(params, stripeRequestOptions.withIdempotencyKey(idempotencyKey)));
+    }
+
+    // Not hedged: Stripe answers a second request with the same idempotency key with an error while the first
+    // is still in flight, so the key only makes a retry safe once the first attempt has ended
+    @Override
+    public CompletableFuture<CardPaymentCharge> chargeCardAsync(String cardSource,
+                                                                Money amount,
+                                                                String description,
+                                                                String idempotencyKey) {
+        ChargeCreateParams params = params(cardSource, amount, description);
+        return providerCallExecutor.callAsync("stripe", () -> charge(params, stripeRequestOptions.withIdempotencyKey(idempotencyKey)));
+    }
+
+    private CardPaymentCharge charge(ChargeCreateParams params, RequestOptions options) {
         try {
-            Charge charge = stripeApi.create(params, requestOptions);
+            Charge charge = circuitBreaker.execute(() -> stripeApi.create(params, options));
             return new CardPaymentCharge(charge.getPaid());
         } catch (StripeException e) {
             throw new IllegalStateException("Cannot make Stripe charge, ", e);
         }
     }
+
+    // Stripe takes the amount in minor units, 10.50 USD is 1050
+    private static ChargeCreateParams params(String cardSource, Money amount, String description) {
+        return ChargeCreateParams.builder()
+                .setAmount(amount.getMinorUnits())
+                .setCurrency(amount.getCurrency().name())
+                .setSource(cardSource)
+                .setDescription(description)
+                .build();
+    }
 }
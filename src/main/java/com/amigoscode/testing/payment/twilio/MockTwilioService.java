@@ -7,6 +7,8 @@ import com.twilio.type.PhoneNumber;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
 
+import java.util.concurrent.CompletableFuture;
+
 @ConditionalOnProperty(
         value = "twilio.enable",
         havingValue = "false"
@@ -18,4 +20,9 @@ public class MockTwilioService implements CardPaymentSender {
     public Message.Status sendSms(String phoneNumber, String textMessage) {
         return Message.Status.DELIVERED;
     }
+
+    @Override
+    public CompletableFuture<Message.Status> sendSmsAsync(String phoneNumber, String textMessage) {
+        return CompletableFuture.completedFuture(sendSms(phoneNumber, textMessage));
+    }
 }
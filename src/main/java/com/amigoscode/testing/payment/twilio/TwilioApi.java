@@ -1,19 +1,77 @@
 package com.amigoscode.testing.payment.twilio;
 
+import com.twilio.http.NetworkHttpClient;
+import com.twilio.http.TwilioRestClient;
 import com.twilio.rest.api.v2010.account.Message;
 import com.twilio.type.PhoneNumber;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.conn.HttpClientConnectionManager;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.PreDestroy;
+import java.util.concurrent.TimeUnit;
+
+@ConditionalOnProperty(
+        value = "twilio.enable",
+        havingValue = "true"
+)
 @Service
 public class TwilioApi {
 
+    private final HttpClientConnectionManager connectionManager;
+
+    // built once, Twilio.init would drop the client and its pooled connections
+    private final TwilioRestClient restClient;
+
+    @Autowired
+    public TwilioApi(@Value("${twilio.http.max-connections:50}") int maxConnections,
+                     @Value("${twilio.http.connect-timeout-millis:5000}") int connectTimeoutMillis,
+                     @Value("${twilio.http.read-timeout-millis:10000}") int readTimeoutMillis) {
+        this(pooledConnectionManager(maxConnections), connectTimeoutMillis, readTimeoutMillis);
+    }
+
+    TwilioApi(HttpClientConnectionManager connectionManager, int connectTimeoutMillis, int readTimeoutMillis) {
+        this.connectionManager = connectionManager;
+
+        RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectTimeout(connectTimeoutMillis)
+                .setConnectionRequestTimeout(connectTimeoutMillis)
+                .setSocketTimeout(readTimeoutMillis)
+                .build();
+        HttpClientBuilder httpClientBuilder = HttpClientBuilder.create()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(requestConfig);
+
+        this.restClient = new TwilioRestClient.Builder(TwilioService.ACCOUNT_SID, TwilioService.AUTH_TOKEN)
+                .httpClient(new NetworkHttpClient(httpClientBuilder))
+                .build();
+    }
+
     public Message.Status create(String from, String to, String message) {
         return Message
                 .creator(
                 new PhoneNumber(from),
                 new PhoneNumber(to),
                 message)
-                .create()
+                .create(restClient)
                 .getStatus();
     }
+
+    @PreDestroy
+    public void shutdown() {
+        connectionManager.shutdown();
+    }
+
+    private static PoolingHttpClientConnectionManager pooledConnectionManager(int maxConnections) {
+        // every message goes to the same host, so the route gets the whole pool
+        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager(60, TimeUnit.SECONDS);
+        connectionManager.setMaxTotal(maxConnections);
+        connectionManager.setDefaultMaxPerRoute(maxConnections);
+        return connectionManager;
+    }
 }
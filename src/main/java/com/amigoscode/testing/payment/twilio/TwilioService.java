@@ -1,12 +1,14 @@
 package com.amigoscode.testing.payment.twilio;
 
 import com.amigoscode.testing.payment.CardPaymentSender;
-import com.twilio.Twilio;
+import com.amigoscode.testing.payment.ProviderCallExecutor;
 import com.twilio.rest.api.v2010.account.Message;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
 
+import java.util.concurrent.CompletableFuture;
+
 @ConditionalOnProperty(
         value = "twilio.enable",
         havingValue = "true"
@@ -22,14 +24,25 @@ public class TwilioService implements CardPaymentSender {
 
     private final TwilioApi twilioApi;
 
+    private final ProviderCallExecutor providerCallExecutor;
+
     @Autowired
-    public TwilioService(TwilioApi twilioApi) {
+    public TwilioService(TwilioApi twilioApi, ProviderCallExecutor providerCallExecutor) {
         this.twilioApi = twilioApi;
+        this.providerCallExecutor = providerCallExecutor;
     }
 
     @Override
     public Message.Status sendSms(String phoneNumber, String textMessage) {
-        Twilio.init(ACCOUNT_SID, AUTH_TOKEN);
+        return providerCallExecutor.call("twilio", () -> send(phoneNumber, textMessage));
+    }
+
+    @Override
+    public CompletableFuture<Message.Status> sendSmsAsync(String phoneNumber, String textMessage) {
+        return providerCallExecutor.callAsync("twilio", () -> send(phoneNumber, textMessage));
+    }
+
+    private Message.Status send(String phoneNumber, String textMessage) {
         return twilioApi.create(TWILIO_PHONE_NUMBER, phoneNumber, textMessage);
     }
 }
@@ -0,0 +1,116 @@
+package com.amigoscode.testing.utils;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+public class BloomFilter {
+
+    private final AtomicLongArray bits;
+
+    private final long bitSize;
+
+    private final int hashFunctions;
+
+    private final LongAdder bitCount = new LongAdder();
+
+    private final LongAdder insertions = new LongAdder();
+
+    public BloomFilter(long bitSize, int hashFunctions) {
+        if (bitSize <= 0 || hashFunctions <= 0) {
+            throw new IllegalArgumentException("bitSize and hashFunctions must be positive");
+        }
+        this.bits = new AtomicLongArray((int) ((bitSize + 63) / 64));
+        this.bitSize = (long) bits.length() * 64;
+        this.hashFunctions = hashFunctions;
+    }
+
+    public static BloomFilter create(long expectedInsertions, double falsePositiveRate) {
+        if (expectedInsertions <= 0 || falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException(String.format(
+                    "cannot create filter for [%d] insertions at [%f] false positive rate",
+                    expectedInsertions, falsePositiveRate));
+        }
+        long bitSize = (long) Math.ceil(-expectedInsertions * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        int hashFunctions = Math.max(1, (int) Math.round((double) bitSize / expectedInsertions * Math.log(2)));
+        return new BloomFilter(bitSize, hashFunctions);
+    }
+
+    public void put(CharSequence value) {
+        long hash = hash(value);
+        int hash1 = (int) hash;
+        int hash2 = (int) (hash >>> 32);
+
+        for (int i = 1; i <= hashFunctions; i++) {
+            if (setBit(index(hash1 + i * hash2))) {
+                bitCount.increment();
+            }
+        }
+        insertions.increment();
+    }
+
+    public boolean mightContain(CharSequence value) {
+        long hash = hash(value);
+        int hash1 = (int) hash;
+        int hash2 = (int) (hash >>> 32);
+
+        for (int i = 1; i <= hashFunctions; i++) {
+            if (!getBit(index(hash1 + i * hash2))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public long bitSize() {
+        return bitSize;
+    }
+
+    public int hashFunctions() {
+        return hashFunctions;
+    }
+
+    public long insertions() {
+        return insertions.sum();
+    }
+
+    public double expectedFalsePositiveRate() {
+        return Math.pow((double) bitCount.sum() / bitSize, hashFunctions);
+    }
+
+    private long index(int combinedHash) {
+        // flip negative hashes to keep the index in range
+        return (combinedHash < 0 ? ~combinedHash : combinedHash) % bitSize;
+    }
+
+    private boolean setBit(long index) {
+        int word = (int) (index >>> 6);
+        long mask = 1L << index;
+        long current;
+        do {
+            current = bits.get(word);
+            if ((current & mask) != 0) {
+                return false;
+            }
+        } while (!bits.compareAndSet(word, current, current | mask));
+        return true;
+    }
+
+    private boolean getBit(long index) {
+        return (bits.get((int) (index >>> 6)) & (1L << index)) != 0;
+    }
+
+    private static long hash(CharSequence value) {
+        // FNV-1a over the chars followed by the murmur3 finalizer to spread the bits
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
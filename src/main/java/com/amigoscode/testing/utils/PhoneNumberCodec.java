@@ -0,0 +1,35 @@
+package com.amigoscode.testing.utils;
+
+// E.164 numbers are '+' followed by at most 15 digits, the first one never 0,
+// so the digits fit in a long and the text form can be rebuilt from it
+public final class PhoneNumberCodec {
+
+    private static final int MAX_DIGITS = 15;
+
+    private PhoneNumberCodec() {
+    }
+
+    public static long encode(CharSequence phoneNumber) {
+        int length = phoneNumber.length();
+        if (length < 2 || length - 1 > MAX_DIGITS || phoneNumber.charAt(0) != '+' || phoneNumber.charAt(1) == '0') {
+            throw new IllegalArgumentException("Phone Number " + phoneNumber + " is not in E.164 format");
+        }
+
+        long encoded = 0;
+        for (int i = 1; i < length; i++) {
+            char c = phoneNumber.charAt(i);
+            if (c < '0' || c > '9') {
+                throw new IllegalArgumentException("Phone Number " + phoneNumber + " is not in E.164 format");
+            }
+            encoded = encoded * 10 + (c - '0');
+        }
+        return encoded;
+    }
+
+    public static String decode(long phoneNumber) {
+        if (phoneNumber <= 0) {
+            throw new IllegalArgumentException("Phone Number " + phoneNumber + " is not an encoded E.164 number");
+        }
+        return "+" + phoneNumber;
+    }
+}
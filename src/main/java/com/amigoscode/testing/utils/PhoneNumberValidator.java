@@ -7,8 +7,133 @@ import java.util.function.Predicate;
 @Service
 public class PhoneNumberValidator implements Predicate<String> {
 
+    // E.164 numbers are at most 15 digits, calling code included
+    private static final int MAX_DIGITS = 15;
+
+    private static final CallingCodeNode CALLING_CODES = new CallingCodeNode();
+
+    static {
+        // calling code, min and max length of the national significant number
+        region("1", 10, 10);    // US, CA and the rest of NANP
+        region("7", 10, 10);    // RU, KZ
+        region("20", 9, 10);    // EG
+        region("27", 9, 9);     // ZA
+        region("30", 10, 10);   // GR
+        region("31", 9, 9);     // NL
+        region("32", 8, 9);     // BE
+        region("33", 9, 9);     // FR
+        region("34", 9, 9);     // ES
+        region("36", 8, 9);     // HU
+        region("39", 6, 11);    // IT
+        region("40", 9, 9);     // RO
+        region("41", 9, 9);     // CH
+        region("43", 7, 13);    // AT
+        region("44", 10, 10);   // GB
+        region("45", 8, 8);     // DK
+        region("46", 7, 10);    // SE
+        region("47", 8, 8);     // NO
+        region("48", 9, 9);     // PL
+        region("49", 6, 13);    // DE
+        region("51", 9, 9);     // PE
+        region("52", 10, 10);   // MX
+        region("54", 10, 10);   // AR
+        region("55", 10, 11);   // BR
+        region("56", 9, 9);     // CL
+        region("57", 10, 10);   // CO
+        region("60", 9, 10);    // MY
+        region("61", 9, 9);     // AU
+        region("62", 9, 12);    // ID
+        region("63", 10, 10);   // PH
+        region("64", 8, 10);    // NZ
+        region("65", 8, 8);     // SG
+        region("66", 9, 9);     // TH
+        region("81", 9, 10);    // JP
+        region("82", 8, 10);    // KR
+        region("84", 9, 10);    // VN
+        region("86", 10, 11);   // CN
+        region("90", 10, 10);   // TR
+        region("91", 10, 10);   // IN
+        region("92", 10, 10);   // PK
+        region("212", 9, 9);    // MA
+        region("234", 8, 10);   // NG
+        region("254", 9, 9);    // KE
+        region("351", 9, 9);    // PT
+        region("353", 7, 9);    // IE
+        region("420", 9, 9);    // CZ
+        region("852", 8, 8);    // HK
+        region("966", 9, 9);    // SA
+        region("971", 8, 9);    // AE
+        region("972", 8, 9);    // IL
+    }
+
     @Override
     public boolean test(String phoneNumber) {
-        return phoneNumber.startsWith("+44") && phoneNumber.length() == 13;
+        return isValid(phoneNumber);
+    }
+
+    public boolean isValid(CharSequence phoneNumber) {
+        if (phoneNumber == null || phoneNumber.length() < 2 || phoneNumber.charAt(0) != '+') {
+            return false;
+        }
+
+        int length = phoneNumber.length();
+        if (length - 1 > MAX_DIGITS) {
+            return false;
+        }
+
+        // 1. Walk the calling code trie, calling codes are prefix free so the first region wins
+        CallingCodeNode node = CALLING_CODES;
+        int position = 1;
+        while (!node.isRegion()) {
+            if (position == length) {
+                return false;
+            }
+            int digit = phoneNumber.charAt(position++) - '0';
+            if (digit < 0 || digit > 9 || node.children[digit] == null) {
+                return false;
+            }
+            node = node.children[digit];
+        }
+
+        // 2. Check the length of the national significant number for the region
+        int nationalLength = length - position;
+        if (nationalLength < node.minLength || nationalLength > node.maxLength) {
+            return false;
+        }
+
+        // 3. The rest must be digits only
+        for (int i = position; i < length; i++) {
+            char c = phoneNumber.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void region(String callingCode, int minLength, int maxLength) {
+        CallingCodeNode node = CALLING_CODES;
+        for (int i = 0; i < callingCode.length(); i++) {
+            int digit = callingCode.charAt(i) - '0';
+            if (node.children[digit] == null) {
+                node.children[digit] = new CallingCodeNode();
+            }
+            node = node.children[digit];
+        }
+        node.minLength = minLength;
+        node.maxLength = maxLength;
+    }
+
+    private static final class CallingCodeNode {
+
+        private final CallingCodeNode[] children = new CallingCodeNode[10];
+
+        private int minLength;
+
+        private int maxLength;
+
+        private boolean isRegion() {
+            return maxLength > 0;
+        }
     }
 }
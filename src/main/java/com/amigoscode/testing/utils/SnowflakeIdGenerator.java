@@ -0,0 +1,63 @@
+package com.amigoscode.testing.utils;
+
+import java.time.Clock;
+import java.util.concurrent.atomic.AtomicLong;
+
+// 64 bit ids: 41 bits of millis since 2020-01-01, 10 bits of node id, 12 bits of per millisecond counter.
+// Ids from one generator are strictly increasing, ids from generators with different node ids never collide.
+public class SnowflakeIdGenerator {
+
+    static final long EPOCH_MILLIS = 1_577_836_800_000L;
+
+    static final int NODE_ID_BITS = 10;
+
+    static final int SEQUENCE_BITS = 12;
+
+    public static final long MAX_NODE_ID = (1L << NODE_ID_BITS) - 1;
+
+    private final long nodeId;
+
+    private final long maxDriftMillis;
+
+    private final Clock clock;
+
+    // millis since epoch << SEQUENCE_BITS | counter of the last id handed out
+    private final AtomicLong lastState = new AtomicLong();
+
+    public SnowflakeIdGenerator(long nodeId, long maxDriftMillis) {
+        this(nodeId, maxDriftMillis, Clock.systemUTC());
+    }
+
+    public SnowflakeIdGenerator(long nodeId, long maxDriftMillis, Clock clock) {
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException(String.format("node id %d is not between 0 and %d", nodeId, MAX_NODE_ID));
+        }
+        this.nodeId = nodeId;
+        this.maxDriftMillis = maxDriftMillis;
+        this.clock = clock;
+    }
+
+    public long nextId() {
+        while (true) {
+            long last = lastState.get();
+            long now = clock.millis() - EPOCH_MILLIS;
+
+            // a new millisecond restarts the counter. Within the same millisecond, after the clock went back
+            // or once the counter is exhausted, keep counting from the last id, which carries into the next
+            // millisecond, so ids never repeat or go backwards
+            long next = now > (last >>> SEQUENCE_BITS) ? now << SEQUENCE_BITS : last + 1;
+
+            long drift = (next >>> SEQUENCE_BITS) - now;
+            if (drift > maxDriftMillis) {
+                throw new IllegalStateException(String.format(
+                        "Clock is %d ms behind the last generated id, more than the allowed %d ms", drift, maxDriftMillis));
+            }
+
+            if (lastState.compareAndSet(last, next)) {
+                long timestamp = next >>> SEQUENCE_BITS;
+                long sequence = next & ((1L << SEQUENCE_BITS) - 1);
+                return (timestamp << (NODE_ID_BITS + SEQUENCE_BITS)) | (nodeId << SEQUENCE_BITS) | sequence;
+            }
+        }
+    }
+}
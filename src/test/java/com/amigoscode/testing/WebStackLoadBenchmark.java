@@ -0,0 +1,156 @@
+package com.amigoscode.testing;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaderValues;
+import io.netty.handler.codec.http.HttpMethod;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.ByteBufFlux;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Boots the application once on the servlet stack and once on the reactive profile, then keeps
+// -Dconnections concurrent connections busy reading one customer's payment history.
+// Client and server share the JVM, so 10k connections need about 20k file descriptors (ulimit -n).
+// Run with: mvn test-compile exec:java -Dexec.classpathScope=test
+//   -Dexec.mainClass=com.amigoscode.testing.WebStackLoadBenchmark -Dconnections=10000 -Drequests=10
+public class WebStackLoadBenchmark {
+
+    private static final org.slf4j.Logger LOGGER = LoggerFactory.getLogger(WebStackLoadBenchmark.class);
+
+    public static void main(String[] args) {
+        // logback defaults to debug until Spring Boot starts and reactor netty logs every connection
+        ((Logger) LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME)).setLevel(Level.INFO);
+
+        int connections = Integer.getInteger("connections", 10_000);
+        int requestsPerConnection = Integer.getInteger("requests", 10);
+
+        for (String stack : List.of("servlet", "reactive")) {
+            run(stack, connections, requestsPerConnection);
+        }
+    }
+
+    private static void run(String stack, int connections, int requestsPerConnection) {
+        SpringApplicationBuilder application = new SpringApplicationBuilder(TestingApplication.class)
+                .properties(
+                        "server.port=0",
+                        "server.tomcat.max-connections=" + connections,
+                        "spring.main.web-application-type=" + stack,
+                        "logging.level.root=WARN",
+                        "logging.level.com.amigoscode.testing.WebStackLoadBenchmark=INFO");
+        if ("reactive".equals(stack)) {
+            application.profiles("reactive");
+        }
+
+        ConnectionProvider connectionProvider = ConnectionProvider.builder("load")
+                .maxConnections(connections)
+                .pendingAcquireTimeout(Duration.ofSeconds(60))
+                .build();
+        try (ConfigurableApplicationContext context = application.run()) {
+            int port = context.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+            HttpClient client = HttpClient.create(connectionProvider)
+                    .baseUrl("http://localhost:" + port);
+
+            String historyUri = "/api/v1/payment?limit=20&customerId=" + seed(client);
+
+            // warm up both stacks the same way before measuring
+            load(client, historyUri, Math.min(connections, 100), 1_000);
+
+            int requests = connections * requestsPerConnection;
+            long start = System.nanoTime();
+            Result result = load(client, historyUri, connections, requests);
+            long elapsedNanos = System.nanoTime() - start;
+
+            LOGGER.info(String.format("%-8s connections=%d requests=%d errors=%d throughput=%.0f req/s p50=%.1f ms p99=%.1f ms",
+                    stack, connections, requests, result.errors,
+                    requests / (elapsedNanos / 1e9),
+                    result.percentileMillis(0.50),
+                    result.percentileMillis(0.99)));
+        } finally {
+            connectionProvider.dispose();
+        }
+    }
+
+    private static UUID seed(HttpClient client) {
+        UUID customerId = UUID.randomUUID();
+        send(client, "PUT", "/api/v1/customer-registration",
+                "{\"customer\":{\"id\":\"" + customerId + "\",\"name\":\"James\",\"phoneNumber\":\"+447000000000\"}}");
+        for (int i = 0; i < 20; i++) {
+            send(client, "POST", "/api/v1/payment",
+                    "{\"payment\":{\"customerId\":\"" + customerId + "\",\"amount\":\"10.00\",\"currency\":\"GBP\","
+                            + "\"source\":\"x0x0x0\",\"description\":\"Zakat\"}}");
+        }
+        return customerId;
+    }
+
+    private static void send(HttpClient client, String method, String uri, String json) {
+        int status = client
+                .headers(headers -> headers.set(HttpHeaderNames.CONTENT_TYPE, HttpHeaderValues.APPLICATION_JSON))
+                .request(HttpMethod.valueOf(method))
+                .uri(uri)
+                .send(ByteBufFlux.fromString(Mono.just(json)))
+                .responseSingle((response, body) -> body.then(Mono.just(response.status().code())))
+                .block();
+        if (status != 200) {
+            throw new IllegalStateException(String.format("%s %s answered [%d]", method, uri, status));
+        }
+    }
+
+    private static Result load(HttpClient client, String uri, int concurrency, int requests) {
+        long[] latencies = new long[requests];
+        AtomicInteger completed = new AtomicInteger();
+        AtomicInteger errors = new AtomicInteger();
+
+        Flux.range(0, requests)
+                .flatMap(i -> Mono.defer(() -> {
+                    long start = System.nanoTime();
+                    return client.get()
+                            .uri(uri)
+                            .responseSingle((response, body) -> body.then(Mono.just(response.status().code())))
+                            .timeout(Duration.ofSeconds(60))
+                            .doOnNext(status -> {
+                                latencies[completed.getAndIncrement()] = System.nanoTime() - start;
+                                if (status != 200) {
+                                    errors.incrementAndGet();
+                                }
+                            });
+                }).onErrorResume(e -> {
+                    errors.incrementAndGet();
+                    return Mono.empty();
+                }), concurrency)
+                .blockLast();
+
+        return new Result(Arrays.copyOf(latencies, completed.get()), errors.get());
+    }
+
+    private static class Result {
+
+        private final long[] latencies;
+
+        private final int errors;
+
+        Result(long[] latencies, int errors) {
+            Arrays.sort(latencies);
+            this.latencies = latencies;
+            this.errors = errors;
+        }
+
+        double percentileMillis(double percentile) {
+            if (latencies.length == 0) {
+                return Double.NaN;
+            }
+            return latencies[(int) Math.min(latencies.length - 1, percentile * latencies.length)] / 1e6;
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.amigoscode.testing.customer;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest(
+        properties = {
+                "spring.jpa.properties.javax.persistence.validation.mode=none"
+        }
+)
+@Import({CustomerBatchRepository.class, TextPhoneNumberColumn.class})
+class CustomerBatchRepositoryTest {
+
+    @Autowired
+    private CustomerBatchRepository underTest;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Test
+    void itShouldInsertAllCustomersInBatches() {
+        // Given
+        Customer maryam = new Customer(UUID.randomUUID(), "Maryam", "+447000000001");
+        Customer james = new Customer(UUID.randomUUID(), "James", "+447000000002");
+        Customer abel = new Customer(UUID.randomUUID(), "Abel", "+447000000003");
+
+        // When
+        underTest.insertAll(List.of(maryam, james, abel), 2);
+
+        // Then
+        assertThat(customerRepository.findById(james.getId()))
+                .isPresent()
+                .hasValueSatisfying(c -> assertThat(c).isEqualToComparingFieldByField(james));
+        assertThat(customerRepository.selectCustomersByPhoneNumbers(
+                List.of(maryam.getPhoneNumber(), abel.getPhoneNumber())))
+                .extracting(Customer::getName)
+                .containsExactlyInAnyOrder("Maryam", "Abel");
+    }
+}
@@ -0,0 +1,75 @@
+package com.amigoscode.testing.customer;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest(
+        properties = {
+                "spring.jpa.properties.javax.persistence.validation.mode=none",
+                "customer.phone-number.encoding=bigint"
+        }
+)
+@Import({TextPhoneNumberColumn.class, BigintPhoneNumberColumn.class, CustomerBatchRepository.class})
+class CustomerBigintPhoneNumberRepositoryTest {
+
+    @Autowired
+    private CustomerRepository underTest;
+
+    @Autowired
+    private CustomerBatchRepository customerBatchRepository;
+
+    @Autowired
+    private PhoneNumberColumn phoneNumberColumn;
+
+    @Autowired
+    private TestEntityManager testEntityManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void itShouldStorePhoneNumberAsNumber() {
+        // Given
+        UUID id = UUID.randomUUID();
+        underTest.save(new Customer(id, "Abel", "+447000000000"));
+        testEntityManager.flush();
+
+        // When
+        Long storedPhoneNumber = jdbcTemplate.queryForObject("SELECT phone_number FROM customer", Long.class);
+
+        // Then
+        assertThat(phoneNumberColumn).isInstanceOf(BigintPhoneNumberColumn.class);
+        assertThat(storedPhoneNumber).isEqualTo(447000000000L);
+        assertThat(underTest.selectPhoneNumberById(id)).isEqualTo("+447000000000");
+        List<Customer> customers = underTest.selectCustomersByPhoneNumbers(List.of("+447000000000"));
+        assertThat(customers.size()).isEqualTo(1);
+        assertThat(customers.get(0).getPhoneNumber()).isEqualTo("+447000000000");
+    }
+
+    @Test
+    void itShouldInsertThroughNativeAndBatchStatements() {
+        // Given
+        UUID abel = UUID.randomUUID();
+        Customer ana = new Customer(UUID.randomUUID(), "Ana", "+447000000001");
+
+        // When
+        int inserted = underTest.insertCustomerIfPhoneNumberAbsent(abel, "Abel", phoneNumberColumn.toColumn("+447000000000"));
+        customerBatchRepository.insertAll(List.of(ana), 10);
+
+        // Then
+        assertThat(inserted).isEqualTo(1);
+        assertThat(underTest.selectCustomerByPhoneNumber("+447000000000"))
+                .hasValueSatisfying(c -> assertThat(c.getId()).isEqualTo(abel));
+        assertThat(underTest.selectCustomerByPhoneNumber("+447000000001"))
+                .hasValueSatisfying(c -> assertThat(c.getName()).isEqualTo("Ana"));
+    }
+}
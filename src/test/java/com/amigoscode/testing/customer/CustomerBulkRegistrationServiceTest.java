@@ -0,0 +1,172 @@
+package com.amigoscode.testing.customer;
+
+import com.amigoscode.testing.customer.CustomerRegistrationResult.Status;
+import com.amigoscode.testing.utils.PhoneNumberValidator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.then;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+
+class CustomerBulkRegistrationServiceTest {
+
+    @Mock
+    private CustomerRepository customerRepository;
+
+    @Mock
+    private CustomerBatchRepository customerBatchRepository;
+
+    @Mock
+    private PhoneNumberValidator phoneNumberValidator;
+
+    @Mock
+    private PhoneNumberFilter phoneNumberFilter;
+
+    @Mock
+    private CustomerCache customerCache;
+
+    @Captor
+    private ArgumentCaptor<List<Customer>> customersArgumentCaptor;
+
+    private CustomerBulkRegistrationService underTest;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.initMocks(this);
+        TransactionTemplate transactionTemplate = new TransactionTemplate(mock(PlatformTransactionManager.class));
+        underTest = new CustomerBulkRegistrationService(
+                customerRepository, customerBatchRepository, phoneNumberValidator, phoneNumberFilter, customerCache,
+                new TimeOrderedCustomerIdGenerator(), transactionTemplate, 2);
+    }
+
+    @Test
+    void itShouldRegisterCustomersInChunks() {
+        // Given three new customers and a batch size of two
+        List<CustomerRegistrationRequest> requests = List.of(
+                new CustomerRegistrationRequest(new Customer(null, "Maryam", "+447000000001")),
+                new CustomerRegistrationRequest(new Customer(null, "James", "+447000000002")),
+                new CustomerRegistrationRequest(new Customer(null, "Abel", "+447000000003"))
+        );
+
+        // ... valid phone numbers
+        given(phoneNumberValidator.test(anyString())).willReturn(true);
+
+        // ... that might be taken
+        given(phoneNumberFilter.mightContain(anyString())).willReturn(true);
+
+        // ... none of them taken
+        given(customerRepository.selectCustomersByPhoneNumbers(anyCollection())).willReturn(List.of());
+
+        // When
+        List<CustomerRegistrationResult> results = new ArrayList<>();
+        underTest.registerNewCustomers(requests.iterator(), results::add);
+
+        // Then one lookup and one insert per chunk
+        then(customerRepository).should(times(2)).selectCustomersByPhoneNumbers(anyCollection());
+        then(customerBatchRepository).should(times(2)).insertAll(customersArgumentCaptor.capture(), anyInt());
+        assertThat(customersArgumentCaptor.getAllValues().get(0))
+                .extracting(Customer::getName)
+                .containsExactly("Maryam", "James");
+        assertThat(customersArgumentCaptor.getAllValues().get(1))
+                .allSatisfy(c -> assertThat(c.getId()).isNotNull());
+
+        assertThat(results)
+                .extracting(CustomerRegistrationResult::getIndex, CustomerRegistrationResult::getStatus)
+                .containsExactly(
+                        tuple(0L, Status.REGISTERED),
+                        tuple(1L, Status.REGISTERED),
+                        tuple(2L, Status.REGISTERED)
+                );
+    }
+
+    @Test
+    void itShouldApplyRegistrationRulesPerRow() {
+        // Given an existing customer
+        String phoneNumber = "+447000000001";
+        Customer existing = new Customer(UUID.randomUUID(), "Maryam", phoneNumber);
+
+        // ... rows for the same customer, a different name, an invalid number and a duplicate within the chunk
+        List<CustomerRegistrationRequest> requests = List.of(
+                new CustomerRegistrationRequest(new Customer(null, "Maryam", phoneNumber)),
+                new CustomerRegistrationRequest(new Customer(null, "Gomez", phoneNumber)),
+                new CustomerRegistrationRequest(new Customer(null, "Abel", "0000")),
+                new CustomerRegistrationRequest(new Customer(null, "James", "+447000000002")),
+                new CustomerRegistrationRequest(new Customer(null, "Ali", "+447000000002"))
+        );
+
+        given(phoneNumberValidator.test(anyString())).willReturn(true);
+        given(phoneNumberValidator.test("0000")).willReturn(false);
+        given(phoneNumberFilter.mightContain(anyString())).willReturn(true);
+        given(customerRepository.selectCustomersByPhoneNumbers(anyCollection())).willReturn(List.of(existing));
+
+        underTest = new CustomerBulkRegistrationService(
+                customerRepository, customerBatchRepository, phoneNumberValidator, phoneNumberFilter, customerCache,
+                new TimeOrderedCustomerIdGenerator(), new TransactionTemplate(mock(PlatformTransactionManager.class)), 10);
+
+        // When
+        List<CustomerRegistrationResult> results = new ArrayList<>();
+        underTest.registerNewCustomers(requests.iterator(), results::add);
+
+        // Then
+        assertThat(results)
+                .extracting(CustomerRegistrationResult::getStatus)
+                .containsExactly(
+                        Status.ALREADY_REGISTERED,
+                        Status.PHONE_NUMBER_TAKEN,
+                        Status.INVALID,
+                        Status.REGISTERED,
+                        Status.PHONE_NUMBER_TAKEN
+                );
+        assertThat(results.get(1).getMessage()).isEqualTo("phone number [" + phoneNumber + "] is taken");
+
+        then(customerBatchRepository).should().insertAll(customersArgumentCaptor.capture(), anyInt());
+        assertThat(customersArgumentCaptor.getValue())
+                .extracting(Customer::getName)
+                .containsExactly("James");
+    }
+
+    @Test
+    void itShouldNotSelectPhoneNumbersThatAreDefinitelyNotTaken() {
+        // Given
+        List<CustomerRegistrationRequest> requests = List.of(
+                new CustomerRegistrationRequest(new Customer(null, "Maryam", "+447000000001")),
+                new CustomerRegistrationRequest(new Customer(null, "James", "+447000000002"))
+        );
+
+        given(phoneNumberValidator.test(anyString())).willReturn(true);
+
+        // ... the filter has never seen these phone numbers
+        given(phoneNumberFilter.mightContain(anyString())).willReturn(false);
+
+        // When
+        List<CustomerRegistrationResult> results = new ArrayList<>();
+        underTest.registerNewCustomers(requests.iterator(), results::add);
+
+        // Then
+        then(customerRepository).shouldHaveNoInteractions();
+        then(customerBatchRepository).should().insertAll(anyList(), anyInt());
+        then(phoneNumberFilter).should().put("+447000000001");
+        then(phoneNumberFilter).should().put("+447000000002");
+        assertThat(results)
+                .extracting(CustomerRegistrationResult::getStatus)
+                .containsOnly(Status.REGISTERED);
+    }
+}
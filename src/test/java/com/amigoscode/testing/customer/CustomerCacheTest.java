@@ -0,0 +1,107 @@
+package com.amigoscode.testing.customer;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.then;
+import static org.mockito.Mockito.times;
+
+class CustomerCacheTest {
+
+    @Mock
+    private CustomerRepository customerRepository;
+
+    private MeterRegistry meterRegistry;
+
+    private CustomerCache underTest;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.initMocks(this);
+        meterRegistry = new SimpleMeterRegistry();
+        underTest = new CustomerCache(customerRepository, meterRegistry, true, 100);
+    }
+
+    @Test
+    void itShouldLoadCustomerOnlyOnce() {
+        // Given
+        UUID id = UUID.randomUUID();
+        CustomerContact customer = new CustomerContact(id, "Maryam", "+447000000000");
+        given(customerRepository.selectContactById(id)).willReturn(Optional.of(customer));
+
+        // When
+        Optional<CustomerContact> first = underTest.getCustomer(id);
+        Optional<CustomerContact> second = underTest.getCustomer(id);
+
+        // Then
+        assertThat(first).contains(new CustomerContact(id, "Maryam", "+447000000000"));
+        assertThat(second).isEqualTo(first);
+        then(customerRepository).should(times(1)).selectContactById(id);
+        assertThat(meterRegistry.get("cache.gets").tag("result", "hit").functionCounter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("cache.gets").tag("result", "miss").functionCounter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void itShouldNotCacheUnknownCustomer() {
+        // Given
+        UUID id = UUID.randomUUID();
+        given(customerRepository.selectContactById(id)).willReturn(Optional.empty());
+
+        // When
+        underTest.getCustomer(id);
+        Optional<CustomerContact> customer = underTest.getCustomer(id);
+
+        // Then
+        assertThat(customer).isNotPresent();
+        then(customerRepository).should(times(2)).selectContactById(id);
+    }
+
+    @Test
+    void itShouldLoadCustomerAgainWhenInvalidated() {
+        // Given
+        UUID id = UUID.randomUUID();
+        given(customerRepository.selectContactById(id))
+                .willReturn(Optional.of(new CustomerContact(id, "Maryam", "+447000000000")));
+        underTest.getCustomer(id);
+
+        // When
+        underTest.invalidate(id);
+        underTest.getCustomer(id);
+
+        // Then
+        then(customerRepository).should(times(2)).selectContactById(id);
+    }
+
+    @Test
+    void itShouldAlwaysLoadCustomerWhenDisabled() {
+        // Given
+        underTest = new CustomerCache(customerRepository, meterRegistry, false, 100);
+        UUID id = UUID.randomUUID();
+        given(customerRepository.selectContactById(id))
+                .willReturn(Optional.of(new CustomerContact(id, "Maryam", "+447000000000")));
+
+        // When
+        underTest.getCustomer(id);
+        underTest.getCustomer(id);
+
+        // Then
+        then(customerRepository).should(times(2)).selectContactById(id);
+    }
+
+    @Test
+    void itShouldNotFindCustomerWhenIdIsNull() {
+        // When
+        // Then
+        assertThat(underTest.getCustomer(null)).isNotPresent();
+        then(customerRepository).shouldHaveNoInteractions();
+    }
+}
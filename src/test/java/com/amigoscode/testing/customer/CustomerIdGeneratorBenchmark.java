@@ -0,0 +1,94 @@
+package com.amigoscode.testing.customer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+
+// Inserts into a file based H2 customer table shaped like the one Hibernate creates.
+// Run with: mvn test-compile exec:java -Dexec.classpathScope=test
+//   -Dexec.mainClass=com.amigoscode.testing.customer.CustomerIdGeneratorBenchmark
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CustomerIdGeneratorBenchmark {
+
+    private static final int BATCH_SIZE = 1_000;
+
+    @Param({"random", "time-ordered"})
+    private String idGenerator;
+
+    private CustomerIdGenerator generator;
+
+    private Connection connection;
+
+    private PreparedStatement insert;
+
+    private long phoneNumber;
+
+    @Setup(Level.Iteration)
+    public void setUp() throws SQLException {
+        generator = "random".equals(idGenerator)
+                ? new RandomCustomerIdGenerator()
+                : new TimeOrderedCustomerIdGenerator();
+
+        connection = DriverManager.getConnection("jdbc:h2:./target/customer-id-benchmark", "sa", "");
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE IF EXISTS customer");
+            statement.execute("CREATE TABLE customer (" +
+                    "id BINARY(16) NOT NULL PRIMARY KEY, " +
+                    "name VARCHAR(255) NOT NULL, " +
+                    "phone_number VARCHAR(255) NOT NULL UNIQUE)");
+        }
+        insert = connection.prepareStatement("INSERT INTO customer (id, name, phone_number) VALUES (?, ?, ?)");
+        phoneNumber = 447_000_000_000L;
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() throws SQLException {
+        insert.close();
+        connection.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public int[] insertCustomers() throws SQLException {
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            insert.setObject(1, generator.generateId());
+            insert.setString(2, "Maryam");
+            insert.setString(3, "+" + phoneNumber++);
+            insert.addBatch();
+        }
+        return insert.executeBatch();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(CustomerIdGeneratorBenchmark.class.getSimpleName())
+                .build()
+        ).run();
+    }
+}
@@ -7,6 +7,7 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.Captor;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.dao.DataIntegrityViolationException;
 
 import java.util.Optional;
 import java.util.UUID;
@@ -14,6 +15,8 @@ import java.util.UUID;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.BDDMockito.then;
 import static org.mockito.Mockito.never;
@@ -26,15 +29,22 @@ class CustomerRegistrationServiceTest {
     @Mock
     private PhoneNumberValidator phoneNumberValidator;
 
+    @Mock
+    private PhoneNumberFilter phoneNumberFilter;
+
+    @Mock
+    private CustomerCache customerCache;
+
     @Captor
-    private ArgumentCaptor<Customer> customerArgumentCaptor;
+    private ArgumentCaptor<UUID> idArgumentCaptor;
 
     private CustomerRegistrationService underTest;
 
     @BeforeEach
     void setUp() {
         MockitoAnnotations.initMocks(this);
-        underTest = new CustomerRegistrationService(customerRepository, phoneNumberValidator);
+        underTest = new CustomerRegistrationService(customerRepository, phoneNumberValidator, phoneNumberFilter, customerCache,
+                new TimeOrderedCustomerIdGenerator(), new TextPhoneNumberColumn());
     }
 
     @Test
@@ -47,8 +57,8 @@ class CustomerRegistrationServiceTest {
         CustomerRegistrationRequest request = new CustomerRegistrationRequest(customer);
 
         // ... no customer with phone number passed
-        given(customerRepository.selectCustomerByPhoneNumber(phoneNumber))
-                .willReturn(Optional.empty());
+        given(customerRepository.insertCustomerIfPhoneNumberAbsent(customer.getId(), "Maryam", phoneNumber))
+                .willReturn(1);
 
         // ... valid phone number
         given(phoneNumberValidator.test(phoneNumber)).willReturn(true);
@@ -57,9 +67,9 @@ class CustomerRegistrationServiceTest {
         underTest.registerNewCustomer(request);
 
         // Then
-        then(customerRepository).should().save(customerArgumentCaptor.capture());
-        Customer customerArgumentCaptorValue = customerArgumentCaptor.getValue();
-        assertThat(customerArgumentCaptorValue).isEqualToComparingFieldByField(customer);
+        then(customerRepository).should().insertCustomerIfPhoneNumberAbsent(customer.getId(), "Maryam", phoneNumber);
+        then(customerRepository).shouldHaveNoMoreInteractions();
+        then(phoneNumberFilter).should().put(phoneNumber);
     }
 
     @Test
@@ -91,8 +101,8 @@ class CustomerRegistrationServiceTest {
 
         // ... a request
         CustomerRegistrationRequest request = new CustomerRegistrationRequest(customer);
-        given(customerRepository.selectCustomerByPhoneNumber(phoneNumber))
-                .willReturn(Optional.empty());
+        given(customerRepository.insertCustomerIfPhoneNumberAbsent(any(UUID.class), eq("Maryam"), eq(phoneNumber)))
+                .willReturn(1);
 
         // ... valid phone number
         given(phoneNumberValidator.test(phoneNumber)).willReturn(true);
@@ -101,11 +111,10 @@ class CustomerRegistrationServiceTest {
         underTest.registerNewCustomer(request);
 
         // Then
-        then(customerRepository).should().save(customerArgumentCaptor.capture());
-        Customer customerArgumentCaptorValue = customerArgumentCaptor.getValue();
-        assertThat(customerArgumentCaptorValue)
-                .isEqualToIgnoringGivenFields(customer, "id");
-        assertThat(customerArgumentCaptorValue.getId()).isNotNull();
+        then(customerRepository).should()
+                .insertCustomerIfPhoneNumberAbsent(idArgumentCaptor.capture(), eq("Maryam"), eq(phoneNumber));
+        assertThat(idArgumentCaptor.getValue()).isNotNull();
+        assertThat(customer.getId()).isEqualTo(idArgumentCaptor.getValue());
     }
 
     @Test
@@ -117,7 +126,9 @@ class CustomerRegistrationServiceTest {
         // ... a request
         CustomerRegistrationRequest request = new CustomerRegistrationRequest(customer);
 
-        // ... an existing customer is returned
+        // ... phone number is taken and an existing customer is returned
+        given(customerRepository.insertCustomerIfPhoneNumberAbsent(customer.getId(), "Maryam", phoneNumber))
+                .willReturn(0);
         given(customerRepository.selectCustomerByPhoneNumber(phoneNumber))
                 .willReturn(Optional.of(customer));
 
@@ -129,8 +140,32 @@ class CustomerRegistrationServiceTest {
 
         // Then
         then(customerRepository).should(never()).save(any());
-        // then(customerRepository).should().selectCustomerByPhoneNumber(phoneNumber);
-        // then(customerRepository).shouldHaveNoMoreInteractions();
+        then(customerRepository).should().selectCustomerByPhoneNumber(phoneNumber);
+    }
+
+    @Test
+    void itShouldNotThrowWhenSameCustomerIsRegisteredConcurrently() {
+        // Given a phone number and a customer
+        String phoneNumber = "000099";
+        Customer customer = new Customer(UUID.randomUUID(), "Maryam", phoneNumber);
+
+        // ... a request
+        CustomerRegistrationRequest request = new CustomerRegistrationRequest(customer);
+
+        // ... a concurrent registration wins the insert
+        given(customerRepository.insertCustomerIfPhoneNumberAbsent(any(UUID.class), anyString(), anyString()))
+                .willThrow(DataIntegrityViolationException.class);
+        given(customerRepository.selectCustomerByPhoneNumber(phoneNumber))
+                .willReturn(Optional.of(new Customer(UUID.randomUUID(), "Maryam", phoneNumber)));
+
+        // ... valid phone number
+        given(phoneNumberValidator.test(phoneNumber)).willReturn(true);
+
+        // When
+        underTest.registerNewCustomer(request);
+
+        // Then
+        then(customerRepository).should().selectCustomerByPhoneNumber(phoneNumber);
     }
 
     @Test
@@ -143,7 +178,9 @@ class CustomerRegistrationServiceTest {
         // ... a request
         CustomerRegistrationRequest request = new CustomerRegistrationRequest(customer);
 
-        // ... an existing customer is returned
+        // ... phone number is taken and an existing customer is returned
+        given(customerRepository.insertCustomerIfPhoneNumberAbsent(customer.getId(), "Maryam", phoneNumber))
+                .willReturn(0);
         given(customerRepository.selectCustomerByPhoneNumber(phoneNumber))
                 .willReturn(Optional.of(customerTwo));
 
@@ -157,4 +194,29 @@ class CustomerRegistrationServiceTest {
                 .isInstanceOf(IllegalStateException.class);
         then(customerRepository).should(never()).save(any(Customer.class));
     }
-}
\ No newline at end of file
+
+    @Test
+    void itShouldNotInsertCustomerWhenFilterHasSeenPhoneNumberOfSameCustomer() {
+        // Given a phone number and a customer
+        String phoneNumber = "000099";
+        Customer customer = new Customer(UUID.randomUUID(), "Maryam", phoneNumber);
+
+        // ... a request
+        CustomerRegistrationRequest request = new CustomerRegistrationRequest(customer);
+
+        // ... the filter might contain the phone number and an existing customer is returned
+        given(phoneNumberFilter.mightContain(phoneNumber)).willReturn(true);
+        given(customerRepository.selectCustomerByPhoneNumber(phoneNumber))
+                .willReturn(Optional.of(customer));
+
+        // ... valid phone number
+        given(phoneNumberValidator.test(phoneNumber)).willReturn(true);
+
+        // When
+        underTest.registerNewCustomer(request);
+
+        // Then
+        then(customerRepository).should().selectCustomerByPhoneNumber(phoneNumber);
+        then(customerRepository).shouldHaveNoMoreInteractions();
+    }
+}
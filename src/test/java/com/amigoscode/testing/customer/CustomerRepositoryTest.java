@@ -1,8 +1,11 @@
 package com.amigoscode.testing.customer;
 
+import org.hibernate.Session;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
 import org.springframework.dao.DataIntegrityViolationException;
 
 import java.util.Optional;
@@ -13,7 +16,8 @@ import static org.assertj.core.api.AssertionsForClassTypes.assertThatThrownBy;
 
 @DataJpaTest(
         properties = {
-                "spring.jpa.properties.javax.persistence.validation.mode=none"
+                "spring.jpa.properties.javax.persistence.validation.mode=none",
+                "spring.jpa.properties.hibernate.generate_statistics=true"
         }
 )
 class CustomerRepositoryTest {
@@ -21,6 +25,9 @@ class CustomerRepositoryTest {
     @Autowired
     private CustomerRepository underTest;
 
+    @Autowired
+    private TestEntityManager testEntityManager;
+
     @Test
     void itShouldSelectCustomerByPhoneNumber() {
         // Given
@@ -135,4 +142,90 @@ class CustomerRepositoryTest {
 
         assertThat(phoneNumber).isNull();
     }
-}
\ No newline at end of file
+
+    @Test
+    void itShouldInsertCustomerIfPhoneNumberIsAbsent() {
+        // Given
+        UUID id = UUID.randomUUID();
+        String phoneNumber = "0000";
+
+        // When
+        int inserted = underTest.insertCustomerIfPhoneNumberAbsent(id, "Abel", phoneNumber);
+
+        // Then
+        assertThat(inserted).isEqualTo(1);
+        assertThat(underTest.findById(id))
+                .isPresent()
+                .hasValueSatisfying(c -> assertThat(c).isEqualToComparingFieldByField(
+                        new Customer(id, "Abel", phoneNumber)));
+    }
+
+    @Test
+    void itShouldNotInsertCustomerIfPhoneNumberIsTaken() {
+        // Given
+        String phoneNumber = "0000";
+        underTest.save(new Customer(UUID.randomUUID(), "Abel", phoneNumber));
+        UUID id = UUID.randomUUID();
+
+        // When
+        int inserted = underTest.insertCustomerIfPhoneNumberAbsent(id, "Gomez", phoneNumber);
+
+        // Then
+        assertThat(inserted).isEqualTo(0);
+        assertThat(underTest.findById(id)).isNotPresent();
+    }
+
+    @Test
+    void itShouldSelectContactById() {
+        // Given
+        UUID id = UUID.randomUUID();
+        underTest.save(new Customer(id, "Abel", "0000"));
+
+        // When
+        Optional<CustomerContact> contact = underTest.selectContactById(id);
+
+        // Then
+        assertThat(contact).contains(new CustomerContact(id, "Abel", "0000"));
+    }
+
+    @Test
+    void itShouldNotSelectContactByIdWhenCustomerDoesNotExist() {
+        // When
+        // Then
+        assertThat(underTest.selectContactById(UUID.randomUUID())).isNotPresent();
+    }
+
+    @Test
+    void itShouldSelectContactForPaymentInOneQueryWithoutManagedEntity() {
+        // Given a customer that is not in the persistence context
+        UUID id = UUID.randomUUID();
+        underTest.save(new Customer(id, "Abel", "0000"));
+        testEntityManager.flush();
+        testEntityManager.clear();
+
+        Session session = testEntityManager.getEntityManager().unwrap(Session.class);
+        Statistics statistics = session.getSessionFactory().getStatistics();
+
+        // When the payment looks the customer up as it used to
+        statistics.clear();
+        boolean isCustomerFound = underTest.findById(id).isPresent();
+        String phoneNumber = underTest.selectPhoneNumberById(id);
+        long queriesBefore = statistics.getPrepareStatementCount();
+        int managedEntitiesBefore = session.getStatistics().getEntityCount();
+        testEntityManager.clear();
+
+        // ... and with the contact projection
+        statistics.clear();
+        Optional<CustomerContact> contact = underTest.selectContactById(id);
+        long queriesAfter = statistics.getPrepareStatementCount();
+        int managedEntitiesAfter = session.getStatistics().getEntityCount();
+
+        // Then
+        assertThat(isCustomerFound).isTrue();
+        assertThat(contact).hasValueSatisfying(c -> assertThat(c.getPhoneNumber()).isEqualTo(phoneNumber));
+        assertThat(queriesBefore).isEqualTo(2);
+        assertThat(managedEntitiesBefore).isEqualTo(1);
+        assertThat(queriesAfter).isEqualTo(1);
+        assertThat(managedEntitiesAfter).isZero();
+    }
+}
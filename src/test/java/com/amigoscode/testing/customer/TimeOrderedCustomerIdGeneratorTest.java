@@ -0,0 +1,58 @@
+package com.amigoscode.testing.customer;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TimeOrderedCustomerIdGeneratorTest {
+
+    @Test
+    void itShouldGenerateVersion7Ids() {
+        // Given
+        long millis = 1_700_000_000_000L;
+        TimeOrderedCustomerIdGenerator underTest =
+                new TimeOrderedCustomerIdGenerator(Clock.fixed(Instant.ofEpochMilli(millis), ZoneOffset.UTC));
+
+        // When
+        UUID id = underTest.generateId();
+
+        // Then
+        assertThat(id.version()).isEqualTo(7);
+        assertThat(id.variant()).isEqualTo(2);
+        assertThat(id.getMostSignificantBits() >>> 16).isEqualTo(millis);
+    }
+
+    @Test
+    void itShouldOrderIdsByCreationTime() {
+        // Given
+        Instant now = Instant.now();
+        TimeOrderedCustomerIdGenerator before =
+                new TimeOrderedCustomerIdGenerator(Clock.fixed(now, ZoneOffset.UTC));
+        TimeOrderedCustomerIdGenerator after =
+                new TimeOrderedCustomerIdGenerator(Clock.fixed(now.plusMillis(1), ZoneOffset.UTC));
+
+        // When
+        UUID first = before.generateId();
+        UUID second = after.generateId();
+
+        // Then
+        assertThat(Long.compareUnsigned(first.getMostSignificantBits(), second.getMostSignificantBits()))
+                .isNegative();
+    }
+
+    @Test
+    void itShouldGenerateDifferentIdsWithinTheSameMillisecond() {
+        // Given
+        TimeOrderedCustomerIdGenerator underTest =
+                new TimeOrderedCustomerIdGenerator(Clock.fixed(Instant.now(), ZoneOffset.UTC));
+
+        // When
+        // Then
+        assertThat(underTest.generateId()).isNotEqualTo(underTest.generateId());
+    }
+}
@@ -0,0 +1,121 @@
+package com.amigoscode.testing.datasource;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import javax.servlet.FilterChain;
+import javax.servlet.http.Cookie;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.amigoscode.testing.datasource.ReadYourWritesFilter.COOKIE_NAME;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReadYourWritesFilterTest {
+
+    private static final Instant NOW = Instant.parse("2020-05-01T10:00:00Z");
+
+    private AtomicBoolean pinnedDuringRequest;
+
+    private FilterChain filterChain;
+
+    private ReadYourWritesFilter underTest;
+
+    @BeforeEach
+    void setUp() {
+        pinnedDuringRequest = new AtomicBoolean();
+        filterChain = (request, response) -> pinnedDuringRequest.set(ReplicaRoutingDataSource.isPinnedToPrimary());
+        underTest = new ReadYourWritesFilter(Clock.fixed(NOW, ZoneOffset.UTC), Duration.ofSeconds(5));
+    }
+
+    @Test
+    void itShouldPinWritingRequestAndHandOutCookie() throws Exception {
+        // Given
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/v1/payment");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // When
+        underTest.doFilter(request, response, filterChain);
+
+        // Then
+        assertThat(pinnedDuringRequest).isTrue();
+        assertThat(ReplicaRoutingDataSource.isPinnedToPrimary()).isFalse();
+
+        Cookie cookie = response.getCookie(COOKIE_NAME);
+        assertThat(cookie).isNotNull();
+        assertThat(cookie.getValue()).isEqualTo(Long.toString(NOW.plusSeconds(5).toEpochMilli()));
+        assertThat(cookie.getMaxAge()).isEqualTo(5);
+        assertThat(cookie.isHttpOnly()).isTrue();
+    }
+
+    @Test
+    void itShouldPinReadingRequestWithinWindow() throws Exception {
+        // Given
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/v1/payment/1");
+        request.setCookies(new Cookie(COOKIE_NAME, Long.toString(NOW.plusSeconds(3).toEpochMilli())));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // When
+        underTest.doFilter(request, response, filterChain);
+
+        // Then
+        assertThat(pinnedDuringRequest).isTrue();
+        assertThat(response.getCookie(COOKIE_NAME)).isNull();
+    }
+
+    @Test
+    void itShouldNotPinReadingRequestAfterWindow() throws Exception {
+        // Given
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/v1/payment/1");
+        request.setCookies(new Cookie(COOKIE_NAME, Long.toString(NOW.minusSeconds(1).toEpochMilli())));
+
+        // When
+        underTest.doFilter(request, new MockHttpServletResponse(), filterChain);
+
+        // Then
+        assertThat(pinnedDuringRequest).isFalse();
+    }
+
+    @Test
+    void itShouldNotPinReadingRequestWithoutCookie() throws Exception {
+        // Given
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/v1/payment/1");
+
+        // When
+        underTest.doFilter(request, new MockHttpServletResponse(), filterChain);
+
+        // Then
+        assertThat(pinnedDuringRequest).isFalse();
+    }
+
+    @Test
+    void itShouldIgnoreCookieBeyondWindow() throws Exception {
+        // Given a cookie this filter cannot have handed out
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/v1/payment/1");
+        request.setCookies(new Cookie(COOKIE_NAME, Long.toString(NOW.plusSeconds(3600).toEpochMilli())));
+
+        // When
+        underTest.doFilter(request, new MockHttpServletResponse(), filterChain);
+
+        // Then
+        assertThat(pinnedDuringRequest).isFalse();
+    }
+
+    @Test
+    void itShouldIgnoreMalformedCookie() throws Exception {
+        // Given
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/v1/payment/1");
+        request.setCookies(new Cookie(COOKIE_NAME, "soon"));
+
+        // When
+        underTest.doFilter(request, new MockHttpServletResponse(), filterChain);
+
+        // Then
+        assertThat(pinnedDuringRequest).isFalse();
+    }
+}
@@ -0,0 +1,178 @@
+package com.amigoscode.testing.datasource;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReplicaRoutingDataSourceTest {
+
+    private Map<String, FailingDataSource> replicas;
+
+    private ReplicaRoutingDataSource underTest;
+
+    private JdbcTemplate jdbcTemplate;
+
+    private TransactionTemplate readWrite;
+
+    private TransactionTemplate readOnly;
+
+    @BeforeEach
+    void setUp() {
+        // every database only knows its own name
+        DataSource primary = database("primary");
+        replicas = new LinkedHashMap<>();
+        replicas.put("replica-0", new FailingDataSource(database("replica-0")));
+        replicas.put("replica-1", new FailingDataSource(database("replica-1")));
+
+        underTest = new ReplicaRoutingDataSource(primary, new LinkedHashMap<>(replicas), 1);
+        underTest.afterPropertiesSet();
+
+        DataSource dataSource = new LazyConnectionDataSourceProxy(underTest);
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        readWrite = new TransactionTemplate(transactionManager);
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        ReplicaRoutingDataSource.unpin();
+    }
+
+    @Test
+    void itShouldRouteReadOnlyTransactionsToReplicasInTurn() {
+        // When
+        List<String> databases = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            databases.add(readOnly.execute(status -> databaseName()));
+        }
+
+        // Then
+        assertThat(databases).containsExactly("replica-0", "replica-1", "replica-0", "replica-1");
+    }
+
+    @Test
+    void itShouldRouteReadWriteTransactionsToPrimary() {
+        // When
+        String database = readWrite.execute(status -> databaseName());
+
+        // Then
+        assertThat(database).isEqualTo("primary");
+    }
+
+    @Test
+    void itShouldRouteStatementsOutsideTransactionsToPrimary() {
+        // When
+        // Then
+        assertThat(databaseName()).isEqualTo("primary");
+    }
+
+    @Test
+    void itShouldRouteReadOnlyTransactionsToPrimaryWhenPinned() {
+        // Given
+        ReplicaRoutingDataSource.pinToPrimary();
+
+        // When
+        String database = readOnly.execute(status -> databaseName());
+
+        // Then
+        assertThat(database).isEqualTo("primary");
+    }
+
+    @Test
+    void itShouldSkipReplicaFailingHealthCheckUntilItRecovers() {
+        // Given
+        replicas.get("replica-0").failing = true;
+
+        // When
+        underTest.checkReplicas();
+
+        // Then
+        assertThat(underTest.getHealthyReplicas()).containsExactly("replica-1");
+        String first = readOnly.execute(status -> databaseName());
+        String second = readOnly.execute(status -> databaseName());
+        assertThat(first).isEqualTo("replica-1");
+        assertThat(second).isEqualTo("replica-1");
+
+        // ... When it answers again
+        replicas.get("replica-0").failing = false;
+        underTest.checkReplicas();
+
+        // Then
+        assertThat(underTest.getHealthyReplicas()).containsExactly("replica-0", "replica-1");
+    }
+
+    @Test
+    void itShouldFallBackToPrimaryWhenReplicaFailsBetweenHealthChecks() {
+        // Given
+        replicas.get("replica-0").failing = true;
+
+        // When
+        String database = readOnly.execute(status -> databaseName());
+
+        // Then
+        assertThat(database).isEqualTo("primary");
+        assertThat(underTest.getHealthyReplicas()).containsExactly("replica-1");
+    }
+
+    @Test
+    void itShouldRouteToPrimaryWhenNoReplicaIsHealthy() {
+        // Given
+        replicas.values().forEach(replica -> replica.failing = true);
+        underTest.checkReplicas();
+
+        // When
+        String database = readOnly.execute(status -> databaseName());
+
+        // Then
+        assertThat(database).isEqualTo("primary");
+    }
+
+    private String databaseName() {
+        return jdbcTemplate.queryForObject("SELECT name FROM database_name", String.class);
+    }
+
+    private static DataSource database(String name) {
+        DataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:" + name + "-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1", "sa", "");
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE database_name (name VARCHAR(20))");
+        jdbcTemplate.update("INSERT INTO database_name (name) VALUES (?)", name);
+        return dataSource;
+    }
+
+    private static class FailingDataSource extends DelegatingDataSource {
+
+        private volatile boolean failing;
+
+        FailingDataSource(DataSource dataSource) {
+            super(dataSource);
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            if (failing) {
+                throw new SQLException("Connection refused");
+            }
+            return super.getConnection();
+        }
+    }
+}
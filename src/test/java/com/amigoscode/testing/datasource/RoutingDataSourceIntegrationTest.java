@@ -0,0 +1,114 @@
+package com.amigoscode.testing.datasource;
+
+import com.amigoscode.testing.customer.Customer;
+import com.amigoscode.testing.customer.CustomerRegistrationRequest;
+import com.amigoscode.testing.payment.Currency;
+import com.amigoscode.testing.payment.Money;
+import com.amigoscode.testing.payment.Payment;
+import com.amigoscode.testing.payment.PaymentIdempotencyKeyRepository;
+import com.amigoscode.testing.payment.PaymentRequest;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import javax.servlet.http.Cookie;
+import java.time.Instant;
+import java.util.UUID;
+
+import static com.amigoscode.testing.datasource.ReadYourWritesFilter.COOKIE_NAME;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.hasSize;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "datasource.routing.enable=true",
+        "spring.datasource.url=" + RoutingDataSourceIntegrationTest.PRIMARY_URL,
+        "datasource.replica.urls=" + RoutingDataSourceIntegrationTest.REPLICA_URL
+})
+@AutoConfigureMockMvc
+class RoutingDataSourceIntegrationTest {
+
+    static final String PRIMARY_URL = "jdbc:h2:mem:routing-primary;DB_CLOSE_DELAY=-1";
+
+    static final String REPLICA_URL = "jdbc:h2:mem:routing-replica;DB_CLOSE_DELAY=-1";
+
+    private final JdbcTemplate primary = new JdbcTemplate(new DriverManagerDataSource(PRIMARY_URL, "sa", ""));
+
+    private final JdbcTemplate replica = new JdbcTemplate(new DriverManagerDataSource(REPLICA_URL, "sa", ""));
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private PaymentIdempotencyKeyRepository paymentIdempotencyKeyRepository;
+
+    @BeforeEach
+    void setUp() {
+        // nothing replicates between two H2 instances, give the replica the schema of the primary without its rows
+        replica.execute("DROP ALL OBJECTS");
+        primary.queryForList("SCRIPT NODATA", String.class).stream()
+                .filter(statement -> !statement.startsWith("--"))
+                .forEach(replica::execute);
+    }
+
+    @Test
+    void itShouldWriteToPrimaryAndReadFromReplicaUnlessClientJustWrote() throws Exception {
+        // Given a customer registered and charged through the primary
+        UUID customerId = UUID.randomUUID();
+        Cookie primaryUntil = mockMvc.perform(put("/api/v1/customer-registration")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(
+                        new CustomerRegistrationRequest(new Customer(customerId, "James", "+447000000301")))))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getCookie(COOKIE_NAME);
+
+        mockMvc.perform(post("/api/v1/payment")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(new PaymentRequest(
+                        new Payment(null, customerId, Money.parse("100.00", Currency.GBP), "x0x0x0", "Zakat")))))
+                .andExpect(status().isOk());
+
+        assertThat(primary.queryForObject("SELECT COUNT(*) FROM payment WHERE customer_id = ?", Long.class, customerId))
+                .isEqualTo(1);
+        assertThat(replica.queryForObject("SELECT COUNT(*) FROM payment", Long.class)).isZero();
+
+        // When a client that did not write reads the history
+        // Then it is served by the replica, which has not caught up
+        mockMvc.perform(get("/api/v1/payment").param("customerId", customerId.toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.payments", hasSize(0)));
+
+        // ... When the client that wrote reads it within the window
+        // Then it is served by the primary
+        assertThat(primaryUntil).isNotNull();
+        mockMvc.perform(get("/api/v1/payment").param("customerId", customerId.toString()).cookie(primaryUntil))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.payments", hasSize(1)));
+    }
+
+    @Test
+    void itShouldLookUpIdempotencyKeyOnPrimary() {
+        // Given a key reserved on the primary only
+        String idempotencyKey = "key-" + UUID.randomUUID();
+        paymentIdempotencyKeyRepository.reserve(idempotencyKey, "hash", Instant.now());
+        assertThat(replica.queryForObject("SELECT COUNT(*) FROM payment_idempotency_key", Long.class)).isZero();
+
+        // When
+        // Then the lookup after a duplicate reservation sees it
+        assertThat(paymentIdempotencyKeyRepository.findById(idempotencyKey)).isPresent();
+    }
+}
@@ -0,0 +1,56 @@
+package com.amigoscode.testing.payment;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest(
+        properties = {
+                "spring.jpa.properties.javax.persistence.validation.mode=none"
+        }
+)
+class CustomerSpendRepositoryTest {
+
+    @Autowired
+    private CustomerSpendRepository underTest;
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Test
+    void itShouldInsertThenIncrementCustomerSpend() {
+        // Given
+        UUID customerId = UUID.randomUUID();
+
+        // When
+        underTest.addPayments(customerId, 1, Money.parse("10.00", Currency.USD));
+        underTest.addPayments(customerId, 2, Money.parse("15.50", Currency.USD));
+        underTest.addPayments(customerId, 1, Money.parse("5.00", Currency.GBP));
+
+        // Then
+        assertThat(underTest.selectCustomerSpend(customerId)).containsExactly(
+                new CustomerSpend(customerId, 3L, Money.parse("25.50", Currency.USD)),
+                new CustomerSpend(customerId, 1L, Money.parse("5.00", Currency.GBP)));
+    }
+
+    @Test
+    void itShouldAggregatePaymentsPerCustomerAndCurrency() {
+        // Given
+        UUID customerId = UUID.randomUUID();
+        UUID otherCustomerId = UUID.randomUUID();
+        paymentRepository.save(new Payment(null, customerId, Money.parse("10.00", Currency.USD), "card123", "First"));
+        paymentRepository.save(new Payment(null, customerId, Money.parse("20.00", Currency.USD), "card123", "Second"));
+        paymentRepository.save(new Payment(null, otherCustomerId, Money.parse("5.00", Currency.GBP), "card456", "Other"));
+
+        // When
+        List<CustomerSpend> spends = paymentRepository.selectCustomerSpends(List.of(customerId));
+
+        // Then
+        assertThat(spends).containsExactly(new CustomerSpend(customerId, 2L, Money.parse("30.00", Currency.USD)));
+    }
+}
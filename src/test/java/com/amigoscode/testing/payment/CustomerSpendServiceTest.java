@@ -0,0 +1,100 @@
+package com.amigoscode.testing.payment;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.then;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+
+class CustomerSpendServiceTest {
+
+    @Mock
+    private CustomerSpendRepository customerSpendRepository;
+
+    @Mock
+    private PaymentRepository paymentRepository;
+
+    private CustomerSpendService underTest;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.initMocks(this);
+        underTest = new CustomerSpendService(customerSpendRepository, paymentRepository,
+                new TransactionTemplate(mock(PlatformTransactionManager.class)), 2, 1);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        underTest.shutdown();
+    }
+
+    @Test
+    void itShouldReportAggregatesThatDoNotMatchPayments() {
+        // Given
+        UUID matching = UUID.randomUUID();
+        UUID drifted = UUID.randomUUID();
+        UUID missing = UUID.randomUUID();
+        UUID orphan = UUID.randomUUID();
+        given(paymentRepository.selectCustomerIds()).willReturn(List.of(matching, drifted, missing));
+        given(customerSpendRepository.selectCustomerIds()).willReturn(List.of(matching, drifted, orphan));
+
+        given(paymentRepository.selectCustomerSpends(List.of(matching)))
+                .willReturn(List.of(spend(matching, 2L, "20.00")));
+        given(customerSpendRepository.selectCustomerSpends(List.of(matching)))
+                .willReturn(List.of(spend(matching, 2L, "20.0")));
+        given(paymentRepository.selectCustomerSpends(List.of(drifted)))
+                .willReturn(List.of(spend(drifted, 3L, "30.00")));
+        given(customerSpendRepository.selectCustomerSpends(List.of(drifted)))
+                .willReturn(List.of(spend(drifted, 2L, "20.00")));
+        given(paymentRepository.selectCustomerSpends(List.of(missing)))
+                .willReturn(List.of(spend(missing, 1L, "10.00")));
+        given(customerSpendRepository.selectCustomerSpends(List.of(orphan)))
+                .willReturn(List.of(spend(orphan, 1L, "10.00")));
+
+        // When
+        List<CustomerSpendMismatch> mismatches = underTest.verify();
+
+        // Then
+        assertThat(mismatches).containsExactlyInAnyOrder(
+                new CustomerSpendMismatch(spend(drifted, 3L, "30.00"), spend(drifted, 2L, "20.00")),
+                new CustomerSpendMismatch(spend(missing, 1L, "10.00"), null),
+                new CustomerSpendMismatch(null, spend(orphan, 1L, "10.00")));
+    }
+
+    @Test
+    void itShouldRebuildAggregatesFromPaymentsChunkByChunk() {
+        // Given
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+        given(paymentRepository.selectCustomerIds()).willReturn(List.of(first, second));
+        given(customerSpendRepository.selectCustomerIds()).willReturn(List.of(first));
+        given(paymentRepository.selectCustomerSpends(List.of(first))).willReturn(List.of(spend(first, 2L, "20.00")));
+        given(paymentRepository.selectCustomerSpends(List.of(second))).willReturn(List.of(spend(second, 1L, "5.00")));
+
+        // When
+        int customers = underTest.rebuild();
+
+        // Then
+        assertThat(customers).isEqualTo(2);
+        then(customerSpendRepository).should(times(2)).deleteCustomerSpends(anyList());
+        then(customerSpendRepository).should().addPayments(first, 2L, Money.parse("20.00", Currency.USD));
+        then(customerSpendRepository).should().addPayments(second, 1L, Money.parse("5.00", Currency.USD));
+    }
+
+    private static CustomerSpend spend(UUID customerId, long paymentCount, String totalAmount) {
+        return new CustomerSpend(customerId, paymentCount, Money.parse(totalAmount, Currency.USD));
+    }
+}
@@ -0,0 +1,69 @@
+package com.amigoscode.testing.payment;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class DirectProviderCallExecutorTest {
+
+    private DirectProviderCallExecutor underTest;
+
+    @BeforeEach
+    void setUp() {
+        underTest = new DirectProviderCallExecutor(1, 1);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        underTest.shutdown();
+    }
+
+    @Test
+    void itShouldReturnProviderResultAsync() throws Exception {
+        // When
+        CompletableFuture<String> result = underTest.callAsync("stripe", () -> "paid");
+
+        // Then
+        assertThat(result.get(5, TimeUnit.SECONDS)).isEqualTo("paid");
+    }
+
+    @Test
+    void itShouldFailCallBeyondThreadsAndQueue() throws Exception {
+        // Given the only thread busy and the only queue slot taken
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<String> running = underTest.callAsync("stripe", () -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return "paid";
+        });
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        CompletableFuture<String> queued = underTest.callAsync("stripe", () -> "queued");
+
+        // When
+        CompletableFuture<String> rejected = underTest.callAsync("stripe", () -> "rejected");
+
+        // Then
+        assertThatThrownBy(rejected::get)
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(IllegalStateException.class)
+                .hasStackTraceContaining("Too many concurrent stripe calls");
+
+        // ... and the accepted calls still complete
+        release.countDown();
+        assertThat(running.get(5, TimeUnit.SECONDS)).isEqualTo("paid");
+        assertThat(queued.get(5, TimeUnit.SECONDS)).isEqualTo("queued");
+    }
+}
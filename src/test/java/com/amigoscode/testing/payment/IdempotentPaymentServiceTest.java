@@ -0,0 +1,299 @@
+package com.amigoscode.testing.payment;
+
+import com.amigoscode.testing.payment.PaymentIdempotencyKey.Status;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+import static org.assertj.core.api.AssertionsForClassTypes.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.then;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+
+class IdempotentPaymentServiceTest {
+
+    @Mock
+    private PaymentService paymentService;
+
+    @Mock
+    private PaymentIdempotencyKeyRepository paymentIdempotencyKeyRepository;
+
+    private final Instant now = Instant.parse("2020-05-01T10:00:00Z");
+
+    private IdempotentPaymentService underTest;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.initMocks(this);
+        underTest = new IdempotentPaymentService(paymentService, paymentIdempotencyKeyRepository,
+                Duration.ofHours(24), 1000, 5000, Duration.ofMinutes(5), Clock.fixed(now, ZoneOffset.UTC));
+    }
+
+    @Test
+    void itShouldChargeCardWithoutIdempotencyKey() {
+        // Given
+        UUID customerId = UUID.randomUUID();
+        PaymentRequest request = paymentRequest();
+        given(paymentService.chargeCard(customerId, request)).willReturn(1L);
+
+        // When
+        Long paymentId = underTest.chargeCard(null, customerId, request);
+
+        // Then
+        assertThat(paymentId).isEqualTo(1L);
+        then(paymentIdempotencyKeyRepository).shouldHaveNoInteractions();
+    }
+
+    @Test
+    void itShouldReplayPaymentWithoutChargingCardTwice() {
+        // Given
+        UUID customerId = UUID.randomUUID();
+        PaymentRequest request = paymentRequest();
+        given(paymentService.chargeCard(customerId, request, "key-1")).willReturn(1L);
+
+        // When
+        Long first = underTest.chargeCard("key-1", customerId, request);
+        Long replay = underTest.chargeCard("key-1", customerId, request);
+
+        // Then
+        assertThat(first).isEqualTo(1L);
+        assertThat(replay).isEqualTo(1L);
+        then(paymentService).should(times(1)).chargeCard(customerId, request, "key-1");
+    }
+
+    @Test
+    void itShouldReserveKeyBeforeChargingCard() {
+        // Given
+        UUID customerId = UUID.randomUUID();
+        PaymentRequest request = paymentRequest();
+        given(paymentService.chargeCard(customerId, request, "key-1")).willReturn(1L);
+
+        // When
+        underTest.chargeCard("key-1", customerId, request);
+
+        // Then
+        InOrder inOrder = inOrder(paymentIdempotencyKeyRepository, paymentService);
+        inOrder.verify(paymentIdempotencyKeyRepository)
+                .reserve("key-1", IdempotentPaymentService.requestHash(customerId, request), now);
+        inOrder.verify(paymentService).chargeCard(customerId, request, "key-1");
+    }
+
+    @Test
+    void itShouldReplayStoredPayment() {
+        // Given a key another instance completed
+        UUID customerId = UUID.randomUUID();
+        PaymentRequest request = paymentRequest();
+        given(paymentIdempotencyKeyRepository.reserve(anyString(), anyString(), any()))
+                .willThrow(new DataIntegrityViolationException("duplicate key"));
+        given(paymentIdempotencyKeyRepository.findById("key-1"))
+                .willReturn(Optional.of(key(customerId, request, Status.COMPLETED, 5L)));
+
+        // When
+        Long paymentId = underTest.chargeCard("key-1", customerId, request);
+
+        // Then
+        assertThat(paymentId).isEqualTo(5L);
+        then(paymentService).should(never()).chargeCard(any(), any(), anyString());
+    }
+
+    @Test
+    void itShouldRejectKeyReusedWithDifferentRequest() {
+        // Given a key stored for another amount
+        UUID customerId = UUID.randomUUID();
+        PaymentRequest request = paymentRequest();
+        PaymentRequest otherRequest = new PaymentRequest(
+                new Payment(null, null, Money.parse("999.00", Currency.USD), "card123xx", "Donation"));
+        given(paymentIdempotencyKeyRepository.reserve(anyString(), anyString(), any()))
+                .willThrow(new DataIntegrityViolationException("duplicate key"));
+        given(paymentIdempotencyKeyRepository.findById("key-1"))
+                .willReturn(Optional.of(key(customerId, otherRequest, Status.COMPLETED, 5L)));
+
+        // When
+        // Then
+        assertThatThrownBy(() -> underTest.chargeCard("key-1", customerId, request))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("was already used with a different request");
+        then(paymentService).shouldHaveNoInteractions();
+    }
+
+    @Test
+    void itShouldRejectKeyReusedWithDifferentRequestOnThisInstance() {
+        // Given
+        UUID customerId = UUID.randomUUID();
+        PaymentRequest request = paymentRequest();
+        given(paymentService.chargeCard(customerId, request, "key-1")).willReturn(1L);
+        underTest.chargeCard("key-1", customerId, request);
+
+        // When
+        // Then
+        assertThatThrownBy(() -> underTest.chargeCard("key-1", UUID.randomUUID(), request))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("was already used with a different request");
+        assertThat(underTest.chargeCardAsync("key-1", UUID.randomUUID(), request))
+                .isCompletedExceptionally();
+    }
+
+    @Test
+    void itShouldNotChargeCardWhileKeyIsPendingElsewhere() {
+        // Given a key another instance is charging
+        UUID customerId = UUID.randomUUID();
+        PaymentRequest request = paymentRequest();
+        given(paymentIdempotencyKeyRepository.reserve(anyString(), anyString(), any()))
+                .willThrow(new DataIntegrityViolationException("duplicate key"));
+        given(paymentIdempotencyKeyRepository.findById("key-1"))
+                .willReturn(Optional.of(key(customerId, request, Status.PENDING, null)));
+        given(paymentIdempotencyKeyRepository.takeOver("key-1", now.minus(Duration.ofMinutes(5)), now)).willReturn(0);
+
+        // When
+        // Then
+        assertThatThrownBy(() -> underTest.chargeCard("key-1", customerId, request))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("is still in progress");
+        then(paymentService).shouldHaveNoInteractions();
+        then(paymentIdempotencyKeyRepository).should(never()).release(anyString());
+    }
+
+    @Test
+    void itShouldChargeAbandonedPendingKeyAgain() {
+        // Given a key reserved by an instance that never completed it
+        UUID customerId = UUID.randomUUID();
+        PaymentRequest request = paymentRequest();
+        given(paymentIdempotencyKeyRepository.reserve(anyString(), anyString(), any()))
+                .willThrow(new DataIntegrityViolationException("duplicate key"));
+        given(paymentIdempotencyKeyRepository.findById("key-1"))
+                .willReturn(Optional.of(key(customerId, request, Status.PENDING, null)));
+        given(paymentIdempotencyKeyRepository.takeOver("key-1", now.minus(Duration.ofMinutes(5)), now)).willReturn(1);
+        given(paymentService.chargeCard(customerId, request, "key-1")).willReturn(6L);
+
+        // When
+        Long paymentId = underTest.chargeCard("key-1", customerId, request);
+
+        // Then the provider gets the same key again
+        assertThat(paymentId).isEqualTo(6L);
+        then(paymentService).should().chargeCard(customerId, request, "key-1");
+    }
+
+    @Test
+    void itShouldAllowRetryAfterFailedPayment() {
+        // Given
+        UUID customerId = UUID.randomUUID();
+        PaymentRequest request = paymentRequest();
+        given(paymentService.chargeCard(customerId, request, "key-1"))
+                .willThrow(new IllegalStateException("Card not debited"))
+                .willReturn(2L);
+
+        // When
+        // Then
+        assertThatThrownBy(() -> underTest.chargeCard("key-1", customerId, request))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("Card not debited");
+        then(paymentIdempotencyKeyRepository).should().release("key-1");
+        assertThat(underTest.chargeCard("key-1", customerId, request)).isEqualTo(2L);
+    }
+
+    @Test
+    void itShouldWaitForPaymentInFlight() throws Exception {
+        // Given
+        UUID customerId = UUID.randomUUID();
+        PaymentRequest request = paymentRequest();
+        CountDownLatch charging = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        given(paymentService.chargeCard(customerId, request, "key-1")).willAnswer(invocation -> {
+            charging.countDown();
+            release.await();
+            return 3L;
+        });
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            // When
+            Future<Long> first = executor.submit(() -> underTest.chargeCard("key-1", customerId, request));
+            assertThat(charging.await(5, TimeUnit.SECONDS)).isTrue();
+            Future<Long> duplicate = executor.submit(() -> underTest.chargeCard("key-1", customerId, request));
+            release.countDown();
+
+            // Then
+            assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo(3L);
+            assertThat(duplicate.get(5, TimeUnit.SECONDS)).isEqualTo(3L);
+            then(paymentService).should(times(1)).chargeCard(customerId, request, "key-1");
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void itShouldCompleteAsyncDuplicateWithInFlightPayment() {
+        // Given
+        UUID customerId = UUID.randomUUID();
+        PaymentRequest request = paymentRequest();
+        CompletableFuture<Long> charge = new CompletableFuture<>();
+        given(paymentService.chargeCardAsync(customerId, request, "key-1")).willReturn(charge);
+
+        // When
+        CompletableFuture<Long> first = underTest.chargeCardAsync("key-1", customerId, request);
+        CompletableFuture<Long> duplicate = underTest.chargeCardAsync("key-1", customerId, request);
+        charge.complete(4L);
+
+        // Then
+        assertThat(first.join()).isEqualTo(4L);
+        assertThat(duplicate.join()).isEqualTo(4L);
+        assertThat(underTest.chargeCard("key-1", customerId, request)).isEqualTo(4L);
+        then(paymentService).should(times(1)).chargeCardAsync(customerId, request, "key-1");
+    }
+
+    @Test
+    void itShouldAllowAsyncRetryAfterFailedPayment() {
+        // Given
+        UUID customerId = UUID.randomUUID();
+        PaymentRequest request = paymentRequest();
+        given(paymentService.chargeCardAsync(customerId, request, "key-1"))
+                .willReturn(CompletableFuture.failedFuture(new IllegalStateException("Card not debited")))
+                .willReturn(CompletableFuture.completedFuture(2L));
+
+        // When
+        // Then
+        assertThatThrownBy(() -> underTest.chargeCardAsync("key-1", customerId, request).join())
+                .hasCauseInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("Card not debited");
+        then(paymentIdempotencyKeyRepository).should().release("key-1");
+        assertThat(underTest.chargeCardAsync("key-1", customerId, request).join()).isEqualTo(2L);
+    }
+
+    private PaymentIdempotencyKey key(UUID customerId, PaymentRequest request, Status status, Long paymentId) {
+        return new PaymentIdempotencyKey("key-1", IdempotentPaymentService.requestHash(customerId, request),
+                status, paymentId, now.minusSeconds(1));
+    }
+
+    private static PaymentRequest paymentRequest() {
+        return new PaymentRequest(
+                new Payment(
+                        null,
+                        null,
+                        Money.parse("100.00", Currency.USD),
+                        "card123xx",
+                        "Donation"
+                )
+        );
+    }
+}
@@ -0,0 +1,164 @@
+package com.amigoscode.testing.payment;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class IsolatedProviderCallExecutorTest {
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private IsolatedProviderCallExecutor underTest;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        underTest = new IsolatedProviderCallExecutor(meterRegistry, 200, 1);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        underTest.shutdown();
+    }
+
+    @Test
+    void itShouldReturnProviderResult() {
+        // When
+        String result = underTest.call("stripe", () -> "paid");
+
+        // Then
+        assertThat(result).isEqualTo("paid");
+    }
+
+    @Test
+    void itShouldRethrowProviderException() {
+        // When
+        // Then
+        assertThatThrownBy(() -> underTest.call("stripe", () -> {
+            throw new IllegalStateException("Cannot make Stripe charge");
+        }))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("Cannot make Stripe charge");
+    }
+
+    @Test
+    void itShouldTimeOutSlowCall() {
+        // When
+        // Then
+        assertThatThrownBy(() -> underTest.call("stripe", () -> {
+            try {
+                Thread.sleep(5_000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return "paid";
+        }))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("stripe call timed out after 200 ms");
+        assertThat(meterRegistry.get("payment.provider.calls.failed").tag("reason", "timeout").counter().count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void itShouldTimeOutSlowAsyncCallWithoutBlockingCaller() {
+        // When
+        CompletableFuture<String> result = underTest.callAsync("stripe", () -> {
+            try {
+                Thread.sleep(5_000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return "paid";
+        });
+
+        // Then
+        assertThat(result).isNotDone();
+        assertThatThrownBy(result::join)
+                .hasCauseInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("stripe call timed out after 200 ms");
+    }
+
+    @Test
+    void itShouldRejectCallsOverBulkheadLimit() throws Exception {
+        // Given a call holding the only permit
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        underTest.shutdown();
+        underTest = new IsolatedProviderCallExecutor(meterRegistry, 5_000, 1);
+        CompletableFuture<String> slowCall = CompletableFuture.supplyAsync(() -> underTest.call("twilio", () -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return "sent";
+        }));
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+        // When
+        // Then
+        assertThatThrownBy(() -> underTest.call("twilio", () -> "sent"))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("Too many concurrent twilio calls");
+
+        release.countDown();
+        assertThat(slowCall.get(5, TimeUnit.SECONDS)).isEqualTo("sent");
+        assertThat(underTest.call("twilio", () -> "sent")).isEqualTo("sent");
+    }
+
+    @Test
+    void itShouldNotTimeOutCallThatCannotBeRepeated() {
+        // When a charge without idempotency key outlives the timeout
+        String result = underTest.callWithoutTimeout("stripe", () -> {
+            try {
+                Thread.sleep(400);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return "interrupted";
+            }
+            return "paid";
+        });
+
+        // Then it is neither abandoned nor interrupted
+        assertThat(result).isEqualTo("paid");
+        assertThat(meterRegistry.get("payment.provider.calls.failed").tag("reason", "timeout").counter().count()).isZero();
+    }
+
+    @Test
+    void itShouldKeepBulkheadsOfProvidersApart() throws Exception {
+        // Given a slow stripe call holding the only stripe permit
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<String> slowCharge = underTest.callAsyncWithoutTimeout("stripe", () -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return "paid";
+        });
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+        try {
+            // When
+            // Then twilio still has its own permit
+            assertThat(underTest.call("twilio", () -> "sent")).isEqualTo("sent");
+            assertThatThrownBy(() -> underTest.call("stripe", () -> "paid"))
+                    .isInstanceOf(IllegalStateException.class)
+                    .hasMessage("Too many concurrent stripe calls");
+        } finally {
+            release.countDown();
+        }
+        assertThat(slowCharge.get(5, TimeUnit.SECONDS)).isEqualTo("paid");
+    }
+}
@@ -0,0 +1,175 @@
+package com.amigoscode.testing.payment;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.stripe.param.ChargeCreateParams;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+// Payment request deserialization, serialization and Stripe charge parameters,
+// "bigDecimal" is the previous BigDecimal amount, "money" the long minor unit Money.
+// Run with: mvn test-compile exec:java -Dexec.classpathScope=test
+//   -Dexec.mainClass=com.amigoscode.testing.payment.MoneyBenchmark
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MoneyBenchmark {
+
+    private static final String JSON = "{\"paymentId\":null,\"customerId\":\"" + UUID.randomUUID() + "\"," +
+            "\"amount\":1250.75,\"currency\":\"GBP\",\"source\":\"card123\",\"description\":\"Zakat\"}";
+
+    private ObjectReader bigDecimalReader;
+
+    private ObjectReader moneyReader;
+
+    private ObjectWriter bigDecimalWriter;
+
+    private ObjectWriter moneyWriter;
+
+    private BigDecimalPayment bigDecimalPayment;
+
+    private Payment payment;
+
+    @Setup
+    public void setUp() throws JsonProcessingException {
+        ObjectMapper objectMapper = new ObjectMapper();
+        bigDecimalReader = objectMapper.readerFor(BigDecimalPayment.class);
+        moneyReader = objectMapper.readerFor(Payment.class);
+        bigDecimalWriter = objectMapper.writerFor(BigDecimalPayment.class);
+        moneyWriter = objectMapper.writerFor(Payment.class);
+        bigDecimalPayment = bigDecimalReader.readValue(JSON);
+        payment = moneyReader.readValue(JSON);
+    }
+
+    @Benchmark
+    public BigDecimalPayment deserializeBigDecimal() throws JsonProcessingException {
+        return bigDecimalReader.readValue(JSON);
+    }
+
+    @Benchmark
+    public Payment deserializeMoney() throws JsonProcessingException {
+        return moneyReader.readValue(JSON);
+    }
+
+    @Benchmark
+    public String serializeBigDecimal() throws JsonProcessingException {
+        return bigDecimalWriter.writeValueAsString(bigDecimalPayment);
+    }
+
+    @Benchmark
+    public String serializeMoney() throws JsonProcessingException {
+        return moneyWriter.writeValueAsString(payment);
+    }
+
+    @Benchmark
+    public ChargeCreateParams chargeParamsBigDecimal() {
+        // what StripeService did before, with the scale applied so both send minor units
+        return ChargeCreateParams.builder()
+                .setAmount(bigDecimalPayment.getAmount().movePointRight(2).longValueExact())
+                .setCurrency(bigDecimalPayment.getCurrency().name())
+                .setSource(bigDecimalPayment.getSource())
+                .setDescription(bigDecimalPayment.getDescription())
+                .build();
+    }
+
+    @Benchmark
+    public ChargeCreateParams chargeParamsMoney() {
+        return ChargeCreateParams.builder()
+                .setAmount(payment.getAmount().getMinorUnits())
+                .setCurrency(payment.getAmount().getCurrency().name())
+                .setSource(payment.getSource())
+                .setDescription(payment.getDescription())
+                .build();
+    }
+
+    // Payment as it was before Money
+    public static class BigDecimalPayment {
+
+        private Long paymentId;
+
+        private UUID customerId;
+
+        private BigDecimal amount;
+
+        private Currency currency;
+
+        private String source;
+
+        private String description;
+
+        public Long getPaymentId() {
+            return paymentId;
+        }
+
+        public void setPaymentId(Long paymentId) {
+            this.paymentId = paymentId;
+        }
+
+        public UUID getCustomerId() {
+            return customerId;
+        }
+
+        public void setCustomerId(UUID customerId) {
+            this.customerId = customerId;
+        }
+
+        public BigDecimal getAmount() {
+            return amount;
+        }
+
+        public void setAmount(BigDecimal amount) {
+            this.amount = amount;
+        }
+
+        public Currency getCurrency() {
+            return currency;
+        }
+
+        public void setCurrency(Currency currency) {
+            this.currency = currency;
+        }
+
+        public String getSource() {
+            return source;
+        }
+
+        public void setSource(String source) {
+            this.source = source;
+        }
+
+        public String getDescription() {
+            return description;
+        }
+
+        public void setDescription(String description) {
+            this.description = description;
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(MoneyBenchmark.class.getSimpleName())
+                .build()
+        ).run();
+    }
+}
@@ -0,0 +1,85 @@
+package com.amigoscode.testing.payment;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.exc.ValueInstantiationException;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MoneyTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @ParameterizedTest
+    @CsvSource({
+            "10.50,1050,10.50",
+            "10.5,1050,10.50",
+            "10,1000,10.00",
+            "0.05,5,0.05",
+            "0,0,0.00",
+            "-3.07,-307,-3.07",
+            "+7.1,710,7.10"
+    })
+    void itShouldParseAndPrintMinorUnits(String amount, long minorUnits, String decimal) {
+        // When
+        Money money = Money.parse(amount, Currency.USD);
+
+        // Then
+        assertThat(money.getMinorUnits()).isEqualTo(minorUnits);
+        assertThat(money.toDecimalString()).isEqualTo(decimal);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"", ".", "-", "1.005", "1e2", "1.2.3", "ten", "99999999999999999999"})
+    void itShouldRejectInvalidAmounts(String amount) {
+        // When
+        // Then
+        assertThatThrownBy(() -> Money.parse(amount, Currency.USD))
+                .isInstanceOf(RuntimeException.class);
+    }
+
+    @Test
+    void itShouldNotAddDifferentCurrencies() {
+        // When
+        // Then
+        assertThat(Money.ofMinor(100, Currency.GBP).plus(Money.ofMinor(50, Currency.GBP)))
+                .isEqualTo(Money.ofMinor(150, Currency.GBP));
+        assertThatThrownBy(() -> Money.ofMinor(100, Currency.GBP).plus(Money.ofMinor(50, Currency.USD)))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("cannot add USD to GBP");
+    }
+
+    @Test
+    void itShouldReadAndWritePaymentAmountAsDecimalNumber() throws Exception {
+        // Given
+        UUID customerId = UUID.randomUUID();
+        String json = "{\"customerId\":\"" + customerId + "\",\"amount\":10.50,\"currency\":\"GBP\"," +
+                "\"source\":\"card123\",\"description\":\"Zakat\"}";
+
+        // When
+        Payment payment = objectMapper.readValue(json, Payment.class);
+        String written = objectMapper.writeValueAsString(payment);
+
+        // Then
+        assertThat(payment.getAmount()).isEqualTo(Money.ofMinor(1050, Currency.GBP));
+        assertThat(written).contains("\"amount\":10.50", "\"currency\":\"GBP\"");
+    }
+
+    @Test
+    void itShouldRejectPaymentAmountWithTooManyFractionDigits() {
+        // Given
+        String json = "{\"amount\":10.505,\"currency\":\"GBP\"}";
+
+        // When
+        // Then
+        assertThatThrownBy(() -> objectMapper.readValue(json, Payment.class))
+                .isInstanceOf(ValueInstantiationException.class)
+                .hasMessageContaining("more than 2 fraction digits");
+    }
+}
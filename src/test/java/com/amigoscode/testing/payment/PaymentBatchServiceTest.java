@@ -0,0 +1,249 @@
+package com.amigoscode.testing.payment;
+
+import com.amigoscode.testing.customer.CustomerContact;
+import com.amigoscode.testing.customer.CustomerRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.then;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+
+class PaymentBatchServiceTest {
+
+    @Mock
+    private CardPaymentCharger cardPaymentCharger;
+
+    @Mock
+    private CustomerRepository customerRepository;
+
+    @Mock
+    private PaymentRepository paymentRepository;
+
+    @Mock
+    private PaymentNotificationRepository paymentNotificationRepository;
+
+    @Mock
+    private CustomerSpendRepository customerSpendRepository;
+
+    private PaymentBatchService underTest;
+
+    private final AtomicLong paymentIds = new AtomicLong();
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.initMocks(this);
+        underTest = new PaymentBatchService(cardPaymentCharger, customerRepository, paymentRepository,
+                paymentNotificationRepository, customerSpendRepository, new TransactionTemplate(mock(PlatformTransactionManager.class)), 2, 2);
+
+        // ... saved payments get an id
+        given(paymentRepository.saveAll(anyList())).willAnswer(invocation -> {
+            List<Payment> payments = invocation.getArgument(0);
+            payments.forEach(payment -> payment.setPaymentId(paymentIds.incrementAndGet()));
+            return payments;
+        });
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        underTest.shutdown();
+    }
+
+    @Test
+    void itShouldChargeValidPaymentsAndReportEveryItem() {
+        // Given
+        UUID james = UUID.randomUUID();
+        UUID unknown = UUID.randomUUID();
+        given(customerRepository.selectContactsByIds(any()))
+                .willReturn(List.of(new CustomerContact(james, "James", "+447000000000")));
+
+        List<PaymentRequest> requests = List.of(
+                paymentRequest(james, Currency.USD, "card1"),
+                paymentRequest(unknown, Currency.USD, "card2"),
+                paymentRequest(james, Currency.EUR, "card3"),
+                paymentRequest(james, Currency.GBP, "declined"),
+                paymentRequest(james, Currency.GBP, "broken")
+        );
+
+        given(cardPaymentCharger.chargeCard(eq("card1"), any(), any(), any())).willReturn(new CardPaymentCharge(true));
+        given(cardPaymentCharger.chargeCard(eq("declined"), any(), any(), any())).willReturn(new CardPaymentCharge(false));
+        given(cardPaymentCharger.chargeCard(eq("broken"), any(), any(), any()))
+                .willThrow(new IllegalStateException("provider unavailable"));
+
+        // When
+        List<PaymentBatchResult> results = underTest.chargeCards(requests);
+
+        // Then
+        assertThat(results).extracting(PaymentBatchResult::getIndex).containsExactly(0, 1, 2, 3, 4);
+        assertThat(results).extracting(PaymentBatchResult::getStatus).containsExactly(
+                PaymentBatchResult.Status.CHARGED,
+                PaymentBatchResult.Status.INVALID,
+                PaymentBatchResult.Status.INVALID,
+                PaymentBatchResult.Status.NOT_DEBITED,
+                PaymentBatchResult.Status.FAILED
+        );
+        assertThat(results.get(0).getPaymentId()).isEqualTo(1L);
+        assertThat(results.get(1).getMessage()).contains(unknown.toString());
+        assertThat(results.get(2).getMessage()).contains("EUR");
+        assertThat(results.get(4).getMessage()).isEqualTo("provider unavailable");
+
+        // ... customers are looked up once and invalid payments are never charged
+        then(customerRepository).should(times(1)).selectContactsByIds(any());
+        then(cardPaymentCharger).should(times(3)).chargeCard(any(), any(), any(), any());
+
+        // ... the charged payment is stored with its sms notification
+        ArgumentCaptor<List<PaymentNotification>> notifications = ArgumentCaptor.forClass(List.class);
+        then(paymentNotificationRepository).should().saveAll(notifications.capture());
+        assertThat(notifications.getValue()).hasSize(1);
+        assertThat(notifications.getValue().get(0).getPaymentId()).isEqualTo(1L);
+        assertThat(notifications.getValue().get(0).getPhoneNumber()).isEqualTo("+447000000000");
+    }
+
+    @Test
+    void itShouldPersistEachChunkWithOneBatch() {
+        // Given
+        UUID james = UUID.randomUUID();
+        given(customerRepository.selectContactsByIds(any()))
+                .willReturn(List.of(new CustomerContact(james, "James", "+447000000000")));
+        given(cardPaymentCharger.chargeCard(any(), any(), any(), any())).willReturn(new CardPaymentCharge(true));
+
+        List<PaymentRequest> requests = IntStream.range(0, 5)
+                .mapToObj(i -> paymentRequest(james, Currency.USD, "card" + i))
+                .collect(Collectors.toList());
+
+        // When
+        List<PaymentBatchResult> results = underTest.chargeCards(requests);
+
+        // Then chunks of 2, 2 and 1
+        assertThat(results).extracting(PaymentBatchResult::getPaymentId).containsExactly(1L, 2L, 3L, 4L, 5L);
+        then(paymentRepository).should(times(3)).saveAll(anyList());
+
+        // ... with one spend update per chunk
+        then(customerSpendRepository).should(times(2)).addPayments(james, 2, Money.parse("200.00", Currency.USD));
+        then(customerSpendRepository).should().addPayments(james, 1, Money.parse("100.00", Currency.USD));
+    }
+
+    @Test
+    void itShouldChargeEveryItemWithItsOwnIdempotencyKey() {
+        // Given
+        UUID james = UUID.randomUUID();
+        given(customerRepository.selectContactsByIds(any()))
+                .willReturn(List.of(new CustomerContact(james, "James", "+447000000000")));
+        given(cardPaymentCharger.chargeCard(any(), any(), any(), any())).willReturn(new CardPaymentCharge(true));
+
+        List<PaymentRequest> requests = IntStream.range(0, 3)
+                .mapToObj(i -> paymentRequest(james, Currency.USD, "card" + i))
+                .collect(Collectors.toList());
+
+        // When
+        underTest.chargeCards("batch-1", requests);
+
+        // Then a retried batch reaches the provider with the same keys
+        then(cardPaymentCharger).should().chargeCard(eq("card0"), any(), any(), eq("batch-1-0"));
+        then(cardPaymentCharger).should().chargeCard(eq("card1"), any(), any(), eq("batch-1-1"));
+        then(cardPaymentCharger).should().chargeCard(eq("card2"), any(), any(), eq("batch-1-2"));
+    }
+
+    @Test
+    void itShouldReportChargedChunkThatCouldNotBeRecordedAndCarryOn() {
+        // Given
+        UUID james = UUID.randomUUID();
+        given(customerRepository.selectContactsByIds(any()))
+                .willReturn(List.of(new CustomerContact(james, "James", "+447000000000")));
+        given(cardPaymentCharger.chargeCard(any(), any(), any(), any())).willReturn(new CardPaymentCharge(true));
+
+        // ... the second of three chunks fails to save
+        AtomicInteger saves = new AtomicInteger();
+        given(paymentRepository.saveAll(anyList())).willAnswer(invocation -> {
+            if (saves.incrementAndGet() == 2) {
+                throw new IllegalStateException("database unavailable");
+            }
+            List<Payment> payments = invocation.getArgument(0);
+            payments.forEach(payment -> payment.setPaymentId(paymentIds.incrementAndGet()));
+            return payments;
+        });
+
+        List<PaymentRequest> requests = IntStream.range(0, 5)
+                .mapToObj(i -> paymentRequest(james, Currency.USD, "card" + i))
+                .collect(Collectors.toList());
+
+        // When
+        List<PaymentBatchResult> results = underTest.chargeCards(requests);
+
+        // Then
+        assertThat(results).extracting(PaymentBatchResult::getStatus).containsExactly(
+                PaymentBatchResult.Status.CHARGED,
+                PaymentBatchResult.Status.CHARGED,
+                PaymentBatchResult.Status.FAILED,
+                PaymentBatchResult.Status.FAILED,
+                PaymentBatchResult.Status.CHARGED
+        );
+        assertThat(results.get(2).getMessage()).isEqualTo("Card charged but payment not recorded: database unavailable");
+    }
+
+    @Test
+    void itShouldNotChargeMoreCardsAtOnceThanConcurrency() throws InterruptedException {
+        // Given
+        UUID james = UUID.randomUUID();
+        given(customerRepository.selectContactsByIds(any()))
+                .willReturn(List.of(new CustomerContact(james, "James", "+447000000000")));
+
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        CountDownLatch bothStarted = new CountDownLatch(2);
+        given(cardPaymentCharger.chargeCard(any(), any(), any(), any())).willAnswer(invocation -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            bothStarted.countDown();
+            bothStarted.await(1, TimeUnit.SECONDS);
+            inFlight.decrementAndGet();
+            return new CardPaymentCharge(true);
+        });
+
+        underTest.shutdown();
+        underTest = new PaymentBatchService(cardPaymentCharger, customerRepository, paymentRepository,
+                paymentNotificationRepository, customerSpendRepository, new TransactionTemplate(mock(PlatformTransactionManager.class)), 2, 10);
+
+        List<PaymentRequest> requests = IntStream.range(0, 10)
+                .mapToObj(i -> paymentRequest(james, Currency.USD, "card" + i))
+                .collect(Collectors.toList());
+
+        // When
+        List<PaymentBatchResult> results = underTest.chargeCards(requests);
+
+        // Then
+        assertThat(results).extracting(PaymentBatchResult::getStatus).containsOnly(PaymentBatchResult.Status.CHARGED);
+        assertThat(maxInFlight.get()).isEqualTo(2);
+    }
+
+    private static PaymentRequest paymentRequest(UUID customerId, Currency currency, String source) {
+        return new PaymentRequest(
+                new Payment(
+                        null,
+                        customerId,
+                        Money.parse("100.00", currency),
+                        source,
+                        "Subscription"
+                )
+        );
+    }
+}
@@ -0,0 +1,88 @@
+package com.amigoscode.testing.payment;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.then;
+import static org.mockito.Mockito.times;
+
+class PaymentCacheTest {
+
+    @Mock
+    private PaymentRepository paymentRepository;
+
+    private MeterRegistry meterRegistry;
+
+    private PaymentCache underTest;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.initMocks(this);
+        meterRegistry = new SimpleMeterRegistry();
+        underTest = new PaymentCache(paymentRepository, meterRegistry, true, 100);
+    }
+
+    @Test
+    void itShouldLoadPaymentOnlyOnce() {
+        // Given
+        Payment payment = new Payment(1L, UUID.randomUUID(), Money.parse("10.00", Currency.USD), "card123xx", "Donation");
+        given(paymentRepository.findById(1L)).willReturn(Optional.of(payment));
+
+        // When
+        Optional<Payment> first = underTest.getPayment(1L);
+        Optional<Payment> second = underTest.getPayment(1L);
+
+        // Then
+        assertThat(first).containsSame(payment);
+        assertThat(second).containsSame(payment);
+        then(paymentRepository).should(times(1)).findById(1L);
+        assertThat(meterRegistry.get("cache.gets").tag("result", "hit").functionCounter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("cache.gets").tag("result", "miss").functionCounter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void itShouldNotCacheUnknownPayment() {
+        // Given
+        given(paymentRepository.findById(1L)).willReturn(Optional.empty());
+
+        // When
+        underTest.getPayment(1L);
+        Optional<Payment> payment = underTest.getPayment(1L);
+
+        // Then
+        assertThat(payment).isNotPresent();
+        then(paymentRepository).should(times(2)).findById(1L);
+    }
+
+    @Test
+    void itShouldAlwaysLoadPaymentWhenDisabled() {
+        // Given
+        underTest = new PaymentCache(paymentRepository, meterRegistry, false, 100);
+        given(paymentRepository.findById(1L)).willReturn(Optional.of(
+                new Payment(1L, UUID.randomUUID(), Money.parse("10.00", Currency.USD), "card123xx", "Donation")));
+
+        // When
+        underTest.getPayment(1L);
+        underTest.getPayment(1L);
+
+        // Then
+        then(paymentRepository).should(times(2)).findById(1L);
+    }
+
+    @Test
+    void itShouldNotFindPaymentWhenIdIsNull() {
+        // When
+        // Then
+        assertThat(underTest.getPayment(null)).isNotPresent();
+        then(paymentRepository).shouldHaveNoInteractions();
+    }
+}
@@ -0,0 +1,76 @@
+package com.amigoscode.testing.payment;
+
+import com.amigoscode.testing.customer.Customer;
+import com.amigoscode.testing.customer.CustomerRegistrationRequest;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.UUID;
+
+import static org.hamcrest.Matchers.startsWith;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// own in-memory database, PaymentIntegrationTest expects the first payment id of the shared one
+@SpringBootTest(properties = "spring.datasource.generate-unique-name=true")
+@AutoConfigureMockMvc
+class PaymentCachingIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void itShouldRevalidatePaymentWithETag() throws Exception {
+        // Given a customer with one payment
+        UUID customerId = UUID.randomUUID();
+        mockMvc.perform(put("/api/v1/customer-registration")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(
+                        new CustomerRegistrationRequest(new Customer(customerId, "James", "+447000000201")))))
+                .andExpect(status().isOk());
+        mockMvc.perform(post("/api/v1/payment")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(new PaymentRequest(
+                        new Payment(null, customerId, Money.parse("100.00", Currency.GBP), "x0x0x0", "Zakat")))))
+                .andExpect(status().isOk());
+        long paymentId = objectMapper.readTree(mockMvc.perform(get("/api/v1/payment")
+                .param("customerId", customerId.toString()))
+                .andReturn().getResponse().getContentAsString())
+                .at("/payments/0/paymentId").asLong();
+
+        // When the payment is fetched
+        String eTag = mockMvc.perform(get("/api/v1/payment/{paymentId}", paymentId))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, startsWith("\"")))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "max-age=60, must-revalidate, private"))
+                .andExpect(jsonPath("$.description").value("Zakat"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        // Then revalidating with its ETag answers 304 without a body
+        mockMvc.perform(get("/api/v1/payment/{paymentId}", paymentId)
+                .header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, eTag))
+                .andExpect(content().string(""));
+
+        // ... and a stale ETag gets the payment again
+        mockMvc.perform(get("/api/v1/payment/{paymentId}", paymentId)
+                .header(HttpHeaders.IF_NONE_MATCH, "\"stale\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, eTag));
+    }
+}
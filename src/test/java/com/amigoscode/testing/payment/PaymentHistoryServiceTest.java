@@ -0,0 +1,87 @@
+package com.amigoscode.testing.payment;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.then;
+
+class PaymentHistoryServiceTest {
+
+    @Mock
+    private PaymentRepository paymentRepository;
+
+    private PaymentHistoryService underTest;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.initMocks(this);
+        underTest = new PaymentHistoryService(paymentRepository, 100);
+    }
+
+    @Test
+    void itShouldReturnPageWithNextPaymentIdWhenMorePaymentsExist() {
+        // Given a page of 2 and 3 payments after the cursor
+        UUID customerId = UUID.randomUUID();
+        given(paymentRepository.selectPaymentSummaries(customerId, 10L, PageRequest.of(0, 3)))
+                .willReturn(List.of(summary(11L), summary(12L), summary(13L)));
+
+        // When
+        PaymentHistoryPage page = underTest.getPaymentHistory(customerId, 10L, 2);
+
+        // Then
+        assertThat(page.getPayments()).containsExactly(summary(11L), summary(12L));
+        assertThat(page.getNextPaymentId()).isEqualTo(12L);
+    }
+
+    @Test
+    void itShouldReturnLastPageWithoutNextPaymentId() {
+        // Given
+        UUID customerId = UUID.randomUUID();
+        given(paymentRepository.selectPaymentSummaries(customerId, Long.MIN_VALUE, PageRequest.of(0, 3)))
+                .willReturn(List.of(summary(1L), summary(2L)));
+
+        // When
+        PaymentHistoryPage page = underTest.getPaymentHistory(customerId, null, 2);
+
+        // Then
+        assertThat(page.getPayments()).containsExactly(summary(1L), summary(2L));
+        assertThat(page.getNextPaymentId()).isNull();
+    }
+
+    @Test
+    void itShouldCapPageSize() {
+        // Given
+        UUID customerId = UUID.randomUUID();
+        given(paymentRepository.selectPaymentSummaries(any(), anyLong(), any())).willReturn(List.of());
+
+        // When
+        underTest.getPaymentHistory(customerId, null, 10_000);
+
+        // Then
+        then(paymentRepository).should().selectPaymentSummaries(customerId, Long.MIN_VALUE, PageRequest.of(0, 101));
+    }
+
+    @Test
+    void itShouldThrowWhenPageSizeIsNotPositive() {
+        // When
+        // Then
+        assertThatThrownBy(() -> underTest.getPaymentHistory(UUID.randomUUID(), null, 0))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("page size [0] must be positive");
+    }
+
+    private static PaymentSummary summary(long paymentId) {
+        return new PaymentSummary(paymentId, Money.parse("10.00", Currency.USD), "Zakat");
+    }
+}
@@ -0,0 +1,38 @@
+package com.amigoscode.testing.payment;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest(
+        properties = {
+                "spring.jpa.properties.javax.persistence.validation.mode=none",
+                "spring.jpa.properties.payment.id-generator=snowflake",
+                "spring.jpa.properties.payment.id-generator.node-id=7"
+        }
+)
+class PaymentIdGeneratorTest {
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Test
+    void itShouldAssignSnowflakeIdsWhenSelected() {
+        // Given
+        Payment first = new Payment(null, UUID.randomUUID(), Money.parse("10.00", Currency.USD), "card123", "Donation");
+        Payment second = new Payment(null, UUID.randomUUID(), Money.parse("10.00", Currency.USD), "card123", "Donation");
+
+        // When
+        Long firstId = paymentRepository.save(first).getPaymentId();
+        Long secondId = paymentRepository.save(second).getPaymentId();
+
+        // Then ids carry the node id and keep increasing
+        assertThat((firstId >>> 12) & 0x3FF).isEqualTo(7);
+        assertThat(secondId).isGreaterThan(firstId);
+        assertThat(paymentRepository.findById(firstId)).isPresent();
+    }
+}
@@ -0,0 +1,117 @@
+package com.amigoscode.testing.payment;
+
+import com.amigoscode.testing.customer.Customer;
+import com.amigoscode.testing.customer.CustomerRegistrationRequest;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// own in-memory database, PaymentIntegrationTest expects the first payment id of the shared one
+@SpringBootTest(properties = "spring.datasource.generate-unique-name=true")
+@AutoConfigureMockMvc
+class PaymentIdempotencyIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void itShouldAnswerReplayWithTheSamePaymentId() throws Exception {
+        // Given a registered customer
+        UUID customerId = UUID.randomUUID();
+        mockMvc.perform(put("/api/v1/customer-registration")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(
+                        new CustomerRegistrationRequest(new Customer(customerId, "James", "+447000000301")))))
+                .andExpect(status().isOk());
+
+        // When the same payment is sent twice with one idempotency key
+        long paymentId = makePayment("key-1", customerId, "100.00");
+        long replayedPaymentId = makePayment("key-1", customerId, "100.00");
+
+        // Then the replay answers the stored payment id and the card is charged once
+        assertThat(replayedPaymentId).isEqualTo(paymentId);
+        mockMvc.perform(get("/api/v1/payment").param("customerId", customerId.toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.payments.length()").value(1))
+                .andExpect(jsonPath("$.payments[0].paymentId").value(paymentId));
+
+        // ... and the key cannot be reused for another amount
+        assertThatThrownBy(() -> makePayment("key-1", customerId, "999.00"))
+                .hasRootCauseInstanceOf(IllegalStateException.class)
+                .hasStackTraceContaining("Idempotency key [key-1] was already used with a different request");
+    }
+
+    @Test
+    void itShouldAnswerPaymentWithoutIdempotencyKeyWithAnEmptyBody() throws Exception {
+        // Given a registered customer
+        UUID customerId = UUID.randomUUID();
+        mockMvc.perform(put("/api/v1/customer-registration")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(
+                        new CustomerRegistrationRequest(new Customer(customerId, "James", "+447000000302")))))
+                .andExpect(status().isOk());
+
+        // When
+        MvcResult result = mockMvc.perform(post("/api/v1/payment")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(new PaymentRequest(
+                        new Payment(null, customerId, Money.parse("100.00", Currency.GBP), "x0x0x0", "Zakat")))))
+                .andReturn();
+
+        // Then
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().string(""));
+    }
+
+    @Test
+    void itShouldRejectPaymentWithoutAmountLikeOneWithoutIdempotencyKey() throws Exception {
+        // Given a payment without an amount for a customer that does not exist
+        UUID customerId = UUID.randomUUID();
+        String paymentRequest = objectMapper.writeValueAsString(new PaymentRequest(
+                new Payment(null, customerId, null, Currency.GBP, "x0x0x0", "Zakat")));
+
+        // When
+        // Then
+        assertThatThrownBy(() -> mockMvc.perform(post("/api/v1/payment")
+                .header("Idempotency-Key", "key-2")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(paymentRequest)))
+                .hasRootCauseInstanceOf(IllegalStateException.class)
+                .hasStackTraceContaining(String.format("Customer with id [%s] not found", customerId));
+    }
+
+    private long makePayment(String idempotencyKey, UUID customerId, String amount) throws Exception {
+        MvcResult result = mockMvc.perform(post("/api/v1/payment")
+                .header("Idempotency-Key", idempotencyKey)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(new PaymentRequest(
+                        new Payment(null, customerId, Money.parse(amount, Currency.GBP), "x0x0x0", "Zakat")))))
+                .andReturn();
+
+        String response = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readValue(response, PaymentResponse.class).getPaymentId();
+    }
+}
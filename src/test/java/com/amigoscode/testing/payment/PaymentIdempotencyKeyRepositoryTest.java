@@ -0,0 +1,102 @@
+package com.amigoscode.testing.payment;
+
+import com.amigoscode.testing.payment.PaymentIdempotencyKey.Status;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DataJpaTest(
+        properties = {
+                "spring.jpa.properties.javax.persistence.validation.mode=none"
+        }
+)
+class PaymentIdempotencyKeyRepositoryTest {
+
+    @Autowired
+    private PaymentIdempotencyKeyRepository underTest;
+
+    @Autowired
+    private TestEntityManager testEntityManager;
+
+    private final Instant now = Instant.parse("2020-05-01T10:00:00Z");
+
+    @Test
+    void itShouldReserveKeyOnlyOnce() {
+        // Given
+        underTest.reserve("key-1", "hash", now);
+
+        // When
+        // Then
+        assertThatThrownBy(() -> underTest.reserve("key-1", "hash", now))
+                .isInstanceOf(DataIntegrityViolationException.class);
+        assertThat(underTest.findById("key-1"))
+                .hasValueSatisfying(key -> {
+                    assertThat(key.getStatus()).isEqualTo(Status.PENDING);
+                    assertThat(key.getRequestHash()).isEqualTo("hash");
+                    assertThat(key.getPaymentId()).isNull();
+                });
+    }
+
+    @Test
+    void itShouldCompletePendingKeyWithPayment() {
+        // Given
+        underTest.reserve("key-1", "hash", now);
+
+        // When
+        int completed = underTest.complete("key-1", 7L);
+        int completedAgain = underTest.complete("key-1", 8L);
+        testEntityManager.clear();
+
+        // Then
+        assertThat(completed).isEqualTo(1);
+        assertThat(completedAgain).isZero();
+        assertThat(underTest.findById("key-1"))
+                .hasValueSatisfying(key -> {
+                    assertThat(key.getStatus()).isEqualTo(Status.COMPLETED);
+                    assertThat(key.getPaymentId()).isEqualTo(7L);
+                });
+    }
+
+    @Test
+    void itShouldReleaseOnlyPendingKeys() {
+        // Given
+        underTest.reserve("pending", "hash", now);
+        underTest.reserve("completed", "hash", now);
+        underTest.complete("completed", 7L);
+
+        // When
+        int released = underTest.release("pending") + underTest.release("completed");
+        testEntityManager.clear();
+
+        // Then
+        assertThat(released).isEqualTo(1);
+        assertThat(underTest.findById("pending")).isNotPresent();
+        assertThat(underTest.findById("completed")).isPresent();
+    }
+
+    @Test
+    void itShouldTakeOverOnlyAbandonedPendingKeys() {
+        // Given
+        underTest.reserve("key-1", "hash", now);
+
+        // When
+        int takenOverEarly = underTest.takeOver("key-1", now, now.plusSeconds(1));
+        int takenOver = underTest.takeOver("key-1", now.plusSeconds(1), now.plusSeconds(301));
+        int takenOverTwice = underTest.takeOver("key-1", now.plusSeconds(1), now.plusSeconds(301));
+        testEntityManager.clear();
+
+        // Then
+        assertThat(takenOverEarly).isZero();
+        assertThat(takenOver).isEqualTo(1);
+        assertThat(takenOverTwice).isZero();
+        assertThat(underTest.findById("key-1"))
+                .hasValueSatisfying(key -> assertThat(key.getReservedAt()).isEqualTo(now.plusSeconds(301)));
+    }
+}
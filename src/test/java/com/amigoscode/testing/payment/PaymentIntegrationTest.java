@@ -12,7 +12,6 @@ import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.ResultActions;
 
-import java.math.BigDecimal;
 import java.util.Objects;
 import java.util.UUID;
 
@@ -42,8 +41,7 @@ class PaymentIntegrationTest {
         // register
         Payment payment = new Payment(paymentId,
                 customerId,
-                new BigDecimal("100.00"),
-                Currency.GBP,
+                Money.parse("100.00", Currency.GBP),
                 "x0x0x0",
                 "Zakat"
         );
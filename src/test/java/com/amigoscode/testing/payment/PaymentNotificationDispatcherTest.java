@@ -0,0 +1,192 @@
+package com.amigoscode.testing.payment;
+
+import com.twilio.rest.api.v2010.account.Message;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.then;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+
+class PaymentNotificationDispatcherTest {
+
+    @Mock
+    private PaymentNotificationRepository paymentNotificationRepository;
+
+    @Mock
+    private SmsNotificationQueue smsNotificationQueue;
+
+    private final Instant now = Instant.parse("2020-05-01T10:00:00Z");
+
+    private PaymentNotificationDispatcher underTest;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.initMocks(this);
+        underTest = new PaymentNotificationDispatcher(
+                paymentNotificationRepository, smsNotificationQueue, Clock.fixed(now, ZoneOffset.UTC), 2, 5, 60_000, 1_000);
+    }
+
+    @Test
+    void itShouldMarkDeliveredNotificationsAndBackOffFailedOnes() {
+        // Given two pending notifications, the second one failed once before
+        PaymentNotification first = notification(1L, "+447000000001", 0);
+        PaymentNotification second = notification(2L, "+447000000002", 1);
+        given(paymentNotificationRepository.selectPendingNotificationIds(anyInt(), any(), any()))
+                .willReturn(List.of(1L, 2L))
+                .willReturn(List.of());
+        given(paymentNotificationRepository.selectClaimedNotifications(anyString())).willReturn(List.of(first, second));
+
+        // ... the first one is delivered, the second one fails
+        given(smsNotificationQueue.enqueue("+447000000001", "Paid"))
+                .willReturn(CompletableFuture.completedFuture(Message.Status.DELIVERED));
+        given(smsNotificationQueue.enqueue("+447000000002", "Paid"))
+                .willReturn(CompletableFuture.completedFuture(Message.Status.FAILED));
+
+        // When
+        underTest.dispatchPendingNotifications();
+
+        // Then
+        then(paymentNotificationRepository).should()
+                .claim(eq(List.of(1L, 2L)), anyString(), eq(now.plusSeconds(60)), eq(now));
+        then(paymentNotificationRepository).should().markDelivered(eq(List.of(1L)), anyString(), eq(now));
+        then(paymentNotificationRepository).should().incrementDispatches(eq(List.of(2L)), anyString(), eq(now.plusSeconds(2)));
+    }
+
+    @Test
+    void itShouldRecordResultsWithTheClaimTokenOfTheBatch() {
+        // Given
+        given(paymentNotificationRepository.selectPendingNotificationIds(anyInt(), any(), any()))
+                .willReturn(List.of(1L))
+                .willReturn(List.of());
+        given(paymentNotificationRepository.selectClaimedNotifications(anyString()))
+                .willReturn(List.of(notification(1L, "+447000000001", 0)));
+        given(smsNotificationQueue.enqueue(any(), any()))
+                .willReturn(CompletableFuture.completedFuture(Message.Status.SENT));
+
+        // When
+        underTest.dispatchPendingNotifications();
+
+        // Then the rows are only updated while they still carry this dispatcher's claim
+        ArgumentCaptor<String> claimToken = ArgumentCaptor.forClass(String.class);
+        then(paymentNotificationRepository).should().claim(anyList(), claimToken.capture(), any(), any());
+        then(paymentNotificationRepository).should().markDelivered(List.of(1L), claimToken.getValue(), now);
+    }
+
+    @Test
+    void itShouldNotWaitForDeliveriesLongerThanHalfTheLease() {
+        // Given a lease of 200 ms
+        underTest = new PaymentNotificationDispatcher(
+                paymentNotificationRepository, smsNotificationQueue, Clock.fixed(now, ZoneOffset.UTC), 2, 5, 200, 1_000);
+        given(paymentNotificationRepository.selectPendingNotificationIds(anyInt(), any(), any()))
+                .willReturn(List.of(1L, 2L))
+                .willReturn(List.of());
+        given(paymentNotificationRepository.selectClaimedNotifications(anyString()))
+                .willReturn(List.of(notification(1L, "+447000000001", 0), notification(2L, "+447000000002", 0)));
+
+        // ... the second delivery never completes
+        given(smsNotificationQueue.enqueue("+447000000001", "Paid"))
+                .willReturn(CompletableFuture.completedFuture(Message.Status.SENT));
+        given(smsNotificationQueue.enqueue("+447000000002", "Paid"))
+                .willReturn(new CompletableFuture<>());
+
+        // When
+        underTest.dispatchPendingNotifications();
+
+        // Then the finished one is recorded, the other one is left to be sent again once the lease expires
+        then(paymentNotificationRepository).should().markDelivered(eq(List.of(1L)), anyString(), eq(now));
+        then(paymentNotificationRepository).should(never()).incrementDispatches(anyList(), anyString(), any());
+    }
+
+    @Test
+    void itShouldKeepPollingWhileNotificationsAreDelivered() {
+        // Given a backlog of three notifications and a batch size of two
+        given(paymentNotificationRepository.selectPendingNotificationIds(anyInt(), any(), any()))
+                .willReturn(List.of(1L, 2L))
+                .willReturn(List.of(3L))
+                .willReturn(List.of());
+        given(paymentNotificationRepository.selectClaimedNotifications(anyString()))
+                .willReturn(List.of(notification(1L, "+447000000001", 0), notification(2L, "+447000000002", 0)))
+                .willReturn(List.of(notification(3L, "+447000000003", 0)));
+        given(smsNotificationQueue.enqueue(any(), any()))
+                .willReturn(CompletableFuture.completedFuture(Message.Status.SENT));
+
+        // When
+        underTest.dispatchPendingNotifications();
+
+        // Then
+        then(paymentNotificationRepository).should(times(3)).selectPendingNotificationIds(anyInt(), any(), any());
+        then(paymentNotificationRepository).should().markDelivered(eq(List.of(1L, 2L)), anyString(), eq(now));
+        then(paymentNotificationRepository).should().markDelivered(eq(List.of(3L)), anyString(), eq(now));
+    }
+
+    @Test
+    void itShouldStopPollingWhenNothingIsDelivered() {
+        // Given a full batch that fails
+        given(paymentNotificationRepository.selectPendingNotificationIds(anyInt(), any(), any()))
+                .willReturn(List.of(1L, 2L));
+        given(paymentNotificationRepository.selectClaimedNotifications(anyString()))
+                .willReturn(List.of(notification(1L, "+447000000001", 0), notification(2L, "+447000000002", 0)));
+        given(smsNotificationQueue.enqueue(any(), any()))
+                .willReturn(CompletableFuture.completedFuture(Message.Status.FAILED));
+
+        // When
+        underTest.dispatchPendingNotifications();
+
+        // Then the failed batch waits for the next poll
+        then(paymentNotificationRepository).should(times(1)).selectPendingNotificationIds(anyInt(), any(), any());
+        then(paymentNotificationRepository).should().incrementDispatches(eq(List.of(1L, 2L)), anyString(), eq(now.plusSeconds(1)));
+    }
+
+    @Test
+    void itShouldNotSendNotificationsClaimedByAnotherDispatcher() {
+        // Given both pending notifications were claimed elsewhere in the meantime
+        given(paymentNotificationRepository.selectPendingNotificationIds(anyInt(), any(), any()))
+                .willReturn(List.of(1L, 2L));
+        given(paymentNotificationRepository.selectClaimedNotifications(anyString())).willReturn(List.of());
+
+        // When
+        underTest.dispatchPendingNotifications();
+
+        // Then
+        then(smsNotificationQueue).shouldHaveNoInteractions();
+        then(paymentNotificationRepository).should(never()).markDelivered(anyList(), anyString(), any());
+    }
+
+    @Test
+    void itShouldDoNothingWhenNoNotificationIsPending() {
+        // Given
+        given(paymentNotificationRepository.selectPendingNotificationIds(anyInt(), any(), any())).willReturn(List.of());
+
+        // When
+        underTest.dispatchPendingNotifications();
+
+        // Then
+        then(smsNotificationQueue).shouldHaveNoInteractions();
+        then(paymentNotificationRepository).should(never()).claim(anyList(), anyString(), any(), any());
+        then(paymentNotificationRepository).should(never()).markDelivered(anyList(), anyString(), any());
+    }
+
+    private static PaymentNotification notification(Long id, String phoneNumber, int dispatches) {
+        PaymentNotification notification = new PaymentNotification(10L, phoneNumber, "Paid", Instant.EPOCH);
+        ReflectionTestUtils.setField(notification, "id", id);
+        ReflectionTestUtils.setField(notification, "dispatches", dispatches);
+        return notification;
+    }
+}
@@ -0,0 +1,120 @@
+package com.amigoscode.testing.payment;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest(
+        properties = {
+                "spring.jpa.properties.javax.persistence.validation.mode=none"
+        }
+)
+class PaymentNotificationRepositoryTest {
+
+    @Autowired
+    private PaymentNotificationRepository underTest;
+
+    @Autowired
+    private TestEntityManager testEntityManager;
+
+    private final Instant now = Instant.parse("2020-05-01T10:00:00Z");
+
+    @Test
+    void itShouldSelectDueNotificationsOldestFirst() {
+        // Given
+        PaymentNotification first = underTest.save(new PaymentNotification(1L, "+447000000001", "Paid", now.minusSeconds(2)));
+        PaymentNotification second = underTest.save(new PaymentNotification(2L, "+447000000002", "Paid", now.minusSeconds(1)));
+        PaymentNotification delivered = underTest.save(new PaymentNotification(3L, "+447000000003", "Paid", now));
+        underTest.save(new PaymentNotification(4L, "+447000000004", "Paid", now.plusSeconds(1)));
+        underTest.claim(List.of(delivered.getId()), "dispatcher", now.plusSeconds(60), now);
+        underTest.markDelivered(List.of(delivered.getId()), "dispatcher", now);
+
+        // When
+        List<Long> pending = underTest.selectPendingNotificationIds(5, now, PageRequest.of(0, 10));
+
+        // Then
+        assertThat(pending).containsExactly(first.getId(), second.getId());
+    }
+
+    @Test
+    void itShouldNotSelectNotificationsDispatchedTooManyTimes() {
+        // Given
+        PaymentNotification notification = underTest.save(new PaymentNotification(1L, "+447000000001", "Paid", now));
+        for (int i = 0; i < 2; i++) {
+            underTest.claim(List.of(notification.getId()), "dispatcher", now.plusSeconds(60), now);
+            underTest.incrementDispatches(List.of(notification.getId()), "dispatcher", now);
+        }
+        testEntityManager.clear();
+
+        // When
+        // Then
+        assertThat(underTest.selectPendingNotificationIds(2, now, PageRequest.of(0, 10))).isEmpty();
+        assertThat(underTest.selectPendingNotificationIds(3, now, PageRequest.of(0, 10))).hasSize(1);
+    }
+
+    @Test
+    void itShouldNotSelectFailedNotificationsBeforeTheirNextAttempt() {
+        // Given
+        PaymentNotification notification = underTest.save(new PaymentNotification(1L, "+447000000001", "Paid", now));
+        underTest.claim(List.of(notification.getId()), "dispatcher", now.plusSeconds(60), now);
+        underTest.incrementDispatches(List.of(notification.getId()), "dispatcher", now.plusSeconds(5));
+        testEntityManager.clear();
+
+        // When
+        // Then
+        assertThat(underTest.selectPendingNotificationIds(5, now.plusSeconds(4), PageRequest.of(0, 10))).isEmpty();
+        assertThat(underTest.selectPendingNotificationIds(5, now.plusSeconds(5), PageRequest.of(0, 10)))
+                .containsExactly(notification.getId());
+    }
+
+    @Test
+    void itShouldLetOnlyOneDispatcherClaimANotificationUntilTheLeaseExpires() {
+        // Given
+        PaymentNotification notification = underTest.save(new PaymentNotification(1L, "+447000000001", "Paid", now));
+        List<Long> ids = List.of(notification.getId());
+
+        // When
+        int claimedFirst = underTest.claim(ids, "first", now.plusSeconds(60), now);
+        int claimedSecond = underTest.claim(ids, "second", now.plusSeconds(60), now);
+        testEntityManager.clear();
+
+        // Then
+        assertThat(claimedFirst).isEqualTo(1);
+        assertThat(claimedSecond).isZero();
+        assertThat(underTest.selectClaimedNotifications("first"))
+                .extracting(PaymentNotification::getId)
+                .containsExactly(notification.getId());
+        assertThat(underTest.selectClaimedNotifications("second")).isEmpty();
+        assertThat(underTest.selectPendingNotificationIds(5, now, PageRequest.of(0, 10))).isEmpty();
+
+        // ... until the lease expires
+        assertThat(underTest.selectPendingNotificationIds(5, now.plusSeconds(60), PageRequest.of(0, 10)))
+                .containsExactly(notification.getId());
+        assertThat(underTest.claim(ids, "second", now.plusSeconds(120), now.plusSeconds(60))).isEqualTo(1);
+    }
+
+    @Test
+    void itShouldDropResultsOfADispatcherWhoseClaimWasTakenOver() {
+        // Given the first dispatcher's lease expired and a second one claimed the notification
+        PaymentNotification notification = underTest.save(new PaymentNotification(1L, "+447000000001", "Paid", now));
+        List<Long> ids = List.of(notification.getId());
+        underTest.claim(ids, "first", now.plusSeconds(60), now);
+        underTest.claim(ids, "second", now.plusSeconds(120), now.plusSeconds(60));
+
+        // When the first one reports late
+        int delivered = underTest.markDelivered(ids, "first", now.plusSeconds(61));
+        int failed = underTest.incrementDispatches(ids, "first", now.plusSeconds(61));
+
+        // Then
+        assertThat(delivered).isZero();
+        assertThat(failed).isZero();
+        assertThat(underTest.markDelivered(ids, "second", now.plusSeconds(62))).isEqualTo(1);
+    }
+}
@@ -4,7 +4,6 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 
-import java.math.BigDecimal;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -28,8 +27,7 @@ class PaymentRepositoryTest {
         Payment payment = new Payment(
                 paymentId,
                 UUID.randomUUID(),
-                new BigDecimal("10.00"),
-                Currency.USD,
+                Money.parse("10.00", Currency.USD),
                 "card123",
                 "Donation"
         );
@@ -1,25 +1,29 @@
 package com.amigoscode.testing.payment;
 
-import com.amigoscode.testing.customer.Customer;
-import com.amigoscode.testing.customer.CustomerRepository;
-import com.amigoscode.testing.payment.twilio.TwilioService;
-import com.twilio.rest.api.v2010.account.Message;
+import com.amigoscode.testing.customer.CustomerCache;
+import com.amigoscode.testing.customer.CustomerContact;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import java.math.BigDecimal;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
 import static org.assertj.core.api.AssertionsForClassTypes.assertThatThrownBy;
-import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.BDDMockito.then;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 
 class PaymentServiceTest {
 
@@ -27,20 +31,31 @@ class PaymentServiceTest {
     private CardPaymentCharger cardPaymentCharger;
 
     @Mock
-    private CardPaymentSender cardPaymentSender;
+    private PaymentNotificationRepository paymentNotificationRepository;
 
     @Mock
-    private CustomerRepository customerRepository;
+    private PaymentIdempotencyKeyRepository paymentIdempotencyKeyRepository;
+
+    @Mock
+    private CustomerSpendRepository customerSpendRepository;
+
+    @Mock
+    private CustomerCache customerCache;
 
     @Mock
     private PaymentRepository paymentRepository;
 
+    @Mock
+    private PaymentCache paymentCache;
+
     private PaymentService underTest;
 
     @BeforeEach
     void setUp() {
         MockitoAnnotations.initMocks(this);
-        underTest = new PaymentService(cardPaymentCharger, cardPaymentSender, customerRepository, paymentRepository);
+        underTest = new PaymentService(cardPaymentCharger, paymentNotificationRepository, paymentIdempotencyKeyRepository,
+                customerSpendRepository, customerCache, paymentRepository, paymentCache,
+                new TransactionTemplate(mock(PlatformTransactionManager.class)));
     }
 
     @Test
@@ -49,16 +64,15 @@ class PaymentServiceTest {
         UUID customerId = UUID.randomUUID();
 
         // ... customer exists
-        given(customerRepository.findById(customerId))
-                .willReturn(Optional.of(mock(Customer.class)));
+        given(customerCache.getCustomer(customerId))
+                .willReturn(Optional.of(new CustomerContact(customerId, "James", "0000")));
 
         // ... payment request
         PaymentRequest request = new PaymentRequest(
                 new Payment(
                         null,
                         null,
-                        new BigDecimal("100.00"),
-                        Currency.USD,
+                        Money.parse("100.00", Currency.USD),
                         "card123xx",
                         "Donation"
                 )
@@ -68,17 +82,11 @@ class PaymentServiceTest {
         given(cardPaymentCharger.chargeCard(
                 request.getPayment().getSource(),
                 request.getPayment().getAmount(),
-                request.getPayment().getCurrency(),
                 request.getPayment().getDescription()
         )).willReturn(new CardPaymentCharge(true));
 
-        // ... sms is sent successfully
-        String phoneNumber = "0000";
-        given(customerRepository.selectPhoneNumberById(customerId)).willReturn(phoneNumber);
-
-        Message.Status deliveredStatus = Message.Status.DELIVERED;
-
-        given(cardPaymentSender.sendSms(anyString(), anyString())).willReturn(deliveredStatus);
+        // ... payment is saved
+        given(paymentRepository.save(any(Payment.class))).willAnswer(invocation -> invocation.getArgument(0));
 
         // When
         underTest.chargeCard(customerId, request);
@@ -93,6 +101,89 @@ class PaymentServiceTest {
                 request.getPayment(), "customerId"
         );
         assertThat(paymentArgumentCaptorValue.getCustomerId()).isEqualTo(customerId);
+
+        // ... sms notification is stored for the customer phone number
+        then(paymentNotificationRepository).should().save(any(PaymentNotification.class));
+
+        // ... no idempotency key was given
+        then(paymentIdempotencyKeyRepository).shouldHaveNoInteractions();
+    }
+
+    @Test
+    void itShouldStoreIdempotencyKeyWithPayment() {
+        // Given
+        UUID customerId = UUID.randomUUID();
+        String idempotencyKey = "key-1";
+
+        given(customerCache.getCustomer(customerId))
+                .willReturn(Optional.of(new CustomerContact(customerId, "James", "0000")));
+
+        PaymentRequest request = new PaymentRequest(
+                new Payment(
+                        null,
+                        null,
+                        Money.parse("100.00", Currency.USD),
+                        "card123xx",
+                        "Donation"
+                )
+        );
+
+        given(cardPaymentCharger.chargeCard(
+                request.getPayment().getSource(),
+                request.getPayment().getAmount(),
+                request.getPayment().getDescription(),
+                idempotencyKey
+        )).willReturn(new CardPaymentCharge(true));
+
+        given(paymentRepository.save(any(Payment.class))).willAnswer(invocation -> {
+            Payment payment = invocation.getArgument(0);
+            payment.setPaymentId(7L);
+            return payment;
+        });
+        given(paymentIdempotencyKeyRepository.complete(idempotencyKey, 7L)).willReturn(1);
+
+        // When
+        Long paymentId = underTest.chargeCard(customerId, request, idempotencyKey);
+
+        // Then the key reserved before charging is completed with the payment
+        assertThat(paymentId).isEqualTo(7L);
+        then(paymentIdempotencyKeyRepository).should().complete(idempotencyKey, 7L);
+        then(paymentIdempotencyKeyRepository).should(never()).save(any());
+    }
+
+    @Test
+    void itShouldNotSavePaymentWhenIdempotencyKeyWasCompletedElsewhere() {
+        // Given
+        UUID customerId = UUID.randomUUID();
+        String idempotencyKey = "key-1";
+
+        given(customerCache.getCustomer(customerId))
+                .willReturn(Optional.of(new CustomerContact(customerId, "James", "0000")));
+
+        PaymentRequest request = new PaymentRequest(
+                new Payment(
+                        null,
+                        null,
+                        Money.parse("100.00", Currency.USD),
+                        "card123xx",
+                        "Donation"
+                )
+        );
+
+        given(cardPaymentCharger.chargeCard(
+                request.getPayment().getSource(),
+                request.getPayment().getAmount(),
+                request.getPayment().getDescription(),
+                idempotencyKey
+        )).willReturn(new CardPaymentCharge(true));
+        given(paymentRepository.save(any(Payment.class))).willAnswer(invocation -> invocation.getArgument(0));
+        given(paymentIdempotencyKeyRepository.complete(eq(idempotencyKey), any())).willReturn(0);
+
+        // When
+        // Then
+        assertThatThrownBy(() -> underTest.chargeCard(customerId, request, idempotencyKey))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("was completed elsewhere");
     }
 
     @Test
@@ -101,16 +192,15 @@ class PaymentServiceTest {
         UUID customerId = UUID.randomUUID();
 
         // ... customer exists
-        given(customerRepository.findById(customerId))
-                .willReturn(Optional.of(mock(Customer.class)));
+        given(customerCache.getCustomer(customerId))
+                .willReturn(Optional.of(new CustomerContact(customerId, "James", "0000")));
 
         // ... payment request
         PaymentRequest request = new PaymentRequest(
                 new Payment(
                         null,
                         null,
-                        new BigDecimal("100.00"),
-                        Currency.USD,
+                        Money.parse("100.00", Currency.USD),
                         "card123xx",
                         "Donation"
                 )
@@ -120,7 +210,6 @@ class PaymentServiceTest {
         given(cardPaymentCharger.chargeCard(
                 request.getPayment().getSource(),
                 request.getPayment().getAmount(),
-                request.getPayment().getCurrency(),
                 request.getPayment().getDescription()
         )).willReturn(new CardPaymentCharge(false));
 
@@ -138,8 +227,8 @@ class PaymentServiceTest {
         UUID customerId = UUID.randomUUID();
 
         // ... customer exists
-        given(customerRepository.findById(customerId))
-                .willReturn(Optional.of(mock(Customer.class)));
+        given(customerCache.getCustomer(customerId))
+                .willReturn(Optional.of(new CustomerContact(customerId, "James", "0000")));
 
         // ... Euros
         Currency currency = Currency.EUR;
@@ -149,8 +238,7 @@ class PaymentServiceTest {
                 new Payment(
                         null,
                         null,
-                        new BigDecimal("100.00"),
-                        currency,
+                        Money.parse("100.00", currency),
                         "card123xx",
                         "Donation"
                 )
@@ -173,7 +261,7 @@ class PaymentServiceTest {
         UUID customerId = UUID.randomUUID();
 
         // customer not found in db
-        given(customerRepository.findById(customerId)).willReturn(Optional.empty());
+        given(customerCache.getCustomer(customerId)).willReturn(Optional.empty());
 
         // When
         // Then
@@ -187,21 +275,20 @@ class PaymentServiceTest {
     }
 
     @Test
-    void itShouldNotChargeCardAndThrowWhenSmsIsNotDelivered() {
+    void itShouldStoreSmsNotificationWithPayment() {
         // Given
         UUID customerId = UUID.randomUUID();
 
         // ... customer exists
-        given(customerRepository.findById(customerId))
-                .willReturn(Optional.of(mock(Customer.class)));
+        given(customerCache.getCustomer(customerId))
+                .willReturn(Optional.of(new CustomerContact(customerId, "James", "0000")));
 
         // ... payment request
         PaymentRequest request = new PaymentRequest(
                 new Payment(
                         null,
                         null,
-                        new BigDecimal("100.00"),
-                        Currency.USD,
+                        Money.parse("100.00", Currency.USD),
                         "card123xx",
                         "Donation"
                 )
@@ -211,22 +298,155 @@ class PaymentServiceTest {
         given(cardPaymentCharger.chargeCard(
                 request.getPayment().getSource(),
                 request.getPayment().getAmount(),
-                request.getPayment().getCurrency(),
                 request.getPayment().getDescription()
         )).willReturn(new CardPaymentCharge(true));
 
-        // ... sms is not sent successfully
-        String phoneNumber = "0000";
-        given(customerRepository.selectPhoneNumberById(customerId)).willReturn(phoneNumber);
+        // ... payment is saved with an id
+        given(paymentRepository.save(request.getPayment())).willAnswer(invocation -> {
+            request.getPayment().setPaymentId(7L);
+            return request.getPayment();
+        });
 
-        Message.Status failedStatus = Message.Status.FAILED;
+        // When
+        underTest.chargeCard(customerId, request);
+
+        // Then
+        ArgumentCaptor<PaymentNotification> notificationArgumentCaptor =
+                ArgumentCaptor.forClass(PaymentNotification.class);
+        InOrder inOrder = inOrder(paymentRepository, paymentNotificationRepository);
+        inOrder.verify(paymentRepository).save(request.getPayment());
+        inOrder.verify(paymentNotificationRepository).save(notificationArgumentCaptor.capture());
+
+        PaymentNotification notification = notificationArgumentCaptor.getValue();
+        assertThat(notification.getPaymentId()).isEqualTo(7L);
+        assertThat(notification.getPhoneNumber()).isEqualTo("0000");
+        assertThat(notification.getMessage()).isEqualTo("Card change was successfully completed!");
+        assertThat(notification.getDeliveredAt()).isNull();
+    }
 
-        given(cardPaymentSender.sendSms(anyString(), anyString())).willReturn(failedStatus);
+    @Test
+    void itShouldUpdateCustomerSpendWithPayment() {
+        // Given
+        UUID customerId = UUID.randomUUID();
+        given(customerCache.getCustomer(customerId))
+                .willReturn(Optional.of(new CustomerContact(customerId, "James", "0000")));
+
+        PaymentRequest request = new PaymentRequest(
+                new Payment(
+                        null,
+                        null,
+                        Money.parse("100.00", Currency.GBP),
+                        "card123xx",
+                        "Donation"
+                )
+        );
+        given(cardPaymentCharger.chargeCard(any(), any(), any())).willReturn(new CardPaymentCharge(true));
+        given(paymentRepository.save(request.getPayment())).willReturn(request.getPayment());
 
         // When
+        underTest.chargeCard(customerId, request);
+
         // Then
-        assertThatThrownBy(() -> underTest.chargeCard(customerId, request))
-                .isInstanceOf(IllegalStateException.class)
-                .hasMessageContaining("SMS not delivered for customer " + customerId);
+        InOrder inOrder = inOrder(paymentRepository, customerSpendRepository);
+        inOrder.verify(paymentRepository).save(request.getPayment());
+        inOrder.verify(customerSpendRepository).addPayments(customerId, 1, Money.parse("100.00", Currency.GBP));
+    }
+
+    @Test
+    void itShouldChargeCardAsyncAndSavePaymentWhenChargeCompletes() {
+        // Given
+        UUID customerId = UUID.randomUUID();
+        given(customerCache.getCustomer(customerId))
+                .willReturn(Optional.of(new CustomerContact(customerId, "James", "0000")));
+
+        PaymentRequest request = new PaymentRequest(
+                new Payment(
+                        null,
+                        null,
+                        Money.parse("100.00", Currency.USD),
+                        "card123xx",
+                        "Donation"
+                )
+        );
+
+        // ... charge is still in flight
+        CompletableFuture<CardPaymentCharge> charge = new CompletableFuture<>();
+        given(cardPaymentCharger.chargeCardAsync(
+                request.getPayment().getSource(),
+                request.getPayment().getAmount(),
+                request.getPayment().getDescription()
+        )).willReturn(charge);
+
+        given(paymentRepository.save(any(Payment.class))).willAnswer(invocation -> {
+            Payment payment = invocation.getArgument(0);
+            payment.setPaymentId(9L);
+            return payment;
+        });
+
+        // When
+        CompletableFuture<Long> paymentId = underTest.chargeCardAsync(customerId, request, null);
+
+        // Then nothing is saved until the card is charged
+        assertThat(paymentId).isNotDone();
+        then(paymentRepository).shouldHaveNoInteractions();
+
+        charge.complete(new CardPaymentCharge(true));
+
+        assertThat(paymentId.join()).isEqualTo(9L);
+        then(paymentNotificationRepository).should().save(any(PaymentNotification.class));
+    }
+
+    @Test
+    void itShouldFailAsyncChargeWhenCardIsNotCharged() {
+        // Given
+        UUID customerId = UUID.randomUUID();
+        given(customerCache.getCustomer(customerId))
+                .willReturn(Optional.of(new CustomerContact(customerId, "James", "0000")));
+
+        PaymentRequest request = new PaymentRequest(
+                new Payment(
+                        null,
+                        null,
+                        Money.parse("100.00", Currency.USD),
+                        "card123xx",
+                        "Donation"
+                )
+        );
+
+        given(cardPaymentCharger.chargeCardAsync(any(), any(), any()))
+                .willReturn(CompletableFuture.completedFuture(new CardPaymentCharge(false)));
+
+        // When
+        // Then
+        assertThatThrownBy(() -> underTest.chargeCardAsync(customerId, request, null).join())
+                .hasCauseInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("Card not debited for customer " + customerId);
+        then(paymentRepository).shouldHaveNoInteractions();
+    }
+
+    @Test
+    void itShouldFailAsyncChargeWithoutChargingWhenCustomerIsNotFound() {
+        // Given
+        UUID customerId = UUID.randomUUID();
+        given(customerCache.getCustomer(customerId)).willReturn(Optional.empty());
+
+        PaymentRequest request = new PaymentRequest(
+                new Payment(
+                        null,
+                        null,
+                        Money.parse("100.00", Currency.USD),
+                        "card123xx",
+                        "Donation"
+                )
+        );
+
+        // When
+        CompletableFuture<Long> paymentId = underTest.chargeCardAsync(customerId, request, null);
+
+        // Then
+        assertThatThrownBy(paymentId::join)
+                .hasCauseInstanceOf(IllegalStateException.class)
+                .hasMessageContaining(String.format("Customer with id [%s] not found", customerId));
+        then(cardPaymentCharger).shouldHaveNoInteractions();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,45 @@
+package com.amigoscode.testing.payment;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// own in-memory database, PaymentRepositoryTest expects the first payment id of the shared one
+@DataJpaTest(
+        properties = {
+                "spring.jpa.properties.javax.persistence.validation.mode=none",
+                "spring.datasource.generate-unique-name=true"
+        }
+)
+class PaymentSummaryRepositoryTest {
+
+    @Autowired
+    private PaymentRepository underTest;
+
+    @Test
+    void itShouldSeekPaymentSummariesOfCustomerAfterPaymentId() {
+        // Given payments of two customers
+        UUID customerId = UUID.randomUUID();
+        Payment first = underTest.save(new Payment(null, customerId, Money.parse("10.00", Currency.USD), "card123", "First"));
+        underTest.save(new Payment(null, UUID.randomUUID(), Money.parse("20.00", Currency.USD), "card456", "Other"));
+        Payment second = underTest.save(new Payment(null, customerId, Money.parse("30.00", Currency.GBP), "card123", "Second"));
+        Payment third = underTest.save(new Payment(null, customerId, Money.parse("40.00", Currency.GBP), "card123", "Third"));
+
+        // When
+        List<PaymentSummary> firstPage = underTest.selectPaymentSummaries(customerId, Long.MIN_VALUE, PageRequest.of(0, 2));
+        List<PaymentSummary> secondPage = underTest.selectPaymentSummaries(customerId, second.getPaymentId(), PageRequest.of(0, 2));
+
+        // Then
+        assertThat(firstPage).containsExactly(
+                new PaymentSummary(first.getPaymentId(), Money.parse("10.00", Currency.USD), "First"),
+                new PaymentSummary(second.getPaymentId(), Money.parse("30.00", Currency.GBP), "Second"));
+        assertThat(secondPage).containsExactly(
+                new PaymentSummary(third.getPaymentId(), Money.parse("40.00", Currency.GBP), "Third"));
+    }
+}
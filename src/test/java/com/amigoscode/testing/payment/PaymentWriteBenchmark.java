@@ -0,0 +1,119 @@
+package com.amigoscode.testing.payment;
+
+import ch.qos.logback.classic.Logger;
+import org.h2.jdbcx.JdbcDataSource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.slf4j.LoggerFactory;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.time.Instant;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+// Inserts payments with their sms notification into H2, 100 per transaction like PaymentBatchService.
+// "per-row" fetches a sequence value per payment and sends every insert on its own,
+// "batched" keeps the per row sequence but enables JDBC batching and ordered inserts,
+// "pooled-batched" is the Payment mapping with a pooled sequence plus batching.
+// Run with: mvn test-compile exec:java -Dexec.classpathScope=test
+//   -Dexec.mainClass=com.amigoscode.testing.payment.PaymentWriteBenchmark
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PaymentWriteBenchmark {
+
+    private static final int CHUNK_SIZE = 100;
+
+    @Param({"per-row", "batched", "pooled-batched"})
+    private String mode;
+
+    private LocalContainerEntityManagerFactoryBean entityManagerFactoryBean;
+
+    private EntityManagerFactory entityManagerFactory;
+
+    private UUID customerId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // logback defaults to debug outside of Spring Boot
+        ((Logger) LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME)).setLevel(ch.qos.logback.classic.Level.INFO);
+
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:payment-write-" + mode + ";DB_CLOSE_DELAY=-1");
+
+        Properties properties = new Properties();
+        properties.setProperty("hibernate.hbm2ddl.auto", "create-drop");
+        if (!"per-row".equals(mode)) {
+            properties.setProperty("hibernate.jdbc.batch_size", "50");
+            properties.setProperty("hibernate.order_inserts", "true");
+        }
+
+        entityManagerFactoryBean = new LocalContainerEntityManagerFactoryBean();
+        entityManagerFactoryBean.setDataSource(dataSource);
+        entityManagerFactoryBean.setJpaVendorAdapter(new HibernateJpaVendorAdapter());
+        entityManagerFactoryBean.setPackagesToScan(Payment.class.getPackageName());
+        entityManagerFactoryBean.setJpaProperties(properties);
+        if (!"pooled-batched".equals(mode)) {
+            entityManagerFactoryBean.setMappingResources("META-INF/payment-sequence-per-row.xml");
+        }
+        entityManagerFactoryBean.afterPropertiesSet();
+        entityManagerFactory = entityManagerFactoryBean.getObject();
+        customerId = UUID.randomUUID();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        entityManagerFactoryBean.destroy();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CHUNK_SIZE)
+    public void savePayments() {
+        EntityManager entityManager = entityManagerFactory.createEntityManager();
+        try {
+            entityManager.getTransaction().begin();
+            Instant now = Instant.now();
+            for (int i = 0; i < CHUNK_SIZE; i++) {
+                Payment payment = new Payment(null, customerId, Money.parse("10.00", Currency.USD), "x0x0x0", "Zakat");
+                entityManager.persist(payment);
+                entityManager.persist(new PaymentNotification(
+                        payment.getPaymentId(),
+                        "+447000000000",
+                        PaymentService.PAYMENT_NOTIFICATION,
+                        now));
+            }
+            entityManager.getTransaction().commit();
+        } finally {
+            entityManager.close();
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(PaymentWriteBenchmark.class.getSimpleName())
+                .build()
+        ).run();
+    }
+}
@@ -0,0 +1,136 @@
+package com.amigoscode.testing.payment;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Load test: clients keep the request pool busy with charges against a provider that takes 500 ms,
+// while the benchmark measures a payment lookup served by the same pool.
+// Charges per second are printed at the end of every iteration.
+// Run with: mvn test-compile exec:java -Dexec.classpathScope=test
+//   -Dexec.mainClass=com.amigoscode.testing.payment.ProviderExecutionBenchmark
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1, time = 3)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+public class ProviderExecutionBenchmark {
+
+    private static final long PROVIDER_LATENCY_MILLIS = 500;
+
+    private static final int REQUEST_THREADS = 20;
+
+    private static final int CHARGING_CLIENTS = 40;
+
+    @Param({"direct", "isolated"})
+    private String mode;
+
+    private ThreadPoolExecutor requests;
+
+    private ExecutorService clients;
+
+    private ProviderCallExecutor providerCallExecutor;
+
+    private volatile boolean running;
+
+    private final AtomicLong charged = new AtomicLong();
+
+    private final AtomicLong rejected = new AtomicLong();
+
+    private long startedAt;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        // stands in for the Tomcat worker pool
+        requests = new ThreadPoolExecutor(
+                REQUEST_THREADS, REQUEST_THREADS,
+                0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>());
+        providerCallExecutor = "direct".equals(mode)
+                ? new DirectProviderCallExecutor(REQUEST_THREADS, REQUEST_THREADS)
+                : new IsolatedProviderCallExecutor(new SimpleMeterRegistry(), 2_000, REQUEST_THREADS / 2);
+
+        charged.set(0);
+        rejected.set(0);
+        running = true;
+        startedAt = System.nanoTime();
+        clients = Executors.newFixedThreadPool(CHARGING_CLIENTS);
+        for (int i = 0; i < CHARGING_CLIENTS; i++) {
+            clients.execute(this::chargeContinuously);
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() throws Exception {
+        running = false;
+        double seconds = (System.nanoTime() - startedAt) / 1e9;
+        System.out.printf("%n%s: %.1f charges/s, %.1f rejected/s%n", mode, charged.get() / seconds, rejected.get() / seconds);
+        clients.shutdownNow();
+        requests.shutdownNow();
+        if (providerCallExecutor instanceof IsolatedProviderCallExecutor) {
+            ((IsolatedProviderCallExecutor) providerCallExecutor).shutdown();
+        }
+    }
+
+    @Benchmark
+    public Long getPaymentById() throws Exception {
+        return requests.submit(() -> 1L).get();
+    }
+
+    private void chargeContinuously() {
+        while (running) {
+            try {
+                requests.submit(() -> providerCallExecutor.call("stripe", this::slowCharge)).get();
+                charged.incrementAndGet();
+            } catch (ExecutionException e) {
+                rejected.incrementAndGet();
+                sleep(10);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    private CardPaymentCharge slowCharge() {
+        sleep(PROVIDER_LATENCY_MILLIS);
+        return new CardPaymentCharge(true);
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ProviderExecutionBenchmark.class.getSimpleName())
+                .build()
+        ).run();
+    }
+}
@@ -0,0 +1,180 @@
+package com.amigoscode.testing.payment;
+
+import com.amigoscode.testing.customer.Customer;
+import com.amigoscode.testing.customer.CustomerRegistrationRequest;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.amigoscode.testing.customer.ReactiveCustomerRegistrationHandler.APPLICATION_NDJSON;
+import static org.assertj.core.api.Assertions.assertThat;
+
+// own in-memory database, PaymentIntegrationTest expects the first payment id of the shared one
+@SpringBootTest(properties = {
+        "spring.main.web-application-type=reactive",
+        "spring.datasource.generate-unique-name=true"
+})
+@ActiveProfiles("reactive")
+@AutoConfigureWebTestClient
+class ReactivePaymentIntegrationTest {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Test
+    void itShouldCreatePaymentSuccessfully() {
+        // Given a customer
+        UUID customerId = UUID.randomUUID();
+        Customer customer = new Customer(customerId, "James", "+447000000101");
+
+        // ... payment request
+        PaymentRequest paymentRequest = new PaymentRequest(new Payment(null,
+                customerId,
+                Money.parse("100.00", Currency.GBP),
+                "x0x0x0",
+                "Zakat"
+        ));
+
+        // When the customer registers and pays
+        webTestClient.put().uri("/api/v1/customer-registration")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(new CustomerRegistrationRequest(customer))
+                .exchange()
+                .expectStatus().isOk();
+
+        AtomicLong paymentId = new AtomicLong();
+        webTestClient.post().uri("/api/v1/payment")
+                .header("Idempotency-Key", "key-" + customerId)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(paymentRequest)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.paymentId").value(id -> paymentId.set(((Number) id).longValue()));
+
+        // Then a replay answers the same payment id
+        webTestClient.post().uri("/api/v1/payment")
+                .header("Idempotency-Key", "key-" + customerId)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(paymentRequest)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.paymentId").isEqualTo(paymentId.get());
+
+        // ... and the payment is listed once in the customer history
+        webTestClient.get()
+                .uri(uri -> uri.path("/api/v1/payment").queryParam("customerId", customerId).build())
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.payments.length()").isEqualTo(1)
+                .jsonPath("$.payments[0].paymentId").isEqualTo(paymentId.get());
+
+        // ... and can be fetched by id
+        String eTag = webTestClient.get().uri("/api/v1/payment/{paymentId}", paymentId.get())
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.paymentId").isEqualTo(paymentId.get())
+                .jsonPath("$.amount").isEqualTo(100.00)
+                .jsonPath("$.currency").isEqualTo("GBP")
+                .returnResult()
+                .getResponseHeaders()
+                .getETag();
+
+        // ... and revalidated with its ETag
+        webTestClient.get().uri("/api/v1/payment/{paymentId}", paymentId.get())
+                .header(HttpHeaders.IF_NONE_MATCH, eTag)
+                .exchange()
+                .expectStatus().isNotModified()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, eTag)
+                .expectHeader().valueEquals(HttpHeaders.CACHE_CONTROL, "max-age=60, must-revalidate, private")
+                .expectBody().isEmpty();
+    }
+
+    @Test
+    void itShouldChargePaymentBatch() {
+        // Given a registered customer
+        UUID customerId = UUID.randomUUID();
+        webTestClient.put().uri("/api/v1/customer-registration")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(new CustomerRegistrationRequest(new Customer(customerId, "Ali", "+447000000102")))
+                .exchange()
+                .expectStatus().isOk();
+
+        // ... a batch with one valid and one unknown customer
+        List<PaymentRequest> paymentRequests = List.of(
+                new PaymentRequest(new Payment(null, customerId, Money.parse("10.00", Currency.USD), "x0x0x0", "Zakat")),
+                new PaymentRequest(new Payment(null, UUID.randomUUID(), Money.parse("10.00", Currency.USD), "x0x0x0", "Zakat")));
+
+        // When
+        // Then
+        webTestClient.post().uri("/api/v1/payment/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(paymentRequests)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$[0].status").isEqualTo("CHARGED")
+                .jsonPath("$[1].status").isEqualTo("INVALID");
+    }
+
+    @Test
+    void itShouldRejectHistoryRequestWithoutCustomerId() {
+        // When
+        // Then
+        webTestClient.get().uri("/api/v1/payment")
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    void itShouldRejectRegistrationWithoutBody() {
+        // When
+        // Then
+        webTestClient.put().uri("/api/v1/customer-registration")
+                .contentType(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    void itShouldRegisterCustomersInBulk() {
+        // Given two valid rows and one invalid row
+        String body = "{\"customer\":{\"id\":\"" + UUID.randomUUID() + "\",\"name\":\"Maria\",\"phoneNumber\":\"+447000000103\"}}\n"
+                + "{\"customer\":{\"id\":\"" + UUID.randomUUID() + "\",\"name\":\"Omar\",\"phoneNumber\":\"+447000000104\"}}\n"
+                + "{\"customer\":{\"id\":\"" + UUID.randomUUID() + "\",\"name\":\"Nobody\",\"phoneNumber\":\"not-a-number\"}}\n";
+
+        // When
+        String results = webTestClient.put().uri("/api/v1/customer-registration/bulk")
+                .contentType(APPLICATION_NDJSON)
+                .accept(APPLICATION_NDJSON)
+                .bodyValue(body)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(APPLICATION_NDJSON)
+                .expectBody(String.class)
+                .returnResult()
+                .getResponseBody();
+
+        // Then one result line per row, in order
+        assertThat(results).isNotNull();
+        assertThat(results.split("\n"))
+                .hasSize(3)
+                .satisfies(lines -> {
+                    assertThat(lines[0]).contains("\"index\":0", "REGISTERED");
+                    assertThat(lines[1]).contains("\"index\":1", "REGISTERED");
+                    assertThat(lines[2]).contains("\"index\":2", "INVALID");
+                });
+    }
+}
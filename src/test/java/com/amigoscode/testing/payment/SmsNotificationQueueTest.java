@@ -0,0 +1,161 @@
+package com.amigoscode.testing.payment;
+
+import com.twilio.rest.api.v2010.account.Message;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.then;
+import static org.mockito.Mockito.times;
+
+class SmsNotificationQueueTest {
+
+    @Mock
+    private CardPaymentSender cardPaymentSender;
+
+    private MeterRegistry meterRegistry;
+
+    private SmsNotificationQueue underTest;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.initMocks(this);
+        meterRegistry = new SimpleMeterRegistry();
+        underTest = new SmsNotificationQueue(cardPaymentSender, meterRegistry, 2, 10, 3, 1);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        underTest.shutdown();
+    }
+
+    @Test
+    void itShouldSendSms() throws Exception {
+        // Given
+        given(cardPaymentSender.sendSms("0000", "Hello")).willReturn(Message.Status.DELIVERED);
+
+        // When
+        Message.Status status = underTest.enqueue("0000", "Hello").get(5, TimeUnit.SECONDS);
+
+        // Then
+        assertThat(status).isEqualTo(Message.Status.DELIVERED);
+        assertThat(meterRegistry.get("payment.sms.delivery").tag("outcome", "delivered").timer().count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void itShouldRetrySmsUntilItIsSent() throws Exception {
+        // Given
+        given(cardPaymentSender.sendSms("0000", "Hello"))
+                .willThrow(new IllegalStateException("Twilio is down"))
+                .willReturn(Message.Status.FAILED)
+                .willReturn(Message.Status.SENT);
+
+        // When
+        Message.Status status = underTest.enqueue("0000", "Hello").get(5, TimeUnit.SECONDS);
+
+        // Then
+        assertThat(status).isEqualTo(Message.Status.SENT);
+        then(cardPaymentSender).should(times(3)).sendSms("0000", "Hello");
+        assertThat(meterRegistry.get("payment.sms.retries").counter().count()).isEqualTo(2);
+    }
+
+    @Test
+    void itShouldGiveUpAfterMaxAttempts() throws Exception {
+        // Given
+        given(cardPaymentSender.sendSms("0000", "Hello")).willReturn(Message.Status.FAILED);
+
+        // When
+        Message.Status status = underTest.enqueue("0000", "Hello").get(5, TimeUnit.SECONDS);
+
+        // Then
+        assertThat(status).isEqualTo(Message.Status.FAILED);
+        then(cardPaymentSender).should(times(3)).sendSms("0000", "Hello");
+        assertThat(meterRegistry.get("payment.sms.delivery").tag("outcome", "failed").timer().count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void itShouldFailSmsWithoutSendingOnCallerThreadWhenQueueIsFull() throws Exception {
+        // Given one worker busy with a slow send and a queue with room for one more
+        SmsNotificationQueue full = new SmsNotificationQueue(cardPaymentSender, meterRegistry, 1, 1, 3, 1);
+        CountDownLatch release = new CountDownLatch(1);
+        given(cardPaymentSender.sendSms("0000", "Hello")).willAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return Message.Status.SENT;
+        });
+
+        try {
+            CompletableFuture<Message.Status> sending = full.enqueue("0000", "Hello");
+            CompletableFuture<Message.Status> queued = full.enqueue("0000", "Hello");
+
+            // When
+            CompletableFuture<Message.Status> rejected = full.enqueue("0000", "Hello");
+
+            // Then
+            assertThat(rejected).isCompletedWithValue(Message.Status.FAILED);
+            assertThat(meterRegistry.get("payment.sms.rejected").counter().count()).isEqualTo(1);
+
+            release.countDown();
+            assertThat(sending.get(5, TimeUnit.SECONDS)).isEqualTo(Message.Status.SENT);
+            assertThat(queued.get(5, TimeUnit.SECONDS)).isEqualTo(Message.Status.SENT);
+            then(cardPaymentSender).should(times(2)).sendSms("0000", "Hello");
+        } finally {
+            release.countDown();
+            full.shutdown();
+        }
+    }
+
+    @Test
+    void itShouldFailSmsEnqueuedAfterShutdown() throws Exception {
+        // Given
+        underTest.shutdown();
+
+        // When
+        CompletableFuture<Message.Status> delivery = underTest.enqueue("0000", "Hello");
+
+        // Then
+        assertThat(delivery).isCompletedWithValue(Message.Status.FAILED);
+        then(cardPaymentSender).shouldHaveNoInteractions();
+    }
+
+    @Test
+    void itShouldFailRetryScheduledAfterShutdown() throws Exception {
+        // Given a send that fails while the queue shuts down
+        CountDownLatch sending = new CountDownLatch(1);
+        CountDownLatch shutDown = new CountDownLatch(1);
+        given(cardPaymentSender.sendSms("0000", "Hello")).willAnswer(invocation -> {
+            sending.countDown();
+            shutDown.await(5, TimeUnit.SECONDS);
+            return Message.Status.FAILED;
+        });
+        CompletableFuture<Message.Status> delivery = underTest.enqueue("0000", "Hello");
+        sending.await(5, TimeUnit.SECONDS);
+
+        // When
+        CompletableFuture<Void> shutdown = CompletableFuture.runAsync(() -> {
+            try {
+                underTest.shutdown();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        Thread.sleep(100);
+        shutDown.countDown();
+        shutdown.get(10, TimeUnit.SECONDS);
+
+        // Then the retry is not dropped silently
+        assertThat(delivery.get(5, TimeUnit.SECONDS)).isEqualTo(Message.Status.FAILED);
+        then(cardPaymentSender).should(times(1)).sendSms("0000", "Hello");
+    }
+}
@@ -0,0 +1,91 @@
+package com.amigoscode.testing.payment.stripe;
+
+import com.stripe.exception.ApiConnectionException;
+import com.stripe.exception.StripeException;
+import com.stripe.model.Charge;
+import com.stripe.net.HttpURLConnectionClient;
+import com.stripe.param.ChargeCreateParams;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class StripeApiTest {
+
+    private StripeStubServer stripe;
+
+    private StripeApi underTest;
+
+    @AfterEach
+    void tearDown() {
+        underTest.shutdown();
+        stripe.close();
+    }
+
+    @Test
+    void itShouldReuseConnectionAcrossCharges() throws IOException, StripeException {
+        // Given
+        stripe = new StripeStubServer(0);
+        underTest = new StripeApi(new PooledStripeHttpClient(connectionManager()), stripe.apiBase());
+        StripeRequestOptions requestOptions = new StripeRequestOptions("sk_test_merchant", 1_000, 1_000);
+
+        // When
+        for (int i = 0; i < 5; i++) {
+            Charge charge = underTest.create(params(), requestOptions.get());
+
+            // Then
+            assertThat(charge.getPaid()).isTrue();
+        }
+        assertThat(stripe.connectionCount()).isEqualTo(1);
+    }
+
+    @Test
+    void itShouldReuseConnectionAcrossChargesWithDefaultClient() throws IOException, StripeException {
+        // Given
+        stripe = new StripeStubServer(0);
+        underTest = new StripeApi(new HttpURLConnectionClient(), stripe.apiBase());
+        StripeRequestOptions requestOptions = new StripeRequestOptions("sk_test_merchant", 1_000, 1_000);
+
+        // When
+        for (int i = 0; i < 5; i++) {
+            Charge charge = underTest.create(params(), requestOptions.get());
+
+            // Then
+            assertThat(charge.getPaid()).isTrue();
+        }
+        assertThat(stripe.connectionCount()).isEqualTo(1);
+    }
+
+    @Test
+    void itShouldApplyReadTimeoutFromRequestOptions() throws IOException {
+        // Given a Stripe answering after the read timeout
+        stripe = new StripeStubServer(500);
+        underTest = new StripeApi(new PooledStripeHttpClient(connectionManager()), stripe.apiBase());
+        StripeRequestOptions requestOptions = new StripeRequestOptions("sk_test_merchant", 1_000, 100);
+
+        // When
+        // Then
+        assertThatThrownBy(() -> underTest.create(params(), requestOptions.get()))
+                .isInstanceOf(ApiConnectionException.class);
+    }
+
+    private static ChargeCreateParams params() {
+        return ChargeCreateParams.builder()
+                .setSource("0x0x0x")
+                .setAmount(1000L)
+                .setCurrency("USD")
+                .setDescription("Zakat")
+                .build();
+    }
+
+    private static PoolingHttpClientConnectionManager connectionManager() {
+        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setMaxTotal(5);
+        connectionManager.setDefaultMaxPerRoute(5);
+        return connectionManager;
+    }
+}
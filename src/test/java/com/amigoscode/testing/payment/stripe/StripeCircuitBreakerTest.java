@@ -0,0 +1,138 @@
+package com.amigoscode.testing.payment.stripe;
+
+import com.stripe.exception.ApiConnectionException;
+import com.stripe.exception.CardException;
+import com.stripe.exception.StripeException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class StripeCircuitBreakerTest {
+
+    private final AtomicLong nanoTime = new AtomicLong();
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private StripeCircuitBreaker underTest;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        // window of 4 calls, opens at 50% failed or slow, slow is 100 ms, stays open 1 s, 2 probes
+        underTest = new StripeCircuitBreaker(meterRegistry, 4, 4, 0.5, 100, 1_000, 2, nanoTime::get);
+    }
+
+    @Test
+    void itShouldStayClosedBelowFailureRate() throws StripeException {
+        // When
+        succeed();
+        succeed();
+        succeed();
+        fail();
+
+        // Then
+        assertThat(underTest.getState()).isEqualTo(StripeCircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void itShouldOpenAndFailFastAtFailureRate() throws StripeException {
+        // Given
+        succeed();
+        succeed();
+        fail();
+        fail();
+
+        // When
+        AtomicInteger calls = new AtomicInteger();
+
+        // Then
+        assertThat(underTest.getState()).isEqualTo(StripeCircuitBreaker.State.OPEN);
+        assertThatThrownBy(() -> underTest.execute(calls::incrementAndGet))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("Stripe circuit breaker is open");
+        assertThat(calls.get()).isZero();
+        assertThat(meterRegistry.get("payment.provider.circuit.rejected").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("payment.provider.circuit.transitions")
+                .tag("from", "CLOSED").tag("to", "OPEN").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("payment.provider.circuit.state").gauge().value()).isEqualTo(1);
+    }
+
+    @Test
+    void itShouldOpenOnSlowCalls() throws StripeException {
+        // When
+        succeed();
+        succeed();
+        underTest.execute(() -> nanoTime.addAndGet(TimeUnit.MILLISECONDS.toNanos(150)));
+        underTest.execute(() -> nanoTime.addAndGet(TimeUnit.MILLISECONDS.toNanos(150)));
+
+        // Then
+        assertThat(underTest.getState()).isEqualTo(StripeCircuitBreaker.State.OPEN);
+    }
+
+    @Test
+    void itShouldNotCountDeclinedCardsAsFailures() throws StripeException {
+        // When
+        for (int i = 0; i < 4; i++) {
+            assertThatThrownBy(() -> underTest.execute(() -> {
+                throw new CardException("declined", "req", "card_declined", "source", "do_not_honor", null, 402, null);
+            })).isInstanceOf(CardException.class);
+        }
+
+        // Then
+        assertThat(underTest.getState()).isEqualTo(StripeCircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void itShouldCloseAfterSuccessfulProbes() throws StripeException {
+        // Given an open breaker
+        fail();
+        fail();
+        fail();
+        fail();
+
+        // When the open period is over
+        nanoTime.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        succeed();
+
+        // Then only the permitted probes go through
+        assertThat(underTest.getState()).isEqualTo(StripeCircuitBreaker.State.HALF_OPEN);
+        succeed();
+        assertThat(underTest.getState()).isEqualTo(StripeCircuitBreaker.State.CLOSED);
+        assertThat(meterRegistry.get("payment.provider.circuit.transitions")
+                .tag("from", "HALF_OPEN").tag("to", "CLOSED").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void itShouldLimitConcurrentProbesAndReopenWhenProbeFails() throws StripeException {
+        // Given an open breaker past its open period
+        fail();
+        fail();
+        fail();
+        fail();
+        nanoTime.addAndGet(TimeUnit.SECONDS.toNanos(1));
+
+        // When a probe fails
+        fail();
+
+        // Then
+        assertThat(underTest.getState()).isEqualTo(StripeCircuitBreaker.State.OPEN);
+        assertThatThrownBy(this::succeed).hasMessage("Stripe circuit breaker is open");
+    }
+
+    private void succeed() throws StripeException {
+        underTest.execute(() -> "paid");
+    }
+
+    private void fail() {
+        assertThatThrownBy(() -> underTest.execute(() -> {
+            throw new ApiConnectionException("Stripe is down");
+        })).isInstanceOf(ApiConnectionException.class);
+    }
+}
@@ -0,0 +1,128 @@
+package com.amigoscode.testing.payment.stripe;
+
+import ch.qos.logback.classic.Logger;
+import com.stripe.exception.StripeException;
+import com.stripe.model.Charge;
+import com.stripe.net.HttpURLConnectionClient;
+import com.stripe.net.RequestOptions;
+import com.stripe.param.ChargeCreateParams;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+// Charges a local Stripe stand-in that answers after 2 ms, from 16 threads.
+// "new-connection" opens a connection per charge, "url-connection" is the SDK default HttpURLConnection client
+// (the JDK keeps at most 5 idle connections per host), "pooled" is PooledStripeHttpClient.
+// Run with: mvn test-compile exec:java -Dexec.classpathScope=test
+//   -Dexec.mainClass=com.amigoscode.testing.payment.stripe.StripeClientBenchmark
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(StripeClientBenchmark.THREADS)
+@Fork(1)
+public class StripeClientBenchmark {
+
+    static final int THREADS = 16;
+
+    @Param({"new-connection", "url-connection", "pooled"})
+    private String client;
+
+    private StripeStubServer stripe;
+
+    private StripeApi stripeApi;
+
+    private RequestOptions requestOptions;
+
+    private ChargeCreateParams params;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        // logback defaults to debug outside of Spring Boot
+        ((Logger) LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME)).setLevel(ch.qos.logback.classic.Level.INFO);
+
+        stripe = new StripeStubServer(2);
+        switch (client) {
+            case "new-connection":
+                stripeApi = new NewConnectionStripeApi(stripe.apiBase());
+                break;
+            case "url-connection":
+                stripeApi = new StripeApi(new HttpURLConnectionClient(), stripe.apiBase());
+                break;
+            default:
+                stripeApi = new StripeApi(new PooledStripeHttpClient(connectionManager(THREADS)), stripe.apiBase());
+        }
+        requestOptions = new StripeRequestOptions("sk_test_merchant", 1_000, 1_000).get();
+        params = ChargeCreateParams.builder()
+                .setSource("0x0x0x")
+                .setAmount(1000L)
+                .setCurrency("USD")
+                .setDescription("Zakat")
+                .build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        stripeApi.shutdown();
+        stripe.close();
+    }
+
+    @Benchmark
+    public Charge charge() throws StripeException {
+        return stripeApi.create(params, requestOptions);
+    }
+
+    private static PoolingHttpClientConnectionManager connectionManager(int maxConnections) {
+        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setMaxTotal(maxConnections);
+        connectionManager.setDefaultMaxPerRoute(maxConnections);
+        return connectionManager;
+    }
+
+    private static class NewConnectionStripeApi extends StripeApi {
+
+        private final String apiBase;
+
+        NewConnectionStripeApi(String apiBase) {
+            super(new PooledStripeHttpClient(connectionManager(1)), apiBase);
+            this.apiBase = apiBase;
+        }
+
+        @Override
+        public Charge create(ChargeCreateParams params, RequestOptions options) throws StripeException {
+            StripeApi stripeApi = new StripeApi(new PooledStripeHttpClient(connectionManager(1)), apiBase);
+            try {
+                return stripeApi.create(params, options);
+            } finally {
+                stripeApi.shutdown();
+            }
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(StripeClientBenchmark.class.getSimpleName())
+                .build()
+        ).run();
+    }
+}
@@ -0,0 +1,41 @@
+package com.amigoscode.testing.payment.stripe;
+
+import com.stripe.net.RequestOptions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StripeRequestOptionsTest {
+
+    private StripeRequestOptions underTest;
+
+    @BeforeEach
+    void setUp() {
+        underTest = new StripeRequestOptions("sk_test_merchant", 5_000, 30_000);
+    }
+
+    @Test
+    void itShouldReuseOptionsAcrossCharges() {
+        // When
+        RequestOptions first = underTest.get();
+        RequestOptions second = underTest.get();
+
+        // Then
+        assertThat(first).isSameAs(second);
+        assertThat(first.getApiKey()).isEqualTo("sk_test_merchant");
+        assertThat(first.getConnectTimeout()).isEqualTo(5_000);
+        assertThat(first.getReadTimeout()).isEqualTo(30_000);
+    }
+
+    @Test
+    void itShouldAddIdempotencyKeyWithoutChangingSharedOptions() {
+        // When
+        RequestOptions options = underTest.withIdempotencyKey("key-1");
+
+        // Then
+        assertThat(options.getApiKey()).isEqualTo("sk_test_merchant");
+        assertThat(options.getIdempotencyKey()).isEqualTo("key-1");
+        assertThat(underTest.get().getIdempotencyKey()).isNull();
+    }
+}
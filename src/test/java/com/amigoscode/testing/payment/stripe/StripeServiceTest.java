@@ -2,27 +2,32 @@ package com.amigoscode.testing.payment.stripe;
 
 import com.amigoscode.testing.payment.CardPaymentCharge;
 import com.amigoscode.testing.payment.Currency;
+import com.amigoscode.testing.payment.Money;
+import com.amigoscode.testing.payment.DirectProviderCallExecutor;
 import com.stripe.exception.ApiConnectionException;
 import com.stripe.exception.StripeException;
 import com.stripe.model.Charge;
 import com.stripe.net.RequestOptions;
 import com.stripe.param.ChargeCreateParams;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
-import java.math.BigDecimal;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.BDDMockito.then;
+import static org.mockito.Mockito.times;
 
 class StripeServiceTest {
 
+    private static final String API_KEY = "sk_test_merchant";
+
     @Mock
     private StripeApi stripeApi;
 
@@ -31,15 +36,14 @@ class StripeServiceTest {
     @BeforeEach
     void setUp() {
         MockitoAnnotations.initMocks(this);
-        underTest = new StripeService(stripeApi);
+        underTest = new StripeService(stripeApi, new DirectProviderCallExecutor(10, 10), circuitBreaker(), requestOptions());
     }
 
     @Test
     void itShouldChargeCard() throws StripeException {
         // Given
         String cardSource = "0x0x0x";
-        BigDecimal amount = new BigDecimal("10.00");
-        Currency currency = Currency.USD;
+        Money amount = Money.parse("10.50", Currency.USD);
         String description = "Zakat";
 
         Charge charge = new Charge();
@@ -47,7 +51,7 @@ class StripeServiceTest {
         given(stripeApi.create(any(), any())).willReturn(charge);
 
         // When
-        CardPaymentCharge cardPaymentCharge = underTest.chargeCard(cardSource, amount, currency, description);
+        CardPaymentCharge cardPaymentCharge = underTest.chargeCard(cardSource, amount, description);
 
         // Then
         ArgumentCaptor<ChargeCreateParams> paramsArgumentCaptor = ArgumentCaptor.forClass(ChargeCreateParams.class);
@@ -58,13 +62,15 @@ class StripeServiceTest {
         ChargeCreateParams paramsValue = paramsArgumentCaptor.getValue();
 
         assertThat(paramsValue.getSource()).isEqualTo(cardSource);
-        assertThat(paramsValue.getAmount()).isEqualTo(amount.longValue());
-        assertThat(paramsValue.getCurrency()).isEqualTo(currency.name());
+        assertThat(paramsValue.getAmount()).isEqualTo(1050L);
+        assertThat(paramsValue.getCurrency()).isEqualTo("USD");
         assertThat(paramsValue.getDescription()).isEqualTo(description);
 
         RequestOptions optionsValue = optionsArgumentCaptor.getValue();
 
-        assertThat(optionsValue).isNotNull();
+        assertThat(optionsValue.getApiKey()).isEqualTo(API_KEY);
+        assertThat(optionsValue.getConnectTimeout()).isEqualTo(5_000);
+        assertThat(optionsValue.getReadTimeout()).isEqualTo(30_000);
 
         assertThat(cardPaymentCharge.isCardDebited()).isTrue();
     }
@@ -73,8 +79,7 @@ class StripeServiceTest {
     void itShouldThrowWhenStripeFails() throws StripeException {
         // Given
         String cardSource = "0x0x0x";
-        BigDecimal amount = new BigDecimal("10.00");
-        Currency currency = Currency.USD;
+        Money amount = Money.parse("10.50", Currency.USD);
         String description = "Zakat";
 
         Charge charge = new Charge();
@@ -84,7 +89,80 @@ class StripeServiceTest {
 
         // When
         // Then
-        assertThatThrownBy(() -> underTest.chargeCard(cardSource, amount, currency, description))
+        assertThatThrownBy(() -> underTest.chargeCard(cardSource, amount, description))
                 .isInstanceOf(IllegalStateException.class);
     }
-}
\ No newline at end of file
+
+    @Test
+    void itShouldChargeCardAsync() throws StripeException {
+        // Given
+        Charge charge = new Charge();
+        charge.setPaid(true);
+        given(stripeApi.create(any(), any())).willReturn(charge);
+
+        // When
+        CardPaymentCharge cardPaymentCharge = underTest
+                .chargeCardAsync("0x0x0x", Money.parse("10.00", Currency.USD), "Zakat")
+                .join();
+
+        // Then
+        assertThat(cardPaymentCharge.isCardDebited()).isTrue();
+    }
+
+    @Test
+    void itShouldFailAsyncChargeWhenStripeThrows() throws StripeException {
+        // Given
+        given(stripeApi.create(any(), any())).willThrow(new ApiConnectionException("Stripe is down"));
+
+        // When
+        // Then
+        assertThatThrownBy(() -> underTest
+                .chargeCardAsync("0x0x0x", Money.parse("10.00", Currency.USD), "Zakat")
+                .join())
+                .hasCauseInstanceOf(IllegalStateException.class)
+                .hasRootCauseInstanceOf(ApiConnectionException.class);
+    }
+
+    @Test
+    void itShouldSendIdempotencyKeyWithCharge() throws StripeException {
+        // Given
+        Charge charge = new Charge();
+        charge.setPaid(true);
+        given(stripeApi.create(any(), any())).willReturn(charge);
+
+        // When
+        underTest.chargeCard("0x0x0x", Money.parse("10.00", Currency.USD), "Zakat", "key-1");
+
+        // Then
+        ArgumentCaptor<RequestOptions> optionsArgumentCaptor = ArgumentCaptor.forClass(RequestOptions.class);
+        then(stripeApi).should().create(any(), optionsArgumentCaptor.capture());
+        assertThat(optionsArgumentCaptor.getValue().getIdempotencyKey()).isEqualTo("key-1");
+    }
+
+    @Test
+    void itShouldSendSlowIdempotentChargeOnce() throws StripeException {
+        // Given a slow charge
+        Charge charge = new Charge();
+        charge.setPaid(true);
+        given(stripeApi.create(any(), any())).willAnswer(invocation -> {
+            Thread.sleep(100);
+            return charge;
+        });
+
+        // When
+        CardPaymentCharge cardPaymentCharge = underTest.chargeCardAsync(
+                "0x0x0x", Money.parse("10.00", Currency.USD), "Zakat", "key-1").join();
+
+        // Then no second request races the first one with the same key
+        assertThat(cardPaymentCharge.isCardDebited()).isTrue();
+        then(stripeApi).should(times(1)).create(any(), any());
+    }
+
+    private static StripeRequestOptions requestOptions() {
+        return new StripeRequestOptions(API_KEY, 5_000, 30_000);
+    }
+
+    private static StripeCircuitBreaker circuitBreaker() {
+        return new StripeCircuitBreaker(new SimpleMeterRegistry(), 50, 20, 0.5, 2_000, 10_000, 3);
+    }
+}
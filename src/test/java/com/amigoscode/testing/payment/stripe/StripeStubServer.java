@@ -0,0 +1,68 @@
+package com.amigoscode.testing.payment.stripe;
+
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Local stand-in for api.stripe.com that answers every charge as paid
+class StripeStubServer implements AutoCloseable {
+
+    private static final byte[] CHARGE = "{\"id\":\"ch_000000000000000000000000\",\"object\":\"charge\",\"paid\":true}"
+            .getBytes(StandardCharsets.UTF_8);
+
+    static {
+        // without it Nagle and delayed acks add about 40 ms to every response on a kept alive connection
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+    }
+
+    private final HttpServer server;
+
+    private final ExecutorService executor;
+
+    private final Set<InetSocketAddress> connections = ConcurrentHashMap.newKeySet();
+
+    StripeStubServer(long latencyMillis) throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        executor = Executors.newCachedThreadPool();
+        server.setExecutor(executor);
+        server.createContext("/v1/charges", exchange -> {
+            connections.add(exchange.getRemoteAddress());
+            exchange.getRequestBody().readAllBytes();
+            if (latencyMillis > 0) {
+                try {
+                    Thread.sleep(latencyMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, CHARGE.length);
+            try (OutputStream body = exchange.getResponseBody()) {
+                body.write(CHARGE);
+            }
+        });
+        server.start();
+    }
+
+    String apiBase() {
+        return "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort();
+    }
+
+    int connectionCount() {
+        return connections.size();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,41 @@
+package com.amigoscode.testing.payment.twilio;
+
+import com.twilio.rest.api.v2010.account.Message;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TwilioApiTest {
+
+    private TwilioStubServer twilio;
+
+    private TwilioApi underTest;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        twilio = new TwilioStubServer(0);
+        underTest = new TwilioApi(twilio.connectionManager(5), 1_000, 1_000);
+    }
+
+    @AfterEach
+    void tearDown() {
+        underTest.shutdown();
+        twilio.close();
+    }
+
+    @Test
+    void itShouldReuseConnectionAcrossMessages() {
+        // When
+        for (int i = 0; i < 5; i++) {
+            Message.Status status = underTest.create(TwilioService.TWILIO_PHONE_NUMBER, "+447000000000", "Hello");
+
+            // Then
+            assertThat(status).isEqualTo(Message.Status.QUEUED);
+        }
+        assertThat(twilio.connectionCount()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,119 @@
+package com.amigoscode.testing.payment.twilio;
+
+import ch.qos.logback.classic.Logger;
+import com.amigoscode.testing.payment.DirectProviderCallExecutor;
+import com.twilio.rest.api.v2010.account.Message;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+// Sends SMS to a local Twilio stand-in that answers after 2 ms.
+// "per-message" builds a new client for every message like Twilio.init used to, "shared" reuses one pooled client.
+// Run with: mvn test-compile exec:java -Dexec.classpathScope=test
+//   -Dexec.mainClass=com.amigoscode.testing.payment.twilio.TwilioClientBenchmark
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TwilioClientBenchmark {
+
+    private static final int BATCH_SIZE = 100;
+
+    private static final int MAX_IN_FLIGHT = 16;
+
+    @Param({"per-message", "shared"})
+    private String client;
+
+    private TwilioStubServer twilio;
+
+    private TwilioApi twilioApi;
+
+    private TwilioService twilioService;
+
+    private DirectProviderCallExecutor providerCallExecutor;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        // logback defaults to debug outside of Spring Boot and the Twilio client logs every request
+        ((Logger) LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME)).setLevel(ch.qos.logback.classic.Level.INFO);
+
+        twilio = new TwilioStubServer(2);
+        twilioApi = "shared".equals(client)
+                ? new TwilioApi(twilio.connectionManager(MAX_IN_FLIGHT), 1_000, 1_000)
+                : new PerMessageTwilioApi(twilio);
+        providerCallExecutor = new DirectProviderCallExecutor(MAX_IN_FLIGHT, BATCH_SIZE);
+        twilioService = new TwilioService(twilioApi, providerCallExecutor);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException {
+        providerCallExecutor.shutdown();
+        twilioApi.shutdown();
+        twilio.close();
+    }
+
+    @Benchmark
+    public Message.Status sendSms() {
+        return twilioService.sendSms("+447000000000", "Card change was successfully completed!");
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void sendSmsAsync() {
+        // the executor runs MAX_IN_FLIGHT sends at a time, like the SMS queue workers
+        CompletableFuture<?>[] statuses = new CompletableFuture<?>[BATCH_SIZE];
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            statuses[i] = twilioService.sendSmsAsync(
+                    "+44700000" + String.format("%04d", i), "Card change was successfully completed!");
+        }
+        CompletableFuture.allOf(statuses).join();
+    }
+
+    private static class PerMessageTwilioApi extends TwilioApi {
+
+        private final TwilioStubServer twilio;
+
+        PerMessageTwilioApi(TwilioStubServer twilio) {
+            super(twilio.connectionManager(1), 1_000, 1_000);
+            this.twilio = twilio;
+        }
+
+        @Override
+        public Message.Status create(String from, String to, String message) {
+            TwilioApi twilioApi = new TwilioApi(twilio.connectionManager(1), 1_000, 1_000);
+            try {
+                return twilioApi.create(from, to, message);
+            } finally {
+                twilioApi.shutdown();
+            }
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(TwilioClientBenchmark.class.getSimpleName())
+                .build()
+        ).run();
+    }
+}
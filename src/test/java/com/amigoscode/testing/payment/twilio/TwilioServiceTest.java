@@ -1,5 +1,6 @@
 package com.amigoscode.testing.payment.twilio;
 
+import com.amigoscode.testing.payment.DirectProviderCallExecutor;
 import com.twilio.rest.api.v2010.account.Message;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -21,7 +22,7 @@ class TwilioServiceTest {
     @BeforeEach
     void setUp() {
         MockitoAnnotations.initMocks(this);
-        underTest = new TwilioService(twilioApi);
+        underTest = new TwilioService(twilioApi, new DirectProviderCallExecutor(10, 10));
     }
 
     @Test
@@ -59,4 +60,20 @@ class TwilioServiceTest {
 
         assertThat(status).isEqualTo(failedStatus);
     }
-}
\ No newline at end of file
+
+    @Test
+    void itShouldSendSmsAsync() {
+        // Given
+        String to = "0001";
+        String textMessage = "Hello from Twilio!";
+        given(twilioApi.create(anyString(), anyString(), anyString())).willReturn(Message.Status.DELIVERED);
+
+        // When
+        Message.Status status = underTest.sendSmsAsync(to, textMessage).join();
+
+        // Then
+        then(twilioApi).should().create(TwilioService.TWILIO_PHONE_NUMBER, to, textMessage);
+
+        assertThat(status).isEqualTo(Message.Status.DELIVERED);
+    }
+}
@@ -0,0 +1,100 @@
+package com.amigoscode.testing.payment.twilio;
+
+import com.sun.net.httpserver.HttpServer;
+import org.apache.http.HttpHost;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.protocol.HttpContext;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Local stand-in for api.twilio.com that answers every message with a queued status
+class TwilioStubServer implements AutoCloseable {
+
+    private static final byte[] MESSAGE = ("{\"sid\":\"SM00000000000000000000000000000000\"," +
+            "\"account_sid\":\"" + TwilioService.ACCOUNT_SID + "\",\"status\":\"queued\"}")
+            .getBytes(StandardCharsets.UTF_8);
+
+    static {
+        // without it Nagle and delayed acks add about 40 ms to every response on a kept alive connection
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+    }
+
+    private final HttpServer server;
+
+    private final ExecutorService executor;
+
+    private final Set<InetSocketAddress> connections = ConcurrentHashMap.newKeySet();
+
+    TwilioStubServer(long latencyMillis) throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        executor = Executors.newCachedThreadPool();
+        server.setExecutor(executor);
+        server.createContext("/", exchange -> {
+            connections.add(exchange.getRemoteAddress());
+            exchange.getRequestBody().readAllBytes();
+            if (latencyMillis > 0) {
+                try {
+                    Thread.sleep(latencyMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(201, MESSAGE.length);
+            try (OutputStream body = exchange.getResponseBody()) {
+                body.write(MESSAGE);
+            }
+        });
+        server.start();
+    }
+
+    // routes https://api.twilio.com to this server over plain http
+    PoolingHttpClientConnectionManager connectionManager(int maxConnections) {
+        int port = server.getAddress().getPort();
+        ConnectionSocketFactory toStub = new ConnectionSocketFactory() {
+            @Override
+            public Socket createSocket(HttpContext context) {
+                return new Socket();
+            }
+
+            @Override
+            public Socket connectSocket(int connectTimeout,
+                                        Socket socket,
+                                        HttpHost host,
+                                        InetSocketAddress remoteAddress,
+                                        InetSocketAddress localAddress,
+                                        HttpContext context) throws IOException {
+                Socket connected = socket != null ? socket : new Socket();
+                connected.connect(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), connectTimeout);
+                return connected;
+            }
+        };
+        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager(
+                RegistryBuilder.<ConnectionSocketFactory>create().register("https", toStub).build(),
+                host -> new InetAddress[]{InetAddress.getLoopbackAddress()});
+        connectionManager.setMaxTotal(maxConnections);
+        connectionManager.setDefaultMaxPerRoute(maxConnections);
+        return connectionManager;
+    }
+
+    int connectionCount() {
+        return connections.size();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,66 @@
+package com.amigoscode.testing.utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BloomFilterTest {
+
+    @Test
+    void itShouldContainEveryInsertedValue() {
+        // Given
+        BloomFilter underTest = BloomFilter.create(10_000, 0.01);
+
+        // When
+        for (int i = 0; i < 10_000; i++) {
+            underTest.put("+44700" + i);
+        }
+
+        // Then
+        for (int i = 0; i < 10_000; i++) {
+            assertThat(underTest.mightContain("+44700" + i)).isTrue();
+        }
+        assertThat(underTest.insertions()).isEqualTo(10_000);
+    }
+
+    @Test
+    void itShouldKeepFalsePositivesCloseToTheExpectedRate() {
+        // Given
+        BloomFilter underTest = BloomFilter.create(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            underTest.put("+44700" + i);
+        }
+
+        // When
+        int falsePositives = 0;
+        for (int i = 0; i < 10_000; i++) {
+            if (underTest.mightContain("+33600" + i)) {
+                falsePositives++;
+            }
+        }
+
+        // Then
+        assertThat(falsePositives).isLessThan(300);
+        assertThat(underTest.expectedFalsePositiveRate()).isBetween(0.0, 0.03);
+    }
+
+    @Test
+    void itShouldNotContainAnythingWhenEmpty() {
+        // Given
+        BloomFilter underTest = BloomFilter.create(100, 0.01);
+
+        // When
+        // Then
+        assertThat(underTest.mightContain("+447000000000")).isFalse();
+        assertThat(underTest.expectedFalsePositiveRate()).isZero();
+    }
+
+    @Test
+    void itShouldThrowWhenFalsePositiveRateIsInvalid() {
+        // When
+        // Then
+        assertThatThrownBy(() -> BloomFilter.create(100, 1.5))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
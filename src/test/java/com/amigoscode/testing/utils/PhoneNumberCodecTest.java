@@ -0,0 +1,43 @@
+package com.amigoscode.testing.utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PhoneNumberCodecTest {
+
+    @ParameterizedTest
+    @CsvSource({
+            "+447000000000, 447000000000",
+            "+14155552671, 14155552671",
+            "+999999999999999, 999999999999999"
+    })
+    void itShouldEncodeAndDecodePhoneNumber(String phoneNumber, long encoded) {
+        // When
+        // Then
+        assertThat(PhoneNumberCodec.encode(phoneNumber)).isEqualTo(encoded);
+        assertThat(PhoneNumberCodec.decode(encoded)).isEqualTo(phoneNumber);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"447000000000", "+0447000000000", "+44700000000a", "+", "+9999999999999999"})
+    void itShouldNotEncodeInvalidPhoneNumber(String phoneNumber) {
+        // When
+        // Then
+        assertThatThrownBy(() -> PhoneNumberCodec.encode(phoneNumber))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("is not in E.164 format");
+    }
+
+    @Test
+    void itShouldNotDecodeNegativePhoneNumber() {
+        // When
+        // Then
+        assertThatThrownBy(() -> PhoneNumberCodec.decode(-1))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,60 @@
+package com.amigoscode.testing.utils;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+// Run with: mvn test-compile exec:java -Dexec.classpathScope=test
+//   -Dexec.mainClass=com.amigoscode.testing.utils.PhoneNumberValidatorBenchmark
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PhoneNumberValidatorBenchmark {
+
+    private static final Pattern E164 = Pattern.compile(
+            "\\+(?:1\\d{10}|44\\d{10}|33\\d{9}|49\\d{6,13}|353\\d{7,9}|86\\d{10,11}|[1-9]\\d{6,14})");
+
+    @Param({"+447000000000", "+8613812345678", "+44700000000a"})
+    private String phoneNumber;
+
+    private final PhoneNumberValidator validator = new PhoneNumberValidator();
+
+    @Benchmark
+    public boolean startsWithAndLength() {
+        return phoneNumber.startsWith("+44") && phoneNumber.length() == 13;
+    }
+
+    @Benchmark
+    public boolean regex() {
+        return E164.matcher(phoneNumber).matches();
+    }
+
+    @Benchmark
+    public boolean callingCodeTrie() {
+        return validator.test(phoneNumber);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(PhoneNumberValidatorBenchmark.class.getSimpleName())
+                .addProfiler("gc")
+                .build()
+        ).run();
+    }
+}
@@ -1,6 +1,7 @@
 package com.amigoscode.testing.utils;
 
 import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.CsvSource;
 
@@ -19,7 +20,22 @@ class PhoneNumberValidatorTest {
     @CsvSource({
             "+447000000000, true",
             "+4470000000009, false",
-            "4470000000009, false"
+            "4470000000009, false",
+            "+14155552671, true",
+            "+1415555267, false",
+            "+33612345678, true",
+            "+3361234567, false",
+            "+4930123456, true",
+            "+35312345678, true",
+            "+8613812345678, true",
+            "+44700000000a, false",
+            "+44 7000000000, false",
+            "+0447000000000, false",
+            "+999123456789, false",
+            "+4412345678901234, false",
+            "+44, false",
+            "+, false",
+            "'', false"
     })
     void itShouldValidatePhoneNumber(String phoneNumber, boolean expected) {
         // When
@@ -28,4 +44,21 @@ class PhoneNumberValidatorTest {
         // Then
         assertThat(isValid).isEqualTo(expected);
     }
+
+    @Test
+    void itShouldNotValidateNullPhoneNumber() {
+        // When
+        // Then
+        assertThat(underTest.test(null)).isFalse();
+    }
+
+    @Test
+    void itShouldValidatePhoneNumberWithoutCopyingCharSequence() {
+        // Given
+        StringBuilder phoneNumber = new StringBuilder("+447000000000");
+
+        // When
+        // Then
+        assertThat(underTest.isValid(phoneNumber)).isTrue();
+    }
 }
@@ -0,0 +1,164 @@
+package com.amigoscode.testing.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SnowflakeIdGeneratorTest {
+
+    @Test
+    void itShouldLayOutTimestampNodeIdAndSequence() {
+        // Given
+        long millis = 1_700_000_000_000L;
+        SnowflakeIdGenerator underTest =
+                new SnowflakeIdGenerator(42, 1_000, Clock.fixed(Instant.ofEpochMilli(millis), ZoneOffset.UTC));
+
+        // When
+        long first = underTest.nextId();
+        long second = underTest.nextId();
+
+        // Then
+        assertThat(first >>> 22).isEqualTo(millis - SnowflakeIdGenerator.EPOCH_MILLIS);
+        assertThat((first >>> 12) & SnowflakeIdGenerator.MAX_NODE_ID).isEqualTo(42);
+        assertThat(first & 0xFFF).isEqualTo(0);
+        assertThat(second & 0xFFF).isEqualTo(1);
+    }
+
+    @Test
+    void itShouldCarryIntoNextMillisecondWhenCounterIsExhausted() {
+        // Given
+        SnowflakeIdGenerator underTest =
+                new SnowflakeIdGenerator(1, 1_000, Clock.fixed(Instant.now(), ZoneOffset.UTC));
+
+        // When
+        long previous = underTest.nextId();
+        for (int i = 0; i < 5_000; i++) {
+            long next = underTest.nextId();
+
+            // Then
+            assertThat(next).isGreaterThan(previous);
+            previous = next;
+        }
+    }
+
+    @Test
+    void itShouldStayMonotonicWhenClockMovesBackwards() {
+        // Given
+        MutableClock clock = new MutableClock(Instant.now());
+        SnowflakeIdGenerator underTest = new SnowflakeIdGenerator(1, 1_000, clock);
+        long before = underTest.nextId();
+
+        // When
+        clock.instant = clock.instant.minusMillis(500);
+        long after = underTest.nextId();
+
+        // Then
+        assertThat(after).isGreaterThan(before);
+    }
+
+    @Test
+    void itShouldThrowWhenClockMovesBackwardsTooFar() {
+        // Given
+        MutableClock clock = new MutableClock(Instant.now());
+        SnowflakeIdGenerator underTest = new SnowflakeIdGenerator(1, 1_000, clock);
+        underTest.nextId();
+
+        // When
+        clock.instant = clock.instant.minusSeconds(5);
+
+        // Then
+        assertThatThrownBy(underTest::nextId)
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("behind the last generated id");
+    }
+
+    @Test
+    void itShouldRejectNodeIdOutOfRange() {
+        // When
+        // Then
+        assertThatThrownBy(() -> new SnowflakeIdGenerator(SnowflakeIdGenerator.MAX_NODE_ID + 1, 1_000))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void itShouldGenerateUniqueIdsAcrossThreadsAndNodes() throws Exception {
+        // Given two nodes sharing the same clock and 8 threads per node
+        int threadsPerNode = 8;
+        int idsPerThread = 20_000;
+        SnowflakeIdGenerator[] nodes = {new SnowflakeIdGenerator(1, 10_000), new SnowflakeIdGenerator(2, 10_000)};
+        ExecutorService executor = Executors.newFixedThreadPool(threadsPerNode * nodes.length);
+        CountDownLatch start = new CountDownLatch(1);
+
+        try {
+            List<Future<long[]>> futures = new ArrayList<>();
+            for (SnowflakeIdGenerator node : nodes) {
+                for (int t = 0; t < threadsPerNode; t++) {
+                    futures.add(executor.submit(() -> {
+                        start.await();
+                        long[] ids = new long[idsPerThread];
+                        for (int i = 0; i < idsPerThread; i++) {
+                            ids[i] = node.nextId();
+                        }
+                        return ids;
+                    }));
+                }
+            }
+
+            // When
+            start.countDown();
+
+            // Then every id is unique and increasing within each thread
+            Set<Long> ids = new HashSet<>();
+            for (Future<long[]> future : futures) {
+                long[] threadIds = future.get();
+                for (int i = 0; i < threadIds.length; i++) {
+                    if (i > 0) {
+                        assertThat(threadIds[i]).isGreaterThan(threadIds[i - 1]);
+                    }
+                    ids.add(threadIds[i]);
+                }
+            }
+            assertThat(ids).hasSize(threadsPerNode * nodes.length * idsPerThread);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static class MutableClock extends Clock {
+
+        private Instant instant;
+
+        MutableClock(Instant instant) {
+            this.instant = instant;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}